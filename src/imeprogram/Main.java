@@ -5,6 +5,7 @@ import imeprogram.controller.GUIController;
 import imeprogram.controller.IController;
 import imeprogram.controller.IFeatures;
 import imeprogram.fileparser.ImageFileIOFactory;
+import imeprogram.model.DecodedImageCache;
 import imeprogram.model.IModel;
 import imeprogram.model.Model;
 import imeprogram.view.GUIView;
@@ -23,6 +24,11 @@ public class Main {
    * @param args command line arguments.
    */
   public static void main(String[] args) {
+    if (args.length > 0) {
+      // The script and text modes never open a window. Running headless keeps the graphics that
+      // histograms and PNG or JPEG files need from connecting to a display.
+      System.setProperty("java.awt.headless", "true");
+    }
     if (args.length == 0) {
       openGUI();
     } else if (args.length == 1 && args[0].equals("-text")) {
@@ -42,7 +48,7 @@ public class Main {
 
   private static void openGUI() {
     // Invoke model with a factory of image file parsers
-    IModel model = new Model(new ImageFileIOFactory());
+    IModel model = createModel();
     // Create GUI window
     IGUIView guiView = new GUIView();
     // Create controller. This will initiate the program
@@ -52,7 +58,7 @@ public class Main {
   private static void openScriptMode(String[] arg) {
     // Instantiate the View with System.out. Will replace this in testing.
     IView view = new View(System.out);
-    IModel model = new Model(new ImageFileIOFactory());
+    IModel model = createModel();
     // Instantiate the Controller with System.out. Will replace this in testing.
     // Instantiate Controller, pass model and view, hardcode pipe as System.in
     IController controller = new Controller(model, view, System.in);
@@ -62,13 +68,20 @@ public class Main {
   private static void openCLI() {
     // Instantiate the View with System.out. Will replace this in testing.
     IView view = new View(System.out);
-    IModel model = new Model(new ImageFileIOFactory());
+    IModel model = createModel();
     // Instantiate the Controller with System.out. Will replace this in testing.
     // Instantiate Controller, pass model and view, hardcode pipe as System.in
     IController controller = new Controller(model, view, System.in);
     controller.start();
   }
 
+  // Creates a model that keeps decoded images within an eighth of the heap, so that loading the
+  // same unchanged file again takes no time. The cache-budget command changes the budget.
+  private static IModel createModel() {
+    return new Model(new ImageFileIOFactory(),
+        new DecodedImageCache(Runtime.getRuntime().maxMemory() / 8));
+  }
+
   // Creates a new array with given start index.
   private static String[] sliceArray(String[] inputs, int newStart) {
     String[] result = new String[inputs.length - newStart];
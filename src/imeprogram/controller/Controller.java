@@ -3,8 +3,16 @@ package imeprogram.controller;
 import imeprogram.exceptions.FileFormatException;
 import imeprogram.exceptions.ImageNotFoundException;
 import imeprogram.exceptions.InvalidImageNameException;
+import imeprogram.fileparser.ImageInfo;
+import imeprogram.fileparser.ReadOptions;
+import imeprogram.fileparser.WriteOptions;
+import imeprogram.model.CompressionResult;
+import imeprogram.model.IImage.ImageComponent;
+import imeprogram.model.IImage.QualityTarget;
 import imeprogram.model.IModel;
 import imeprogram.model.LineGraph2D;
+import imeprogram.model.RowOperation;
+import imeprogram.model.SaveFailure;
 import imeprogram.view.IView;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
@@ -12,7 +20,13 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -27,6 +41,16 @@ public class Controller implements IController {
   private final IView view;
   private final InputStream in;
   private Map<String, Consumer<String[]>> knownCommands;
+  // Number of scripts running, counting those run from inside a script.
+  private int scriptDepth;
+  // Background saves used when async-save is turned on without options.
+  private static final int DEFAULT_SAVE_THREADS = 2;
+  private static final int DEFAULT_SAVE_QUEUE_SIZE = 4;
+  private static final long BYTES_PER_MEGABYTE = 1 << 20;
+  // Number of upcoming loads of a script that are decoded ahead.
+  private static final int PREFETCH_DEPTH = 2;
+  // Number of script commands read ahead of the one running, to find the loads to prefetch.
+  private static final int SCRIPT_LOOKAHEAD = 16;
 
   /**
    * Instantiate the controller object.
@@ -44,14 +68,35 @@ public class Controller implements IController {
 
   @Override
   public void loadImage(String[] args) {
-    if (!isValidNumberOfArgs(args, 2)) {
+    if (!isValidNumberOfArgs(args, 2, 3, 4)) {
       return;
     }
+    // Only options may follow the file path and image name, and each of them has an equals sign.
+    for (int i = 2; i < args.length; i++) {
+      if (!args[i].contains("=")) {
+        view.print("Invalid number of arguments");
+        return;
+      }
+    }
     // Replace starting and ending quote character. Both single and double.
     String filePath = args[0].replaceAll("^['\"]+|['\"]+$", "");
     String imageName = args[1];
+    ReadOptions options;
+    try {
+      options = parseReadOptions(args);
+    } catch (NumberFormatException e) {
+      view.print(MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG);
+      return;
+    } catch (IllegalArgumentException e) {
+      view.print(String.format(MessageHelper.LOAD_OPTION_EXCEPTION_MSG, e.getMessage()));
+      return;
+    }
     try {
-      model.loadImageFromFile(filePath, imageName);
+      if (options == null) {
+        model.loadImageFromFile(filePath, imageName);
+      } else {
+        model.loadImageFromFile(filePath, imageName, options);
+      }
       view.success();
     } catch (FileNotFoundException e) {
       view.print(MessageHelper.LOAD_FILE_NOT_FOUND_EXCEPTION_MSG);
@@ -63,16 +108,57 @@ public class Controller implements IController {
     }
   }
 
+  @Override
+  public void info(String[] args) {
+    if (!isValidNumberOfArgs(args, 1)) {
+      return;
+    }
+    // Replace starting and ending quote character. Both single and double.
+    String filePath = args[0].replaceAll("^['\"]+|['\"]+$", "");
+    try {
+      ImageInfo info = model.getImageInfo(filePath);
+      view.print(String.format(MessageHelper.IMAGE_INFO_MSG, filePath, info.getFormat(),
+          info.getWidth(), info.getHeight()));
+      view.success();
+    } catch (FileNotFoundException e) {
+      view.print(MessageHelper.LOAD_FILE_NOT_FOUND_EXCEPTION_MSG);
+    } catch (FileFormatException e) {
+      view.print(MessageHelper.LOAD_FILE_FORMAT_EXCEPTION_MSG);
+    }
+  }
+
   @Override
   public void saveImage(String[] args) {
-    if (!isValidNumberOfArgs(args, 2)) {
+    if (args.length < 2) {
+      view.print("Invalid number of arguments");
       return;
     }
+    // Only options may follow the file path and image name, and each of them has an equals sign.
+    for (int i = 2; i < args.length; i++) {
+      if (!args[i].contains("=")) {
+        view.print("Invalid number of arguments");
+        return;
+      }
+    }
     // Replace starting and ending quote character. Both single and double.
     String filePath = args[0].replaceAll("^['\"]+|['\"]+$", "");
     String imageName = args[1];
+    WriteOptions options;
     try {
-      model.saveImageToFile(imageName, filePath);
+      options = parseWriteOptions(args);
+    } catch (NumberFormatException e) {
+      view.print(MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG);
+      return;
+    } catch (IllegalArgumentException e) {
+      view.print(String.format(MessageHelper.SAVE_OPTION_EXCEPTION_MSG, e.getMessage()));
+      return;
+    }
+    try {
+      if (options == null) {
+        model.saveImageToFile(imageName, filePath);
+      } else {
+        model.saveImageToFile(imageName, filePath, options);
+      }
       view.success();
     } catch (FileNotFoundException e) {
       view.print(String.format(MessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG, filePath));
@@ -83,6 +169,182 @@ public class Controller implements IController {
     }
   }
 
+  @Override
+  public void asyncSave(String[] args) {
+    if (args.length < 1 || (args[0].equals("off") && args.length != 1)) {
+      view.print("Invalid number of arguments");
+      return;
+    }
+    if (!args[0].equals("on") && !args[0].equals("off")) {
+      view.print(String.format(MessageHelper.ASYNC_SAVE_OPTION_EXCEPTION_MSG, args[0]));
+      return;
+    }
+    int threads = 0;
+    int queueSize = 0;
+    if (args[0].equals("on")) {
+      threads = DEFAULT_SAVE_THREADS;
+      queueSize = DEFAULT_SAVE_QUEUE_SIZE;
+      boolean hasThreads = false;
+      boolean hasQueueSize = false;
+      try {
+        for (int i = 1; i < args.length; i++) {
+          String[] option = args[i].split("=", 2);
+          if (option.length == 2 && option[0].equals("threads") && !hasThreads) {
+            threads = Integer.parseInt(option[1]);
+            hasThreads = true;
+          } else if (option.length == 2 && option[0].equals("queue") && !hasQueueSize) {
+            queueSize = Integer.parseInt(option[1]);
+            hasQueueSize = true;
+          } else {
+            view.print(String.format(MessageHelper.ASYNC_SAVE_OPTION_EXCEPTION_MSG, args[i]));
+            return;
+          }
+        }
+      } catch (NumberFormatException e) {
+        view.print(MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG);
+        return;
+      }
+      if (threads < 1 || queueSize < 0) {
+        view.print(String.format(MessageHelper.ASYNC_SAVE_OPTION_EXCEPTION_MSG,
+            String.join(" ", Arrays.copyOfRange(args, 1, args.length))));
+        return;
+      }
+    }
+    model.setBackgroundSaves(threads, queueSize);
+    view.success();
+  }
+
+  @Override
+  public void cacheBudget(String[] args) {
+    if (!isValidNumberOfArgs(args, 1)) {
+      return;
+    }
+    try {
+      long megabytes = Long.parseLong(args[0]);
+      if (megabytes < 0 || megabytes > Long.MAX_VALUE / BYTES_PER_MEGABYTE) {
+        view.print(String.format(MessageHelper.CACHE_BUDGET_EXCEPTION_MSG, args[0]));
+        return;
+      }
+      model.setCacheBudget(megabytes * BYTES_PER_MEGABYTE);
+      view.success();
+    } catch (NumberFormatException e) {
+      view.print(MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG);
+    }
+  }
+
+  @Override
+  public void sync(String[] args) {
+    if (!isValidNumberOfArgs(args, 0)) {
+      return;
+    }
+    if (!reportSaveFailures()) {
+      view.success();
+    }
+  }
+
+  /**
+   * Waits for the images being saved in the background, and reports each save that failed.
+   *
+   * @return True if a save failed.
+   */
+  private boolean reportSaveFailures() {
+    List<SaveFailure> failures = model.syncSaves();
+    for (SaveFailure failure : failures) {
+      if (failure.getFailure() instanceof FileNotFoundException) {
+        view.print(String.format(MessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG,
+            failure.getFilePath()));
+      } else {
+        view.print(String.format(MessageHelper.BACKGROUND_SAVE_EXCEPTION_MSG,
+            failure.getFilePath()));
+      }
+    }
+    return !failures.isEmpty();
+  }
+
+  @Override
+  public void stream(String[] args) {
+    if (args.length < 2) {
+      view.print("Invalid number of arguments");
+      return;
+    }
+    // Replace starting and ending quote character. Both single and double.
+    String sourcePath = args[0].replaceAll("^['\"]+|['\"]+$", "");
+    String destPath = args[1].replaceAll("^['\"]+|['\"]+$", "");
+    List<RowOperation> operations = new ArrayList<>();
+    for (int i = 2; i < args.length; i++) {
+      try {
+        operations.add(parseRowOperation(args[i]));
+      } catch (NumberFormatException e) {
+        view.print(MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG);
+        return;
+      } catch (IllegalArgumentException e) {
+        view.print(String.format(MessageHelper.STREAM_OPERATION_EXCEPTION_MSG, args[i]));
+        return;
+      }
+    }
+    try {
+      model.streamImage(sourcePath, destPath, operations);
+      view.success();
+    } catch (FileNotFoundException e) {
+      view.print(MessageHelper.STREAM_FILE_NOT_FOUND_EXCEPTION_MSG);
+    } catch (FileFormatException e) {
+      view.print(MessageHelper.STREAM_FILE_FORMAT_EXCEPTION_MSG);
+    } catch (IllegalArgumentException e) {
+      view.print(MessageHelper.STREAM_SAME_FILE_EXCEPTION_MSG);
+    }
+  }
+
+  /**
+   * Parses an operation of a stream command. Operations are named as the commands that apply
+   * them, and brighten=n and levels-adjust=b,m,w take their values after an equals sign.
+   *
+   * @param operation the provided operation
+   * @return the operation
+   * @throws NumberFormatException    If a value is not a number.
+   * @throws IllegalArgumentException If the operation cannot be applied a band of rows at a time,
+   *                                  or its values are invalid.
+   */
+  private RowOperation parseRowOperation(String operation)
+      throws NumberFormatException, IllegalArgumentException {
+    String[] option = operation.split("=", 2);
+    if (option.length == 2 && option[0].equals("brighten")) {
+      return RowOperation.brighten(Integer.parseInt(option[1]));
+    }
+    if (option.length == 2 && option[0].equals("levels-adjust")) {
+      String[] levels = option[1].split(",", -1);
+      if (levels.length != 3) {
+        throw new IllegalArgumentException(operation);
+      }
+      return RowOperation.adjustLevels(Integer.parseInt(levels[0]), Integer.parseInt(levels[1]),
+          Integer.parseInt(levels[2]));
+    }
+    switch (operation) {
+      case "red-component":
+        return RowOperation.component(ImageComponent.RED);
+      case "green-component":
+        return RowOperation.component(ImageComponent.GREEN);
+      case "blue-component":
+        return RowOperation.component(ImageComponent.BLUE);
+      case "value-component":
+        return RowOperation.valueComponent();
+      case "luma-component":
+        return RowOperation.lumaComponent();
+      case "intensity-component":
+        return RowOperation.intensityComponent();
+      case "horizontal-flip":
+        return RowOperation.horizontalFlip();
+      case "sepia":
+        return RowOperation.sepia();
+      case "blur":
+        return RowOperation.blur();
+      case "sharpen":
+        return RowOperation.sharpen();
+      default:
+        // Operations such as vertical-flip and color-correct need the whole image.
+        throw new IllegalArgumentException(operation);
+    }
+  }
+
   @Override
   public void redComponent(String[] args) {
     if (!isValidNumberOfArgs(args, 2)) {
@@ -379,6 +641,8 @@ public class Controller implements IController {
     } catch (IOException e) {
       e.printStackTrace();
     }
+    // Saves still running in the background are finished before the program ends.
+    reportSaveFailures();
   }
 
   @Override
@@ -390,22 +654,53 @@ public class Controller implements IController {
     // Replace starting and ending quote character. Both single and double.
     String scriptFilePath = args[0].replaceAll("^['\"]+|['\"]+$", "");
 
+    scriptDepth++;
     try (BufferedReader reader = new BufferedReader(new FileReader(scriptFilePath))) {
-      String command;
-      while ((command = reader.readLine()) != null) {
-        // Remove Whitespaces at start and end. And convert to lowercase.
-        command = command.trim().toLowerCase();
-
-        // Ignore comments (lines starting with #)
-        if (command.startsWith("#") || command.isEmpty()) {
-          continue;
+      // The commands read ahead of the one running, whose loads are prefetched.
+      List<String> upcoming = new ArrayList<>();
+      // The number of commands at the start of upcoming whose loads were considered already.
+      int considered = 0;
+      boolean ended = false;
+      IOException readFailure = null;
+      while (true) {
+        while (!ended && upcoming.size() <= SCRIPT_LOOKAHEAD) {
+          String command;
+          try {
+            command = reader.readLine();
+          } catch (IOException e) {
+            // The commands read before the failure still run, as they did before it was read.
+            readFailure = e;
+            ended = true;
+            break;
+          }
+          if (command == null) {
+            ended = true;
+            break;
+          }
+          // Remove Whitespaces at start and end. And convert to lowercase.
+          command = command.trim().toLowerCase();
+
+          // Ignore comments (lines starting with #)
+          if (command.startsWith("#") || command.isEmpty()) {
+            continue;
+          }
+
+          // Quit the program
+          if (command.equalsIgnoreCase("exit") || command.equalsIgnoreCase("quit")) {
+            ended = true;
+            break;
+          }
+          upcoming.add(command);
         }
-
-        // Quit the program
-        if (command.equalsIgnoreCase("exit") || command.equalsIgnoreCase("quit")) {
+        if (upcoming.isEmpty()) {
           break;
         }
 
+        // Decode the images of the next loads while this command runs.
+        considered = prefetchLoads(upcoming, considered);
+        String command = upcoming.remove(0);
+        considered = Math.max(considered - 1, 0);
+
         // Quit if run script called within a script
         if (command.split("\\s+")[0].equalsIgnoreCase("run")) {
           view.print("Cannot execute a script from inside a script");
@@ -414,9 +709,91 @@ public class Controller implements IController {
         // Process the given command
         executeCommand(command);
       }
+      if (readFailure != null) {
+        throw readFailure;
+      }
     } catch (IOException e) {
       view.print("Error reading or executing the script: " + e.getMessage());
+    } finally {
+      scriptDepth--;
+    }
+    // A script run from inside a script leaves the prefetches and failures to the outer one.
+    if (scriptDepth == 0) {
+      model.clearPrefetchedImages();
+      // Saves still running in the background are finished before the script ends.
+      reportSaveFailures();
+    }
+  }
+
+  /**
+   * Starts decoding the images of the next few load commands after the one about to run. A load
+   * is not prefetched if the script writes to its file before it, since the file would be read
+   * before it is written.
+   *
+   * @param upcoming   the command about to run, followed by the commands read after it
+   * @param considered the number of commands whose loads were considered already
+   * @return the number of commands whose loads have been considered
+   */
+  private int prefetchLoads(List<String> upcoming, int considered) {
+    int loads = 0;
+    int i = 1;
+    for (; i < upcoming.size() && loads < PREFETCH_DEPTH; i++) {
+      String[] tokens = splitCommand(upcoming.get(i));
+      if (!tokens[0].equals("load")) {
+        continue;
+      }
+      loads++;
+      if (i < considered) {
+        continue;
+      }
+      String[] args = getArrayBeginningFrom(tokens, 1);
+      if (args.length < 2 || args.length > 4 || isWrittenBefore(upcoming, i, args[0])) {
+        continue;
+      }
+      try {
+        model.prefetchImage(args[0].replaceAll("^['\"]+|['\"]+$", ""), parseReadOptions(args));
+      } catch (IllegalArgumentException e) {
+        // The load reports its invalid options when it runs.
+      }
     }
+    return Math.max(i, considered);
+  }
+
+  /**
+   * Checks if any command before the given one may write to the given file path. A script run
+   * before it may write to any file.
+   */
+  private boolean isWrittenBefore(List<String> commands, int index, String filePath) {
+    Path path;
+    try {
+      path = Paths.get(filePath.replaceAll("^['\"]+|['\"]+$", "")).toAbsolutePath().normalize();
+    } catch (InvalidPathException e) {
+      return true;
+    }
+    for (int i = 0; i < index; i++) {
+      String[] tokens = splitCommand(commands.get(i));
+      int pathIndex;
+      if (tokens[0].equals("save")) {
+        pathIndex = 1;
+      } else if (tokens[0].equals("stream")) {
+        pathIndex = 2;
+      } else if (tokens[0].equals("run")) {
+        return true;
+      } else {
+        continue;
+      }
+      if (tokens.length > pathIndex) {
+        try {
+          Path writePath = Paths.get(tokens[pathIndex].trim().replaceAll("^['\"]+|['\"]+$", ""));
+          if (writePath.toAbsolutePath().normalize().equals(path)) {
+            return true;
+          }
+        } catch (InvalidPathException e) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   @Override
@@ -439,6 +816,34 @@ public class Controller implements IController {
     }
   }
 
+  @Override
+  public void compressToQuality(String[] args) {
+    if (!isValidNumberOfArgs(args, 4)) {
+      return;
+    }
+    String sourceImage = args[2];
+    String destImage = args[3];
+    try {
+      QualityTarget target = QualityTarget.valueOf(args[0].toUpperCase());
+      double value = Double.parseDouble(args[1]);
+      CompressionResult result = model.compressToQuality(sourceImage, destImage, target, value);
+      view.print(String.format(MessageHelper.COMPRESSION_RESULT_MSG, result.getRatio(),
+          result.getPsnr(), result.getCoefficientCount()));
+      if (!result.isTargetMet()) {
+        view.print(MessageHelper.COMPRESSION_TARGET_NOT_MET_MSG);
+      }
+      view.success();
+    } catch (NumberFormatException e) {
+      view.print(MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG);
+    } catch (ImageNotFoundException e) {
+      view.print(String.format(MessageHelper.IMAGE_NOT_FOUND_EXCEPTION_MSG, sourceImage));
+    } catch (InvalidImageNameException e) {
+      view.print(String.format(MessageHelper.IMAGE_NAME_EXCEPTION_MSG, destImage));
+    } catch (IllegalArgumentException e) {
+      view.print("Error: Provided quality target is invalid");
+    }
+  }
+
   @Override
   public void histogram(String[] args) {
     if (!isValidNumberOfArgs(args, 2)) {
@@ -573,19 +978,16 @@ public class Controller implements IController {
   private void executeCommand(String command) {
     // At this point program has at least 1 token.
 
-    // If command has an even number of quotes, split on whitespace while ignoring quotes.
-    // Otherwise, split on only whitespaces.
-    String[] tokens =
-        isEvenNumberOfQuotes(command) ? command.split("\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)")
-            : command.split("\\s+");
+    String[] tokens = splitCommand(command);
+
+    String operation = tokens[0].trim().toLowerCase();
 
-    // Need at least 2 tokens
-    if (tokens.length < 2) {
+    // Need at least 2 tokens, apart from the commands that take no arguments
+    if (tokens.length < 2 && !operation.equals("sync")) {
       view.print("Error: Please enter correct number of arguments. At least 2 required.");
       return;
     }
 
-    String operation = tokens[0].trim().toLowerCase();
     // Remove operation from tokens
     tokens = getArrayBeginningFrom(tokens, 1);
 
@@ -598,6 +1000,14 @@ public class Controller implements IController {
     }
   }
 
+  private String[] splitCommand(String command) {
+    // If command has an even number of quotes, split on whitespace while ignoring quotes.
+    // Otherwise, split on only whitespaces.
+    return isEvenNumberOfQuotes(command)
+        ? command.split("\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)")
+        : command.split("\\s+");
+  }
+
   // Returns a new array beginning from given index.
   // Trims the string elements of the array for whitespaces.
   private String[] getArrayBeginningFrom(String[] array, int index) {
@@ -633,6 +1043,94 @@ public class Controller implements IController {
     return true;
   }
 
+  /**
+   * Parses the options that follow the file path and image name of a load command. Options are
+   * given as subsample=n and region=x,y,width,height.
+   *
+   * @param args the provided args
+   * @return the options, or null if none were given
+   * @throws NumberFormatException    If an option value is not a number
+   * @throws IllegalArgumentException If an option is unknown, repeated or has invalid values
+   */
+  private ReadOptions parseReadOptions(String[] args)
+      throws NumberFormatException, IllegalArgumentException {
+    if (args.length == 2) {
+      return null;
+    }
+    int subsampling = 1;
+    int[] region = null;
+    boolean hasSubsampling = false;
+    for (int i = 2; i < args.length; i++) {
+      String[] option = args[i].split("=", 2);
+      if (option.length == 2 && option[0].equals("subsample") && !hasSubsampling) {
+        subsampling = Integer.parseInt(option[1]);
+        hasSubsampling = true;
+      } else if (option.length == 2 && option[0].equals("region") && region == null) {
+        String[] values = option[1].split(",", -1);
+        if (values.length != 4) {
+          throw new IllegalArgumentException(args[i]);
+        }
+        region = new int[4];
+        for (int k = 0; k < 4; k++) {
+          region[k] = Integer.parseInt(values[k]);
+        }
+      } else {
+        throw new IllegalArgumentException(args[i]);
+      }
+    }
+    try {
+      return region == null ? new ReadOptions(subsampling)
+          : new ReadOptions(subsampling, region[0], region[1], region[2], region[3]);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+    }
+  }
+
+  /**
+   * Parses the options that follow the file path and image name of a save command. Options are
+   * given as quality=n, progressive=true|false, compression=n and filter=name.
+   *
+   * @param args the provided args
+   * @return the options, or null if none were given
+   * @throws NumberFormatException    If an option value is not a number
+   * @throws IllegalArgumentException If an option is unknown, repeated or has invalid values
+   */
+  private WriteOptions parseWriteOptions(String[] args)
+      throws NumberFormatException, IllegalArgumentException {
+    if (args.length == 2) {
+      return null;
+    }
+    Map<String, String> values = new HashMap<>();
+    for (int i = 2; i < args.length; i++) {
+      String[] option = args[i].split("=", 2);
+      if (!Arrays.asList("quality", "progressive", "compression", "filter", "binary")
+          .contains(option[0])
+          || values.putIfAbsent(option[0], option[1]) != null) {
+        throw new IllegalArgumentException(args[i]);
+      }
+    }
+    String progressive = values.getOrDefault("progressive", "false");
+    if (!progressive.equals("true") && !progressive.equals("false")) {
+      throw new IllegalArgumentException("progressive=" + progressive);
+    }
+    String binary = values.getOrDefault("binary", "false");
+    if (!binary.equals("true") && !binary.equals("false")) {
+      throw new IllegalArgumentException("binary=" + binary);
+    }
+    int quality = values.containsKey("quality") ? Integer.parseInt(values.get("quality"))
+        : WriteOptions.DEFAULT_QUALITY;
+    int compression = values.containsKey("compression")
+        ? Integer.parseInt(values.get("compression")) : WriteOptions.DEFAULT_COMPRESSION;
+    try {
+      return new WriteOptions(quality, Boolean.parseBoolean(progressive), compression,
+          values.getOrDefault("filter", WriteOptions.DEFAULT_FILTER), Boolean.parseBoolean(binary));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+    }
+  }
+
   private boolean isEvenNumberOfQuotes(String input) {
     int quoteCount = 0;
     for (char c : input.toCharArray()) {
@@ -648,6 +1146,11 @@ public class Controller implements IController {
     knownCommands = new HashMap<String, Consumer<String[]>>();
     knownCommands.put("load", s -> loadImage(s));
     knownCommands.put("save", s -> saveImage(s));
+    knownCommands.put("info", s -> info(s));
+    knownCommands.put("async-save", s -> asyncSave(s));
+    knownCommands.put("sync", s -> sync(s));
+    knownCommands.put("cache-budget", s -> cacheBudget(s));
+    knownCommands.put("stream", s -> stream(s));
     knownCommands.put("red-component", s -> redComponent(s));
     knownCommands.put("green-component", s -> greenComponent(s));
     knownCommands.put("blue-component", s -> blueComponent(s));
@@ -667,6 +1170,7 @@ public class Controller implements IController {
     knownCommands.put("color-correct", s -> colorCorrect(s));
     knownCommands.put("levels-adjust", s -> adjustLevels(s));
     knownCommands.put("compress", s -> compress(s));
+    knownCommands.put("compress-to-quality", s -> compressToQuality(s));
   }
 
   /**
@@ -686,9 +1190,33 @@ public class Controller implements IController {
         "Error: Cannot load file. Please check path";
     public static final String LOAD_FILE_FORMAT_EXCEPTION_MSG =
         "Error: Cannot load file. Invalid file";
+    public static final String LOAD_OPTION_EXCEPTION_MSG =
+        "Error: Invalid load option: %s";
+    public static final String SAVE_OPTION_EXCEPTION_MSG =
+        "Error: Invalid save option: %s";
+    public static final String ASYNC_SAVE_OPTION_EXCEPTION_MSG =
+        "Error: Invalid async-save option: %s";
+    public static final String CACHE_BUDGET_EXCEPTION_MSG =
+        "Error: Invalid cache budget: %s";
+    public static final String BACKGROUND_SAVE_EXCEPTION_MSG =
+        "Error: Cannot save file. The image could not be encoded: %s";
+    public static final String STREAM_OPERATION_EXCEPTION_MSG =
+        "Error: Cannot stream operation: %s";
+    public static final String STREAM_FILE_NOT_FOUND_EXCEPTION_MSG =
+        "Error: Cannot stream image. Please check provided paths";
+    public static final String STREAM_FILE_FORMAT_EXCEPTION_MSG =
+        "Error: Cannot stream image. Invalid file or unsupported file extension";
+    public static final String STREAM_SAME_FILE_EXCEPTION_MSG =
+        "Error: Cannot stream image onto its own file";
     public static final String SAVE_FILE_NOT_FOUND_EXCEPTION_MSG =
         "Error: Cannot save file. Please check provided path: %s";
     public static final String SAVE_FILE_FORMAT_EXCEPTION_MSG =
         "Error: Cannot save file. Unsupported file extension";
+    public static final String IMAGE_INFO_MSG =
+        "%s: %s image, %d x %d";
+    public static final String COMPRESSION_RESULT_MSG =
+        "Compressed with ratio %d: PSNR %.2f dB, %d coefficients kept";
+    public static final String COMPRESSION_TARGET_NOT_MET_MSG =
+        "Warning: No compression ratio meets the quality target";
   }
 }
@@ -3,6 +3,7 @@ package imeprogram.controller;
 import imeprogram.exceptions.FileFormatException;
 import imeprogram.exceptions.ImageNotFoundException;
 import imeprogram.exceptions.InvalidImageNameException;
+import imeprogram.fileparser.WriteOptions;
 import imeprogram.model.IImage;
 import imeprogram.model.IModel;
 import imeprogram.model.IReadOnlyImage;
@@ -68,6 +69,20 @@ public class GUIController implements IFeatures {
     }
   }
 
+  @Override
+  public void saveImage(String imageName, String filePath, WriteOptions options) {
+    try {
+      model.saveImageToFile(imageName, filePath, options);
+    } catch (FileNotFoundException e) {
+      view.displayError(
+          String.format(GUIMessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG, filePath));
+    } catch (ImageNotFoundException e) {
+      view.displayError(String.format(GUIMessageHelper.IMAGE_NOT_FOUND_EXCEPTION_MSG, ""));
+    } catch (FileFormatException e) {
+      view.displayError(GUIMessageHelper.SAVE_FILE_FORMAT_EXCEPTION_MSG);
+    }
+  }
+
   @Override
   public void redComponent(String sourceImage) {
     String previewImage = getPreviewReference(sourceImage);
@@ -156,4 +156,48 @@ public interface IController {
    * @param args The arguments for compressing an image.
    */
   void compress(String[] args);
+
+  /**
+   * Applies compression to the given image, with the ratio that meets a quality target.
+   *
+   * @param args The arguments for compressing an image to a quality target.
+   */
+  void compressToQuality(String[] args);
+
+  /**
+   * Shows the format and dimensions of an image file, without loading it.
+   *
+   * @param args The arguments for showing the image file information.
+   */
+  void info(String[] args);
+
+  /**
+   * Turns saving images in the background on or off. Failed background saves are reported by
+   * sync, or when the script ends.
+   *
+   * @param args The arguments for turning background saves on or off.
+   */
+  void asyncSave(String[] args);
+
+  /**
+   * Sets the memory that decoded images kept for loads of unchanged files may take up.
+   *
+   * @param args The arguments for setting the cache budget, which is a number of megabytes.
+   */
+  void cacheBudget(String[] args);
+
+  /**
+   * Waits for the images being saved in the background and reports the saves that failed.
+   *
+   * @param args The arguments for waiting for background saves, of which there are none.
+   */
+  void sync(String[] args);
+
+  /**
+   * Reads an image file a band of rows at a time, applies the given operations to each band and
+   * writes the result to another file, without holding the whole image.
+   *
+   * @param args The arguments for streaming an image.
+   */
+  void stream(String[] args);
 }
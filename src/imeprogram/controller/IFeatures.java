@@ -1,5 +1,7 @@
 package imeprogram.controller;
 
+import imeprogram.fileparser.WriteOptions;
+
 /**
  * This interface represents the features exposed by our IME program to a view.
  */
@@ -21,6 +23,16 @@ public interface IFeatures {
    */
   void saveImage(String imageName, String filePath);
 
+  /**
+   * Saves the image with the given name to the specified file path, with the given encoder
+   * options.
+   *
+   * @param imageName The name of the image to be saved.
+   * @param filePath  The path where the image file will be saved.
+   * @param options   The encoder options, of which only those of the file format are used.
+   */
+  void saveImage(String imageName, String filePath, WriteOptions options);
+
   /**
    * Extracts the red component from the source image and saves it to the destination image.
    *
@@ -3,60 +3,217 @@ package imeprogram.fileparser;
 import imeprogram.exceptions.FileFormatException;
 import imeprogram.model.IImage;
 import imeprogram.model.Image;
-import java.awt.Color;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
 /**
- * Helper for file operations on a PPM format image file.
+ * Helper for file operations on a PNG or JPG format image file. Loading reads any format the
+ * ImageIO readers can identify from the content of the file, while saving uses the file extension.
  */
 class BinaryImageIO implements IImageFileIO {
 
   @Override
   public IImage loadFromFile(String filePath) throws IOException, FileFormatException {
-    fileFormatCheck(filePath);
-
     BufferedImage bufferedImage = ImageIO.read(new File(filePath));
+    if (bufferedImage == null) {
+      throw new IllegalArgumentException("Provided image file is invalid");
+    }
+    return toImage(bufferedImage);
+  }
+
+  @Override
+  public IImage loadFromFile(String filePath, ReadOptions options)
+      throws IOException, FileFormatException {
+    // The reader skips the pixels outside the region and between the subsampled ones, so only the
+    // requested pixels are decoded into memory.
+    try (ImageInputStream input = openInput(filePath)) {
+      ImageReader reader = getReader(input);
+      try {
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = options.getSubsampling();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        if (options.hasRegion()) {
+          int width = reader.getWidth(0);
+          int height = reader.getHeight(0);
+          if (options.getRegionX() >= width || options.getRegionY() >= height) {
+            throw new IllegalArgumentException("Region lies outside the image.");
+          }
+          param.setSourceRegion(new Rectangle(options.getRegionX(), options.getRegionY(),
+              Math.min(options.getRegionWidth(), width - options.getRegionX()),
+              Math.min(options.getRegionHeight(), height - options.getRegionY())));
+        }
+        return toImage(reader.read(0, param));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  @Override
+  public ImageInfo probe(String filePath) throws IOException, FileFormatException {
+    // The reader only parses as much of the file as it needs, which for the dimensions is the
+    // header.
+    try (ImageInputStream input = openInput(filePath)) {
+      ImageReader reader = getReader(input);
+      try {
+        return new ImageInfo(reader.getFormatName().toLowerCase(), reader.getWidth(0),
+            reader.getHeight(0));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static ImageInputStream openInput(String filePath) throws IOException {
+    File file = new File(filePath);
+    if (!file.canRead()) {
+      throw new IIOException("Can't read input file!");
+    }
+    return ImageIO.createImageInputStream(file);
+  }
+
+  /**
+   * Returns a reader for the image in the given stream. The caller must dispose of it.
+   */
+  private static ImageReader getReader(ImageInputStream input) {
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+    if (!readers.hasNext()) {
+      throw new IllegalArgumentException("Provided image file is invalid");
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(input, true, true);
+    return reader;
+  }
+
+  private IImage toImage(BufferedImage bufferedImage) {
     int width = bufferedImage.getWidth();
     int height = bufferedImage.getHeight();
     int[][][] rgbValues = new int[height][width][3];
+    Raster raster = bufferedImage.getRaster();
 
-    for (int x = 0; x < height; x++) {
-      for (int y = 0; y < width; y++) {
-        int pixel = bufferedImage.getRGB(y, x);
-        rgbValues[x][y][0] = (pixel >> 16) & 0xFF; // Red
-        rgbValues[x][y][1] = (pixel >> 8) & 0xFF;  // Green
-        rgbValues[x][y][2] = pixel & 0xFF;         // Blue
+    // Pixels are copied a scanline at a time. The common layouts are read straight from the
+    // raster, and any other layout is converted to RGB by the color model.
+    int type = bufferedImage.getType();
+    if (type == BufferedImage.TYPE_3BYTE_BGR) {
+      // The data elements of a pixel are returned in band order, which is red, green, blue.
+      byte[] row = new byte[width * 3];
+      for (int x = 0; x < height; x++) {
+        raster.getDataElements(0, x, width, 1, row);
+        for (int y = 0; y < width; y++) {
+          rgbValues[x][y][0] = row[3 * y] & 0xFF;     // Red
+          rgbValues[x][y][1] = row[3 * y + 1] & 0xFF; // Green
+          rgbValues[x][y][2] = row[3 * y + 2] & 0xFF; // Blue
+        }
+      }
+    } else {
+      int[] row = new int[width];
+      for (int x = 0; x < height; x++) {
+        if (type == BufferedImage.TYPE_INT_RGB) {
+          raster.getDataElements(0, x, width, 1, row);
+        } else {
+          bufferedImage.getRGB(0, x, width, 1, row, 0, width);
+        }
+        for (int y = 0; y < width; y++) {
+          int pixel = row[y];
+          rgbValues[x][y][0] = (pixel >> 16) & 0xFF; // Red
+          rgbValues[x][y][1] = (pixel >> 8) & 0xFF;  // Green
+          rgbValues[x][y][2] = pixel & 0xFF;         // Blue
+        }
       }
     }
     return new Image(rgbValues, width, height);
   }
 
+  @Override
+  public IImageRowReader openRowReader(String filePath) throws IOException, FileFormatException {
+    // PNG files in the common layouts are inflated a row at a time, and anything else is loaded
+    // whole.
+    IImageRowReader reader = PngRowReader.open(filePath);
+    return reader != null ? reader : IImageFileIO.super.openRowReader(filePath);
+  }
+
+  @Override
+  public IImageRowWriter openRowWriter(String filePath, int width, int height,
+      WriteOptions options) throws IOException, FileFormatException {
+    fileFormatCheck(filePath);
+    if (!getExtensionFromPath(filePath).equalsIgnoreCase("png")) {
+      return IImageFileIO.super.openRowWriter(filePath, width, height, options);
+    }
+    WriteOptions pngOptions = options == null ? new WriteOptions() : options;
+    return new PngRowWriter(filePath, width, height, pngOptions.getCompression(),
+        pngOptions.getPngFilter());
+  }
+
   @Override
   public void saveToFile(String filePath, IImage imageToSave)
       throws IOException, FileFormatException {
+    saveToFile(filePath, imageToSave, new WriteOptions());
+  }
+
+  @Override
+  public void saveToFile(String filePath, IImage imageToSave, WriteOptions options)
+      throws IOException, FileFormatException {
     String extension = getExtensionFromPath(filePath);
     fileFormatCheck(filePath);
 
+    if (extension.equalsIgnoreCase("png")) {
+      ParallelPngEncoder.encode(filePath, imageToSave, options.getCompression(),
+          options.getPngFilter());
+      return;
+    }
+
     int width = imageToSave.getWidth();
     int height = imageToSave.getHeight();
-    int[][][] rgbValues = imageToSave.getRgbValues();
 
-    // Convert the 3D array of RGB values to a BufferedImage
+    // Pack the pixels straight into the int array that backs the BufferedImage.
     BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    int[] row = new int[width * 3];
     for (int y = 0; y < height; y++) {
+      imageToSave.getRowValues(y, row);
+      int offset = y * width;
       for (int x = 0; x < width; x++) {
-        int r = rgbValues[y][x][0];
-        int g = rgbValues[y][x][1];
-        int b = rgbValues[y][x][2];
-        Color color = new Color(r, g, b);
-        image.setRGB(x, y, color.getRGB());
+        data[offset + x] = (row[3 * x] << 16) | (row[3 * x + 1] << 8) | row[3 * x + 2];
       }
     }
 
-    ImageIO.write(image, extension.toLowerCase(), new File(filePath));
+    // The remaining formats are JPEG, whose writer takes the quality and progressive mode.
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    try (ImageOutputStream output = openOutput(filePath)) {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(options.getQuality() / 100f);
+      param.setProgressiveMode(options.isProgressive() ? ImageWriteParam.MODE_DEFAULT
+          : ImageWriteParam.MODE_DISABLED);
+      writer.setOutput(output);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  private static ImageOutputStream openOutput(String filePath) throws IOException {
+    File file = new File(filePath);
+    file.delete();
+    ImageOutputStream output = ImageIO.createImageOutputStream(file);
+    if (output == null) {
+      throw new IIOException("Can't create an ImageOutputStream!");
+    }
+    return output;
   }
 
   private String getExtensionFromPath(String filePath) {
@@ -0,0 +1,216 @@
+package imeprogram.fileparser;
+
+import imeprogram.exceptions.FileFormatException;
+import imeprogram.model.IImage;
+import imeprogram.model.SparseHaarCoefficients;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Helper for file operations on a haar image file. The file stores an image in the wavelet domain:
+ * only the non-zero haar coefficients of each channel are written, so a compressed image takes
+ * space in proportion to the coefficients its compression kept. Loading reverts the transform.
+ *
+ * <p>The file starts with a magic number, the width and height of the image, and the number of
+ * channels. The rest is deflated, and holds for each channel the number of coefficients, the gaps
+ * between their positions as variable length integers, and then their values as doubles, so an
+ * image saved without compression loads back unchanged. Files of the first version, which held the
+ * values as floats, can still be loaded.
+ */
+class HaarImageIO implements IImageFileIO {
+
+  static final byte[] MAGIC = {'I', 'M', 'E', 'H', 'A', 'A', 'R', 2};
+  static final byte[] FLOAT_MAGIC = {'I', 'M', 'E', 'H', 'A', 'A', 'R', 1};
+  private static final int NUM_CHANNELS = 3;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int HEADER_SIZE = MAGIC.length + 3 * Integer.BYTES;
+  // Largest number of coefficients a channel may have once both sides are padded to a power of
+  // two. Loading holds three channels of them as doubles.
+  private static final long MAX_PADDED_PIXELS = 1L << 28;
+
+  @Override
+  public IImage loadFromFile(String filePath) throws IOException, IllegalArgumentException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(filePath), BUFFER_SIZE))) {
+      boolean floatValues = readMagic(in);
+      ImageInfo info = readHeader(in);
+      int width = info.getWidth();
+      int height = info.getHeight();
+      int numChannels = NUM_CHANNELS;
+
+      DataInputStream data = new DataInputStream(
+          new BufferedInputStream(new InflaterInputStream(in), BUFFER_SIZE));
+      int[][] positions = new int[numChannels][];
+      double[][] values = new double[numChannels][];
+      long paddedPixels = getPaddedPixels(width, height);
+      for (int v = 0; v < numChannels; v++) {
+        int count = readVarInt(data);
+        if (count > paddedPixels) {
+          throw new IllegalArgumentException("Provided haar file is invalid");
+        }
+        positions[v] = new int[count];
+        int position = -1;
+        for (int k = 0; k < count; k++) {
+          position += readVarInt(data) + 1;
+          positions[v][k] = position;
+        }
+        values[v] = new double[count];
+        for (int k = 0; k < count; k++) {
+          values[v][k] = floatValues ? data.readFloat() : data.readDouble();
+        }
+      }
+      return new SparseHaarCoefficients(height, width, positions, values).toImage();
+    } catch (EOFException | ZipException e) {
+      throw new IllegalArgumentException("Provided haar file is invalid");
+    }
+  }
+
+  @Override
+  public ImageInfo probe(String filePath) throws IOException, IllegalArgumentException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(filePath), HEADER_SIZE))) {
+      readMagic(in);
+      return readHeader(in);
+    } catch (EOFException e) {
+      throw new IllegalArgumentException("Provided haar file is invalid");
+    }
+  }
+
+  /**
+   * Reads and validates the magic number at the start of the file.
+   *
+   * @return true if the file holds its values as floats.
+   */
+  private static boolean readMagic(DataInputStream in)
+      throws IOException, IllegalArgumentException {
+    byte[] magic = new byte[MAGIC.length];
+    in.readFully(magic);
+    if (Arrays.equals(magic, FLOAT_MAGIC)) {
+      return true;
+    }
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IllegalArgumentException("Provided haar file is invalid");
+    }
+    return false;
+  }
+
+  /**
+   * Reads and validates the rest of the uncompressed header of the file, after the magic number.
+   *
+   * @return the dimensions of the image.
+   */
+  private static ImageInfo readHeader(DataInputStream in)
+      throws IOException, IllegalArgumentException {
+    int width = in.readInt();
+    int height = in.readInt();
+    int numChannels = in.readInt();
+    if (width <= 0 || height <= 0
+        || getPaddedPixels(width, height) > MAX_PADDED_PIXELS
+        || numChannels != NUM_CHANNELS) {
+      throw new IllegalArgumentException("Provided haar file is invalid");
+    }
+    return new ImageInfo("haar", width, height);
+  }
+
+  /**
+   * Returns the number of coefficients in a channel of an image of the given size, whose sides are
+   * padded to the next power of two.
+   */
+  private static long getPaddedPixels(int width, int height) {
+    return Long.highestOneBit(2L * width - 1) * Long.highestOneBit(2L * height - 1);
+  }
+
+  @Override
+  public void saveToFile(String filePath, IImage imageToSave) throws IOException {
+    fileFormatCheck(filePath);
+    if (getPaddedPixels(imageToSave.getWidth(), imageToSave.getHeight()) > MAX_PADDED_PIXELS) {
+      // The file could not be loaded.
+      throw new IllegalArgumentException("Image is too large for a haar file.");
+    }
+
+    SparseHaarCoefficients coefficients = SparseHaarCoefficients.of(imageToSave);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE))) {
+      out.write(MAGIC);
+      out.writeInt(coefficients.getWidth());
+      out.writeInt(coefficients.getHeight());
+      out.writeInt(coefficients.getNumChannels());
+
+      DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+      DataOutputStream data = new DataOutputStream(
+          new BufferedOutputStream(deflater, BUFFER_SIZE));
+      for (int v = 0; v < coefficients.getNumChannels(); v++) {
+        int[] positions = coefficients.getPositions(v);
+        writeVarInt(data, positions.length);
+        // Positions are ascending, so the gaps between them are small and compress well.
+        int previous = -1;
+        for (int position : positions) {
+          writeVarInt(data, position - previous - 1);
+          previous = position;
+        }
+        for (double value : coefficients.getValues(v)) {
+          data.writeDouble(value);
+        }
+      }
+      data.flush();
+      deflater.finish();
+    }
+  }
+
+  private static void writeVarInt(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private static int readVarInt(InputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) {
+          break;
+        }
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Provided haar file is invalid");
+  }
+
+  private String getExtensionFromPath(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = "";
+    int i = filePath.lastIndexOf('.');
+    if (i > 0) {
+      extension = filePath.substring(i + 1);
+    }
+    return extension;
+  }
+
+  private void fileFormatCheck(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = getExtensionFromPath(filePath).toLowerCase();
+
+    if (!extension.equals("haar")) {
+      throw new FileFormatException("Unsupported file extension: " + extension);
+    }
+  }
+}
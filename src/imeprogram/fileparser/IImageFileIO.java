@@ -17,6 +17,40 @@ public interface IImageFileIO {
    */
   IImage loadFromFile(String filePath) throws IOException, FileFormatException;
 
+  /**
+   * Loads a subsampled region of an image from a file. By default the whole image is decoded and
+   * then cropped, so file formats that can decode only a part of a file should override this.
+   *
+   * @param filePath The path to the image file.
+   * @param options  The region and subsampling to be loaded.
+   * @return An IImage object representing the loaded part of the image.
+   */
+  default IImage loadFromFile(String filePath, ReadOptions options)
+      throws IOException, FileFormatException {
+    return options.apply(loadFromFile(filePath));
+  }
+
+  /**
+   * Reads the format and dimensions of an image from the header of its file, without decoding its
+   * pixels.
+   *
+   * @param filePath The path to the image file.
+   * @return The format and dimensions of the image.
+   */
+  ImageInfo probe(String filePath) throws IOException, FileFormatException;
+
+  /**
+   * Opens a file to read its rows from top to bottom. By default the whole image is loaded and
+   * its rows are read from memory, so file formats that can decode a row at a time should
+   * override this.
+   *
+   * @param filePath The path to the image file.
+   * @return A reader of the rows of the image, which the caller must close.
+   */
+  default IImageRowReader openRowReader(String filePath) throws IOException, FileFormatException {
+    return new WholeImageRowReader(loadFromFile(filePath));
+  }
+
   /**
    * Saves an image to a file.
    *
@@ -24,4 +58,34 @@ public interface IImageFileIO {
    * @param imageToSave The IImage object to be saved.
    */
   void saveToFile(String filePath, IImage imageToSave) throws IOException, FileFormatException;
+
+  /**
+   * Saves an image to a file with the given encoder options. By default the options are ignored,
+   * so file formats that have options should override this.
+   *
+   * @param filePath    The path where the image will be saved.
+   * @param imageToSave The IImage object to be saved.
+   * @param options     The encoder options, of which only those of this format are used.
+   */
+  default void saveToFile(String filePath, IImage imageToSave, WriteOptions options)
+      throws IOException, FileFormatException {
+    saveToFile(filePath, imageToSave);
+  }
+
+  /**
+   * Creates a file to write the rows of an image from top to bottom. By default the rows are
+   * collected in memory and the whole image is saved when the writer is closed, so file formats
+   * that can encode a row at a time should override this.
+   *
+   * @param filePath The path where the image will be saved.
+   * @param width    The width of the image.
+   * @param height   The height of the image.
+   * @param options  The encoder options, of which only those of this format are used, or null for
+   *                 the defaults of the format.
+   * @return A writer of the rows of the image, which the caller must close to finish the file.
+   */
+  default IImageRowWriter openRowWriter(String filePath, int width, int height,
+      WriteOptions options) throws IOException, FileFormatException {
+    return new WholeImageRowWriter(this, filePath, width, height, options);
+  }
 }
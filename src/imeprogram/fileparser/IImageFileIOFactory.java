@@ -6,11 +6,23 @@ package imeprogram.fileparser;
 public interface IImageFileIOFactory {
 
   /**
-   * Creates an IImageFileIO object for a given file extension.
+   * Creates an IImageFileIO object for a given file extension. This decides the format an image is
+   * saved in.
    *
    * @param filePath The path of the image file, used to get the extension.
    * @return An IImageFileIO object for handling file I/O operations on images.
    * @throws IllegalArgumentException If the provided filePath is invalid or unsupported.
    */
   IImageFileIO getImageParser(String filePath) throws IllegalArgumentException;
+
+  /**
+   * Gets an IImageFileIO object that can read the given file, identified by the first bytes of
+   * the file rather than its extension. If the file cannot be read, or its first bytes do not
+   * match any known format, the extension decides as in {@link #getImageParser(String)}.
+   *
+   * @param filePath The path of the image file to be read.
+   * @return An IImageFileIO object for reading the file.
+   * @throws IllegalArgumentException If the format of the file cannot be identified.
+   */
+  IImageFileIO getImageReader(String filePath) throws IllegalArgumentException;
 }
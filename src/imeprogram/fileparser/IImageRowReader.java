@@ -0,0 +1,46 @@
+package imeprogram.fileparser;
+
+import java.io.IOException;
+
+/**
+ * Reads the rows of an image file from top to bottom, a batch of rows at a time, so that an image
+ * can be processed while only a band of its rows is in memory. Each row is given as the values of
+ * its pixels in the layout of {@link imeprogram.model.IReadOnlyImage#getRowValues(int, int[])}:
+ * the red, green and blue values of each pixel together, 3 * width values in all.
+ */
+public interface IImageRowReader extends AutoCloseable {
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width of the image.
+   */
+  int getWidth();
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height of the image.
+   */
+  int getHeight();
+
+  /**
+   * Reads the next rows of the image into the given arrays, one row into each array, until the
+   * arrays are filled or the image ends.
+   *
+   * @param rows the arrays to be filled, each of which must hold at least 3 * width values.
+   * @return the number of rows read, which is 0 once every row was read.
+   * @throws IOException              If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid image, or an array is too short
+   *                                  to hold a row.
+   */
+  int readRows(int[][] rows) throws IOException, IllegalArgumentException;
+
+  /**
+   * Closes the file.
+   *
+   * @throws IOException If the file cannot be closed.
+   */
+  @Override
+  void close() throws IOException;
+}
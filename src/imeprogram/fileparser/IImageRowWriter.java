@@ -0,0 +1,46 @@
+package imeprogram.fileparser;
+
+import java.io.IOException;
+
+/**
+ * Writes the rows of an image file from top to bottom, a batch of rows at a time, so that an image
+ * can be saved while it is being produced, without ever holding all of it. Each row is given in the
+ * layout read by {@link IImageRowReader}. The file is complete once every row was written and the
+ * writer is closed.
+ */
+public interface IImageRowWriter extends AutoCloseable {
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width of the image.
+   */
+  int getWidth();
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height of the image.
+   */
+  int getHeight();
+
+  /**
+   * Writes the next rows of the image, taken from the first arrays given.
+   *
+   * @param rows  the rows to be written, each of which must hold at least 3 * width values.
+   * @param count the number of rows to be written.
+   * @throws IOException              If the file cannot be written.
+   * @throws IllegalArgumentException If the rows go past the bottom of the image, or an array is
+   *                                  too short to hold a row.
+   */
+  void writeRows(int[][] rows, int count) throws IOException, IllegalArgumentException;
+
+  /**
+   * Finishes and closes the file.
+   *
+   * @throws IOException           If the file cannot be written.
+   * @throws IllegalStateException If not every row was written.
+   */
+  @Override
+  void close() throws IOException, IllegalStateException;
+}
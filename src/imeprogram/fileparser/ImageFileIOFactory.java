@@ -1,26 +1,112 @@
 package imeprogram.fileparser;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
 /**
  * An implementation for the ImageFileIOFactory used to create an IImageFileIO object.
+ *
+ * <p>Formats are kept in a registry. Each format has the file extensions it is saved with, the
+ * signatures its files start with, and the IImageFileIO object that handles it. That object is
+ * created on first use and then shared, so a format is only set up if a file of it is used. More
+ * formats can be registered, and a format registered later takes precedence over an earlier one
+ * with the same extension or signature.
  */
 public class ImageFileIOFactory implements IImageFileIOFactory {
 
+  private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A,
+      '\n'};
+  private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+  private final List<Format> formats = new CopyOnWriteArrayList<>();
+  private final Map<String, Format> formatsByExtension = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiate an ImageFileIOFactory object with the built-in formats registered.
+   */
+  public ImageFileIOFactory() {
+    // A lambda rather than a constructor reference, which would load BinaryImageIO, and the AWT
+    // and ImageIO classes it uses, as soon as the factory is created, even for PPM files only.
+    register(() -> new BinaryImageIO(), new byte[][]{PNG_SIGNATURE, JPEG_SIGNATURE},
+        "jpg", "jpeg", "png");
+    register(PPMImageIO::new, new byte[][]{ascii("P2"), ascii("P3"), ascii("P5"), ascii("P6")},
+        "ppm");
+    register(() -> new PPMImageIO("pnm", '6'), new byte[0][], "pnm");
+    register(() -> new PPMImageIO("pgm", '5'), new byte[0][], "pgm");
+    register(HaarImageIO::new, new byte[][]{HaarImageIO.MAGIC, HaarImageIO.FLOAT_MAGIC},
+        "haar");
+    register(RawImageIO::new, new byte[][]{RawImageIO.MAGIC}, "imeraw");
+    register(TiledImageIO::new, new byte[][]{TiledImageIO.MAGIC}, "imetile");
+    register(QoiImageIO::new, new byte[][]{QoiImageIO.MAGIC}, "qoi");
+  }
+
+  /**
+   * Registers a format. The IImageFileIO object is created on first use and shared by all the
+   * callers from then on, so it must be safe to use from several threads at once.
+   *
+   * @param imageIO    creates the IImageFileIO object that handles the format.
+   * @param signatures the bytes that files of the format start with. A format without signatures
+   *                   is only found by its extensions.
+   * @param extensions the file extensions of the format, in lower case.
+   * @throws IllegalArgumentException If a signature is empty.
+   */
+  public void register(Supplier<? extends IImageFileIO> imageIO, byte[][] signatures,
+      String... extensions) throws IllegalArgumentException {
+    for (byte[] signature : signatures) {
+      if (signature.length == 0) {
+        throw new IllegalArgumentException("Signatures cannot be empty.");
+      }
+    }
+    Format format = new Format(imageIO, signatures);
+    formats.add(format);
+    for (String extension : extensions) {
+      formatsByExtension.put(extension, format);
+    }
+  }
+
   @Override
   public IImageFileIO getImageParser(String filePath) throws IllegalArgumentException {
     String extension = getExtensionFromPath(filePath);
-    if (extension != null) {
-      switch (extension.toLowerCase()) {
-        case "jpg":
-        case "jpeg":
-        case "png":
-          return new BinaryImageIO();
-        case "ppm":
-          return new PPMImageIO();
-        default:
-          throw new IllegalArgumentException("Unsupported file format: " + filePath);
+    Format format = formatsByExtension.get(extension.toLowerCase());
+    if (format == null) {
+      throw new IllegalArgumentException("Unsupported file format: " + filePath);
+    }
+    return format.getImageIO();
+  }
+
+  @Override
+  public IImageFileIO getImageReader(String filePath) throws IllegalArgumentException {
+    int maxLength = 0;
+    for (Format format : formats) {
+      maxLength = Math.max(maxLength, format.getMaxSignatureLength());
+    }
+    byte[] head = new byte[maxLength];
+    int length;
+    try (InputStream in = new FileInputStream(filePath)) {
+      length = in.readNBytes(head, 0, maxLength);
+    } catch (IOException e) {
+      // Leave the error to the IImageFileIO object for the extension.
+      return getImageParser(filePath);
+    }
+
+    for (int i = formats.size() - 1; i >= 0; i--) {
+      if (formats.get(i).matches(head, length)) {
+        return formats.get(i).getImageIO();
       }
     }
-    return null;
+    return getImageParser(filePath);
+  }
+
+  private static byte[] ascii(String signature) {
+    return signature.getBytes(StandardCharsets.US_ASCII);
   }
 
   private String getExtensionFromPath(String filePath) {
@@ -32,4 +118,54 @@ public class ImageFileIOFactory implements IImageFileIOFactory {
     }
     return extension;
   }
+
+  /**
+   * A registered format, which creates its IImageFileIO object on first use.
+   */
+  private static final class Format {
+
+    private final Supplier<? extends IImageFileIO> supplier;
+    private final byte[][] signatures;
+    private volatile IImageFileIO imageIO;
+
+    Format(Supplier<? extends IImageFileIO> supplier, byte[][] signatures) {
+      this.supplier = supplier;
+      this.signatures = Arrays.stream(signatures).map(byte[]::clone).toArray(byte[][]::new);
+    }
+
+    IImageFileIO getImageIO() {
+      IImageFileIO result = imageIO;
+      if (result == null) {
+        synchronized (this) {
+          result = imageIO;
+          if (result == null) {
+            result = supplier.get();
+            imageIO = result;
+          }
+        }
+      }
+      return result;
+    }
+
+    int getMaxSignatureLength() {
+      int maxLength = 0;
+      for (byte[] signature : signatures) {
+        maxLength = Math.max(maxLength, signature.length);
+      }
+      return maxLength;
+    }
+
+    /**
+     * Checks if the given first bytes of a file start with one of the signatures.
+     */
+    boolean matches(byte[] head, int length) {
+      for (byte[] signature : signatures) {
+        if (signature.length <= length
+            && Arrays.equals(signature, 0, signature.length, head, 0, signature.length)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
 }
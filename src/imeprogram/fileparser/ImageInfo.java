@@ -0,0 +1,53 @@
+package imeprogram.fileparser;
+
+/**
+ * This class represents what the header of an image file tells about the image: its format and
+ * its dimensions. It is read without decoding any pixels.
+ */
+public class ImageInfo {
+
+  private final String format;
+  private final int width;
+  private final int height;
+
+  /**
+   * Instantiate an ImageInfo object.
+   *
+   * @param format the format of the file, such as png, jpeg, haar, or the magic number of a PPM or
+   *               PGM file.
+   * @param width  width of the image.
+   * @param height height of the image.
+   */
+  public ImageInfo(String format, int width, int height) {
+    this.format = format;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Gets the format of the file.
+   *
+   * @return the format.
+   */
+  public String getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height.
+   */
+  public int getHeight() {
+    return this.height;
+  }
+}
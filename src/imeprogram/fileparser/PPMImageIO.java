@@ -3,161 +3,258 @@ package imeprogram.fileparser;
 import imeprogram.exceptions.FileFormatException;
 import imeprogram.model.IImage;
 import imeprogram.model.Image;
-import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
+import imeprogram.model.MappedImage;
 import java.io.IOException;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
- * Helper for file operations on a PPM format image file.
+ * Helper for file operations on a PPM format image file. Both the ASCII (P3) and the binary (P6)
+ * forms of color images can be loaded, along with their grayscale counterparts (P2 and P5). Images
+ * are saved in the form this helper was created for.
+ *
+ * <p>Large binary color images are memory-mapped rather than read, so that they are only copied
+ * onto the heap by the operations that need to. The values of large ASCII images are decoded in
+ * parallel.
  */
 class PPMImageIO implements IImageFileIO {
 
+  // Number of bytes of pixel data moved by each bulk read or write.
+  private static final int BLOCK_SIZE = 1 << 20;
+  // Binary color images with at least this many bytes of pixels are mapped instead of read.
+  private static final long MAP_THRESHOLD = 1L << 26;
+  // Longest a pixel can be in ASCII: three signed values, each followed by a space.
+  private static final int MAX_PIXEL_LENGTH = 3 * 12;
+
+  private final String extension;
+  private final char saveFormat;
+
+  /**
+   * Instantiate a PPMImageIO object that saves ASCII PPM files.
+   */
+  PPMImageIO() {
+    this("ppm", '3');
+  }
+
+  /**
+   * Instantiate a PPMImageIO object for the given file extension.
+   *
+   * @param extension  the file extension handled by this helper.
+   * @param saveFormat the digit of the magic number written on save: '3' for ASCII color, '6' for
+   *                   binary color, or '5' for binary grayscale.
+   */
+  PPMImageIO(String extension, char saveFormat) {
+    this.extension = extension;
+    this.saveFormat = saveFormat;
+  }
+
   @Override
   public IImage loadFromFile(String filePath) throws IOException, IllegalArgumentException {
-    fileFormatCheck(filePath);
+    // The file is validated and decoded in a single pass over its bytes.
+    try (AsciiReader reader = new AsciiReader(openChannel(filePath))) {
+      ImageInfo info = readHeader(reader);
+      int format = info.getFormat().charAt(1);
+      boolean binary = format == '5' || format == '6';
+      boolean grayscale = format == '2' || format == '5';
+      int width = info.getWidth();
+      int height = info.getHeight();
+      FileChannel channel = reader.getChannel();
 
-    if (!isValidPpmFileContent(filePath)) {
-      throw new IllegalArgumentException("Provided ppm file is invalid");
+      if (format == '6' && (long) width * height * 3 >= MAP_THRESHOLD) {
+        return new MappedImage(Paths.get(filePath), reader.getOffset(), width, height);
+      }
+      if (!binary && channel.size() - reader.getOffset() >= ParallelPpmDecoder.PARALLEL_THRESHOLD) {
+        int[][][] rgbValues = ParallelPpmDecoder.decode(channel, reader.getOffset(), width, height,
+            grayscale);
+        // Values interleaved with comments are left to the serial reader.
+        if (rgbValues != null) {
+          return new Image(rgbValues, width, height);
+        }
+      }
+      int[][][] rgbValues = binary
+          ? readBinaryPixels(reader, width, height, grayscale)
+          : readAsciiPixels(reader, width, height, grayscale);
+      return new Image(rgbValues, width, height);
     }
+  }
 
-    Scanner sc;
-    sc = new Scanner(new FileInputStream(filePath));
+  @Override
+  public ImageInfo probe(String filePath) throws IOException, IllegalArgumentException {
+    try (AsciiReader reader = new AsciiReader(openChannel(filePath))) {
+      return readHeader(reader);
+    }
+  }
 
-    StringBuilder builder = new StringBuilder();
-    // Read the file line by line, ignoring comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s).append(System.lineSeparator());
-      }
+  private static FileChannel openChannel(String filePath) {
+    try {
+      return FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Provided ppm file is invalid");
     }
-    sc = new Scanner(builder.toString());
+  }
 
-    String token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Provided image is invalid.");
-      // You might throw an IOException here if necessary
+  /**
+   * Reads and validates the header of the file, leaving the reader at the first pixel value.
+   *
+   * @return the magic number and the dimensions of the image.
+   */
+  private static ImageInfo readHeader(AsciiReader reader)
+      throws IOException, IllegalArgumentException {
+    if (reader.read() != 'P') {
+      throw new IllegalArgumentException("Provided ppm file is invalid");
     }
+    int format = reader.read();
+    boolean binary = format == '5' || format == '6';
+    boolean grayscale = format == '2' || format == '5';
+    if ((!binary && format != '2' && format != '3') || !reader.skipSeparator()) {
+      throw new IllegalArgumentException("Provided ppm file is invalid");
+    }
+    int width = reader.nextInt();
+    int height = reader.nextInt();
+    int maxValue = reader.nextInt();
+    // Every sample takes at least one byte, or two in ASCII, which bounds the dimensions by the
+    // file size.
+    long size = reader.getChannel().size();
+    long samples = (long) width * height * (grayscale ? 1 : 3);
+    long maxSamples = binary ? size : (size + 1) / 2;
+    if (width <= 0 || height <= 0 || maxValue != 255 || samples > maxSamples) {
+      throw new IllegalArgumentException("Provided ppm file is invalid");
+    }
+    return new ImageInfo("P" + (char) format, width, height);
+  }
 
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
+  private static int[][][] readAsciiPixels(AsciiReader reader, int width, int height,
+      boolean grayscale) throws IOException {
     int[][][] rgbValues = new int[height][width][3];
-
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
-        rgbValues[i][j][0] = sc.nextInt();  // Red value
-        rgbValues[i][j][1] = sc.nextInt();  // Green value
-        rgbValues[i][j][2] = sc.nextInt();  // Blue value
+        int[] pixel = rgbValues[i][j];
+        if (grayscale) {
+          int gray = reader.nextSample();
+          pixel[0] = gray;
+          pixel[1] = gray;
+          pixel[2] = gray;
+        } else {
+          pixel[0] = reader.nextSample();  // Red value
+          pixel[1] = reader.nextSample();  // Green value
+          pixel[2] = reader.nextSample();  // Blue value
+        }
       }
     }
+    // Any values after the pixels are ignored, but they must still be valid.
+    while (reader.hasNext()) {
+      reader.nextSample();
+    }
+    return rgbValues;
+  }
 
-    return new Image(rgbValues, width, height);
+  private static int[][][] readBinaryPixels(AsciiReader reader, int width, int height,
+      boolean grayscale) throws IOException {
+    int samplesPerPixel = grayscale ? 1 : 3;
+    int rowBytes = width * samplesPerPixel;
+    int rowsPerBlock = Math.max(1, Math.min(height, BLOCK_SIZE / rowBytes));
+    byte[] block = new byte[rowsPerBlock * rowBytes];
+    ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+
+    int[][][] rgbValues = new int[height][width][3];
+    for (int first = 0; first < height; first += rowsPerBlock) {
+      int rows = Math.min(rowsPerBlock, height - first);
+      blockBuffer.clear().limit(rows * rowBytes);
+      reader.readFully(blockBuffer);
+      int k = 0;
+      for (int i = first; i < first + rows; i++) {
+        for (int j = 0; j < width; j++) {
+          int[] pixel = rgbValues[i][j];
+          if (grayscale) {
+            int gray = block[k++] & 0xFF;
+            pixel[0] = gray;
+            pixel[1] = gray;
+            pixel[2] = gray;
+          } else {
+            pixel[0] = block[k++] & 0xFF;  // Red value
+            pixel[1] = block[k++] & 0xFF;  // Green value
+            pixel[2] = block[k++] & 0xFF;  // Blue value
+          }
+        }
+      }
+    }
+    return rgbValues;
+  }
+
+  @Override
+  public IImageRowReader openRowReader(String filePath)
+      throws IOException, IllegalArgumentException {
+    AsciiReader reader = new AsciiReader(openChannel(filePath));
+    try {
+      return new PpmRowReader(reader, readHeader(reader));
+    } catch (IOException | RuntimeException e) {
+      reader.close();
+      throw e;
+    }
   }
 
   @Override
   public void saveToFile(String filePath, IImage imageToSave) throws IOException {
-    fileFormatCheck(filePath);
+    saveToFile(filePath, imageToSave, null);
+  }
 
+  @Override
+  public void saveToFile(String filePath, IImage imageToSave, WriteOptions options)
+      throws IOException {
     int width = imageToSave.getWidth();
     int height = imageToSave.getHeight();
-    int[][][] rgbValues = imageToSave.getRgbValues();
-
-    // Convert the 3D array of RGB values to a BufferedImage
-    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int r = rgbValues[y][x][0];
-        int g = rgbValues[y][x][1];
-        int b = rgbValues[y][x][2];
-        Color color = new Color(r, g, b);
-        image.setRGB(x, y, color.getRGB());
+    int[][] rows = new int[1][width * 3];
+    try (IImageRowWriter writer = openRowWriter(filePath, width, height, options)) {
+      for (int i = 0; i < height; i++) {
+        imageToSave.getRowValues(i, rows[0]);
+        writer.writeRows(rows, 1);
       }
     }
+  }
 
-    // Save as PPM
-    FileWriter writer = new FileWriter(new File(filePath));
-    writer.write("P3\n" + width + " " + height + "\n255\n");
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int r = rgbValues[y][x][0];
-        int g = rgbValues[y][x][1];
-        int b = rgbValues[y][x][2];
-        writer.write(r + " " + g + " " + b + " ");
-      }
-      writer.write("\n");
+  @Override
+  public IImageRowWriter openRowWriter(String filePath, int width, int height,
+      WriteOptions options) throws IOException {
+    fileFormatCheck(filePath);
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid dimensions for the image.");
     }
-    writer.close();
+    // ASCII PPM files are written as binary ones when the options ask for it.
+    char format = saveFormat == '3' && options != null && options.isBinary() ? '6' : saveFormat;
+    return new PpmRowWriter(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), width, height, format);
   }
 
   /**
-   * Checks if a PPM file contains valid data.
+   * Writes the given value in decimal into the block, followed by a space.
    *
-   * @param filePath path of the file.
-   * @return True or False.
+   * @return the position after the space.
    */
-  private static boolean isValidPpmFileContent(String filePath) {
-    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-      // Read the first two lines and check if they comply with PPM format
-      String magicNumber = reader.readLine();
-      String dimensions = reader.readLine();
-
-      if (magicNumber != null && dimensions != null) {
-        if (!magicNumber.equals("P3") && !magicNumber.equals("P6")) {
-          return false;
-        }
-
-        String[] dimensionValues = dimensions.trim().split("\\s+");
-
-        if (dimensionValues.length != 2) {
-          return false;
-        }
-
-        int width = Integer.parseInt(dimensionValues[0]);
-        int height = Integer.parseInt(dimensionValues[1]);
-
-        if (width <= 0 || height <= 0) {
-          return false;
-        }
-
-        String maxValLine = reader.readLine();
-        if (maxValLine != null) {
-          int maxVal = Integer.parseInt(maxValLine.trim());
-          if (maxVal != 255) {
-            return false;
-          }
-        } else {
-          return false;
-        }
-
-        // Check the content for RGB values
-        String line;
-        while ((line = reader.readLine()) != null) {
-          String[] values = line.trim().split("\\s+");
-          for (String val : values) {
-            try {
-              int rgb = Integer.parseInt(val);
-              if (rgb < 0 || rgb > 255) {
-                return false;
-              }
-            } catch (NumberFormatException e) {
-              return false;
-            }
-          }
-        }
-      } else {
-        return false;
+  private static int putDecimal(byte[] block, int position, int value) {
+    if (value < 0 || value > 999) {
+      // Pixel values never get here, so this path does not need to be fast.
+      byte[] digits = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(digits, 0, block, position, digits.length);
+      position += digits.length;
+    } else {
+      if (value >= 100) {
+        block[position++] = (byte) ('0' + value / 100);
+      }
+      if (value >= 10) {
+        block[position++] = (byte) ('0' + value / 10 % 10);
       }
+      block[position++] = (byte) ('0' + value % 10);
+    }
+    block[position] = ' ';
+    return position + 1;
+  }
 
-      return true; // All checks passed, PPM content is valid
-    } catch (IOException e) {
-      return false;
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
     }
   }
 
@@ -175,8 +272,325 @@ class PPMImageIO implements IImageFileIO {
     // Extract the file extension from the filepath
     String extension = getExtensionFromPath(filePath).toLowerCase();
 
-    if (!extension.equals("ppm")) {
+    if (!extension.equals(this.extension)) {
       throw new FileFormatException("Unsupported file extension: " + extension);
     }
   }
+
+  /**
+   * Reads the rows of a PPM file as they come in the file, so only one row is held at a time.
+   */
+  private static final class PpmRowReader implements IImageRowReader {
+
+    private final AsciiReader reader;
+    private final int width;
+    private final int height;
+    private final boolean binary;
+    private final boolean grayscale;
+    private final byte[] row;
+    private int nextRow;
+
+    PpmRowReader(AsciiReader reader, ImageInfo info) {
+      int format = info.getFormat().charAt(1);
+      this.reader = reader;
+      this.width = info.getWidth();
+      this.height = info.getHeight();
+      this.binary = format == '5' || format == '6';
+      this.grayscale = format == '2' || format == '5';
+      this.row = new byte[binary ? width * (grayscale ? 1 : 3) : 0];
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int readRows(int[][] rows) throws IOException, IllegalArgumentException {
+      int count = Math.min(rows.length, height - nextRow);
+      for (int r = 0; r < count; r++) {
+        int[] values = rows[r];
+        if (values.length < width * 3) {
+          throw new IllegalArgumentException("Array is too short to hold the row.");
+        }
+        if (binary) {
+          reader.readFully(ByteBuffer.wrap(row));
+        }
+        for (int j = 0; j < width; j++) {
+          if (grayscale) {
+            int gray = binary ? row[j] & 0xFF : reader.nextSample();
+            values[3 * j] = gray;
+            values[3 * j + 1] = gray;
+            values[3 * j + 2] = gray;
+          } else if (binary) {
+            values[3 * j] = row[3 * j] & 0xFF;          // Red value
+            values[3 * j + 1] = row[3 * j + 1] & 0xFF;  // Green value
+            values[3 * j + 2] = row[3 * j + 2] & 0xFF;  // Blue value
+          } else {
+            values[3 * j] = reader.nextSample();      // Red value
+            values[3 * j + 1] = reader.nextSample();  // Green value
+            values[3 * j + 2] = reader.nextSample();  // Blue value
+          }
+        }
+      }
+      nextRow += count;
+      if (count > 0 && nextRow == height && !binary) {
+        // Any values after the pixels are ignored, but they must still be valid.
+        while (reader.hasNext()) {
+          reader.nextSample();
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  /**
+   * Writes the rows of a PPM file in the given form. Values are formatted straight into a block,
+   * which is written out whenever it fills up.
+   */
+  private static final class PpmRowWriter implements IImageRowWriter {
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final boolean binary;
+    private final boolean grayscale;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+    private int position;
+    private int nextRow;
+    private boolean closed;
+
+    PpmRowWriter(FileChannel channel, int width, int height, char saveFormat) {
+      this.channel = channel;
+      this.width = width;
+      this.height = height;
+      this.binary = saveFormat != '3';
+      this.grayscale = saveFormat == '5';
+      byte[] header = ("P" + saveFormat + "\n" + width + " " + height + "\n255\n")
+          .getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(header, 0, block, 0, header.length);
+      this.position = header.length;
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public void writeRows(int[][] rows, int count) throws IOException, IllegalArgumentException {
+      if (count < 0 || count > rows.length || nextRow + count > height) {
+        throw new IllegalArgumentException("Rows go past the bottom of the image.");
+      }
+      int k = position;
+      for (int r = 0; r < count; r++) {
+        int[] row = rows[r];
+        if (row.length < width * 3) {
+          throw new IllegalArgumentException("Array is too short to hold the row.");
+        }
+        for (int j = 0; j < 3 * width; j += 3) {
+          if (k > BLOCK_SIZE - MAX_PIXEL_LENGTH) {
+            writeFully(channel, blockBuffer.clear().limit(k));
+            k = 0;
+          }
+          if (grayscale) {
+            int gray = (int) Math.round(0.2126 * row[j] + 0.7152 * row[j + 1]
+                + 0.0722 * row[j + 2]);
+            block[k++] = (byte) Math.min(255, Math.max(0, gray));
+          } else if (binary) {
+            block[k++] = (byte) row[j];
+            block[k++] = (byte) row[j + 1];
+            block[k++] = (byte) row[j + 2];
+          } else {
+            k = putDecimal(block, k, row[j]);
+            k = putDecimal(block, k, row[j + 1]);
+            k = putDecimal(block, k, row[j + 2]);
+          }
+        }
+        if (!binary) {
+          if (k == BLOCK_SIZE) {
+            writeFully(channel, blockBuffer.clear().limit(k));
+            k = 0;
+          }
+          block[k++] = '\n';
+        }
+        nextRow++;
+      }
+      position = k;
+    }
+
+    @Override
+    public void close() throws IOException, IllegalStateException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try (FileChannel file = channel) {
+        if (nextRow < height) {
+          throw new IllegalStateException("Not every row was written.");
+        }
+        writeFully(file, blockBuffer.clear().limit(position));
+      }
+    }
+  }
+
+  /**
+   * Reads the ASCII tokens of a PPM file directly from its bytes. Whitespace separates tokens, and
+   * a '#' starts a comment that runs to the end of the line.
+   */
+  private static final class AsciiReader implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int position;
+    private int limit;
+    // Number of bytes read from the file into the buffer so far.
+    private long filled;
+
+    AsciiReader(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Returns the next byte, or -1 at the end of the file.
+     */
+    int read() throws IOException {
+      if (position == limit) {
+        byteBuffer.clear();
+        limit = Math.max(0, channel.read(byteBuffer));
+        filled += limit;
+        position = 0;
+        if (limit == 0) {
+          return -1;
+        }
+      }
+      return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Returns the file being read.
+     */
+    FileChannel getChannel() {
+      return channel;
+    }
+
+    /**
+     * Returns the position in the file of the next byte.
+     */
+    long getOffset() {
+      return filled - (limit - position);
+    }
+
+    /**
+     * Fills the given buffer with the bytes that follow. The bytes already buffered are copied
+     * first, and the rest is read straight from the file.
+     */
+    void readFully(ByteBuffer destination) throws IOException {
+      int buffered = Math.min(limit - position, destination.remaining());
+      destination.put(buffer, position, buffered);
+      position += buffered;
+      while (destination.hasRemaining()) {
+        if (channel.read(destination) < 0) {
+          throw new IllegalArgumentException("Provided ppm file is invalid");
+        }
+      }
+    }
+
+    /**
+     * Consumes a single separator. Returns false if the next byte does not end a token.
+     */
+    boolean skipSeparator() throws IOException {
+      int b = read();
+      if (b == '#') {
+        position--;
+        return true;
+      }
+      return isWhitespace(b);
+    }
+
+    /**
+     * Skips whitespace and comments. Returns false if the end of the file was reached.
+     */
+    boolean hasNext() throws IOException {
+      while (true) {
+        int b = read();
+        if (b == -1) {
+          return false;
+        } else if (b == '#') {
+          do {
+            b = read();
+          }
+          while (b != '\n' && b != '\r' && b != -1);
+        } else if (!isWhitespace(b)) {
+          position--;
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Parses the next token as a non-negative integer.
+     */
+    int nextInt() throws IOException {
+      if (!hasNext()) {
+        throw new IllegalArgumentException("Provided ppm file is invalid");
+      }
+      long value = 0;
+      int b = read();
+      do {
+        if (b < '0' || b > '9') {
+          throw new IllegalArgumentException("Provided ppm file is invalid");
+        }
+        value = value * 10 + (b - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Provided ppm file is invalid");
+        }
+        b = read();
+      }
+      while (b != -1 && b != '#' && !isWhitespace(b));
+      if (b == '#') {
+        position--;
+      }
+      return (int) value;
+    }
+
+    /**
+     * Parses the next token as a color value in [0, 255].
+     */
+    int nextSample() throws IOException {
+      int value = nextInt();
+      if (value > 255) {
+        throw new IllegalArgumentException("Provided ppm file is invalid");
+      }
+      return value;
+    }
+
+    private static boolean isWhitespace(int b) {
+      return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
 }
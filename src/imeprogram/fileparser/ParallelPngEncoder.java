@@ -0,0 +1,304 @@
+package imeprogram.fileparser;
+
+import imeprogram.model.IReadOnlyImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes an image as an 8-bit RGB PNG file, filtering and deflating its scanlines in parallel.
+ *
+ * <p>The scanlines are split into chunks of about {@value #CHUNK_SIZE} bytes, which are encoded
+ * independently on the common ForkJoinPool, in the manner of pigz. Each chunk is deflated with the
+ * last {@value #DICTIONARY_SIZE} bytes of the chunk before it as a preset dictionary, so matches
+ * still reach across chunk boundaries, and every chunk but the last ends on a byte boundary with
+ * a sync flush. The deflated chunks then join into one zlib stream, whose checksum is combined
+ * from the checksums of the chunks. Each chunk is written as its own IDAT chunk, a batch of
+ * chunks at a time, so only a few chunks are held in memory at once.
+ */
+final class ParallelPngEncoder {
+
+  // Number of filtered bytes in a chunk, rounded up to whole scanlines.
+  static final int CHUNK_SIZE = 1 << 18;
+  // Largest distance deflate looks back for a match.
+  static final int DICTIONARY_SIZE = 1 << 15;
+  static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int ADLER_BASE = 65521;
+
+  /**
+   * Represents the filters that can be applied to each scanline before it is deflated.
+   */
+  enum Filter {
+    // Each filter stores the bytes of a scanline relative to neighbouring bytes
+    NONE, SUB, UP, AVERAGE, PAETH,
+    // The filter that gives the smallest sum of absolute differences is chosen for each scanline
+    ADAPTIVE
+  }
+
+  private ParallelPngEncoder() {
+  }
+
+  /**
+   * Encodes the given image into a PNG file.
+   *
+   * @param filePath the path of the file to be written.
+   * @param image    the image to be encoded.
+   * @param level    the deflate compression level, from 0 (stored) to 9 (smallest).
+   * @param filter   the filter applied to the scanlines.
+   * @throws IOException              If the file cannot be written.
+   * @throws IllegalArgumentException If the compression level is invalid.
+   */
+  static void encode(String filePath, IReadOnlyImage image, int level, Filter filter)
+      throws IOException, IllegalArgumentException {
+    if (level < 0 || level > 9) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int stride = width * 3 + 1;
+    int rowsPerChunk = Math.max(1, (CHUNK_SIZE + stride - 1) / stride);
+    int chunks = (height + rowsPerChunk - 1) / rowsPerChunk;
+    int batchSize = 2 * ForkJoinPool.getCommonPoolParallelism();
+
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeHeader(channel, width, height, level);
+      long adler = 1;
+      for (int first = 0; first < chunks; first += batchSize) {
+        EncodedChunk[] batch = IntStream.range(first, Math.min(chunks, first + batchSize))
+            .parallel()
+            .mapToObj(c -> encodeChunk(image, c * rowsPerChunk,
+                Math.min(height, (c + 1) * rowsPerChunk), c == chunks - 1, level, filter))
+            .toArray(EncodedChunk[]::new);
+        for (EncodedChunk chunk : batch) {
+          writeChunk(channel, "IDAT", chunk.data, chunk.length);
+          adler = combineAdler(adler, chunk.adler, chunk.rawLength);
+        }
+      }
+
+      writeTrailer(channel, adler);
+    }
+  }
+
+  /**
+   * Writes the signature and the header of a PNG file, followed by the header of its zlib stream.
+   */
+  static void writeHeader(FileChannel channel, int width, int height, int level)
+      throws IOException {
+    writeFully(channel, ByteBuffer.wrap(SIGNATURE));
+    writeChunk(channel, "IHDR", ByteBuffer.allocate(13).putInt(width).putInt(height)
+        .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0).array(), 13);
+
+    // The zlib header names deflate with a 32K window, and hints at the level in its flags.
+    int header = 0x7800 | (level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3) << 6;
+    header += 31 - header % 31;
+    writeChunk(channel, "IDAT", new byte[]{(byte) (header >> 8), (byte) header}, 2);
+  }
+
+  /**
+   * Writes the checksum that ends the zlib stream, and the end of the PNG file.
+   */
+  static void writeTrailer(FileChannel channel, long adler) throws IOException {
+    writeChunk(channel, "IDAT", ByteBuffer.allocate(4).putInt((int) adler).array(), 4);
+    writeChunk(channel, "IEND", new byte[0], 0);
+  }
+
+  /**
+   * Filters and deflates the scanlines from the first row up to, but not including, the last row.
+   */
+  private static EncodedChunk encodeChunk(IReadOnlyImage image, int firstRow, int lastRow,
+      boolean finish, int level, Filter filter) {
+    int width = image.getWidth();
+    int stride = width * 3 + 1;
+
+    // The scanlines before the chunk are filtered again to serve as its dictionary, which gives
+    // the same bytes the chunk before produced, without waiting for it.
+    int dictionaryRows = Math.min(firstRow, (DICTIONARY_SIZE + stride - 1) / stride);
+    int startRow = firstRow - dictionaryRows;
+    byte[] filtered = new byte[(lastRow - startRow) * stride];
+    int[] values = new int[width * 3];
+    byte[] previous = new byte[width * 3];
+    byte[] current = new byte[width * 3];
+    if (startRow > 0) {
+      toBytes(image, startRow - 1, values, previous);
+    }
+    for (int i = startRow; i < lastRow; i++) {
+      toBytes(image, i, values, current);
+      filterRow(current, previous, filtered, (i - startRow) * stride, filter);
+      byte[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+
+    int offset = dictionaryRows * stride;
+    return deflateChunk(filtered, offset, filtered.length - offset, finish, level);
+  }
+
+  /**
+   * Deflates the filtered bytes of a chunk, from the given offset on. Up to
+   * {@value #DICTIONARY_SIZE} bytes before the offset serve as the dictionary.
+   */
+  static EncodedChunk deflateChunk(byte[] filtered, int offset, int rawLength, boolean finish,
+      int level) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      int dictionaryLength = Math.min(offset, DICTIONARY_SIZE);
+      if (dictionaryLength > 0) {
+        deflater.setDictionary(filtered, offset - dictionaryLength, dictionaryLength);
+      }
+      deflater.setInput(filtered, offset, rawLength);
+      if (finish) {
+        deflater.finish();
+      }
+      byte[] data = new byte[rawLength / 2 + 64];
+      int length = 0;
+      while (true) {
+        int flush = finish ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+        length += deflater.deflate(data, length, data.length - length, flush);
+        if (finish ? deflater.finished() : length < data.length) {
+          break;
+        }
+        if (length == data.length) {
+          data = Arrays.copyOf(data, data.length * 2);
+        }
+      }
+
+      Adler32 checksum = new Adler32();
+      checksum.update(filtered, offset, rawLength);
+      return new EncodedChunk(data, length, checksum.getValue(), rawLength);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void toBytes(IReadOnlyImage image, int row, int[] values, byte[] bytes) {
+    image.getRowValues(row, values);
+    toBytes(values, bytes);
+  }
+
+  static void toBytes(int[] values, byte[] bytes) {
+    for (int k = 0; k < bytes.length; k++) {
+      bytes[k] = (byte) values[k];
+    }
+  }
+
+  /**
+   * Writes the filter type and filtered bytes of a scanline at the given offset of the output.
+   */
+  static void filterRow(byte[] row, byte[] previous, byte[] out, int offset,
+      Filter filter) {
+    if (filter != Filter.ADAPTIVE) {
+      applyFilter(filter, row, previous, out, offset);
+      return;
+    }
+    // Try every filter in place, and keep the one with the smallest sum of absolute values.
+    Filter best = Filter.NONE;
+    long bestSum = Long.MAX_VALUE;
+    for (Filter candidate : new Filter[]{Filter.NONE, Filter.SUB, Filter.UP, Filter.AVERAGE,
+        Filter.PAETH}) {
+      applyFilter(candidate, row, previous, out, offset);
+      long sum = 0;
+      for (int k = 1; k <= row.length; k++) {
+        sum += Math.abs(out[offset + k]);
+      }
+      if (sum < bestSum) {
+        bestSum = sum;
+        best = candidate;
+      }
+    }
+    if (best != Filter.PAETH) {
+      applyFilter(best, row, previous, out, offset);
+    }
+  }
+
+  private static void applyFilter(Filter filter, byte[] row, byte[] previous, byte[] out,
+      int offset) {
+    out[offset++] = (byte) filter.ordinal();
+    for (int k = 0; k < row.length; k++) {
+      int x = row[k] & 0xFF;
+      int a = k >= 3 ? row[k - 3] & 0xFF : 0;
+      int b = previous[k] & 0xFF;
+      int predictor;
+      switch (filter) {
+        case SUB:
+          predictor = a;
+          break;
+        case UP:
+          predictor = b;
+          break;
+        case AVERAGE:
+          predictor = (a + b) >> 1;
+          break;
+        case PAETH:
+          int c = k >= 3 ? previous[k - 3] & 0xFF : 0;
+          int pa = Math.abs(b - c);
+          int pb = Math.abs(a - c);
+          int pc = Math.abs(a + b - 2 * c);
+          predictor = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+          break;
+        default:
+          predictor = 0;
+      }
+      out[offset + k] = (byte) (x - predictor);
+    }
+  }
+
+  /**
+   * Returns the Adler-32 checksum of two pieces of data from their checksums and the length of the
+   * second piece.
+   */
+  static long combineAdler(long first, long second, long secondLength) {
+    long remainder = secondLength % ADLER_BASE;
+    long sum1 = first & 0xFFFF;
+    long sum2 = remainder * sum1 % ADLER_BASE;
+    sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+    sum2 += ((first >> 16) & 0xFFFF) + ((second >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+    sum1 %= ADLER_BASE;
+    sum2 %= ADLER_BASE;
+    return sum2 << 16 | sum1;
+  }
+
+  static void writeChunk(FileChannel channel, String type, byte[] data, int length)
+      throws IOException {
+    ByteBuffer chunk = ByteBuffer.allocate(length + 12);
+    chunk.putInt(length).put(type.getBytes(StandardCharsets.US_ASCII))
+        .put(data, 0, length);
+    CRC32 crc = new CRC32();
+    crc.update(chunk.array(), 4, length + 4);
+    chunk.putInt((int) crc.getValue());
+    writeFully(channel, chunk.flip());
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * The deflated bytes of a chunk, with the checksum and length of its filtered bytes.
+   */
+  static final class EncodedChunk {
+
+    final byte[] data;
+    final int length;
+    final long adler;
+    final int rawLength;
+
+    private EncodedChunk(byte[] data, int length, long adler, int rawLength) {
+      this.data = data;
+      this.length = length;
+      this.adler = adler;
+      this.rawLength = rawLength;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package imeprogram.fileparser;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Decodes the ASCII pixel values of a PPM or PGM file in parallel. The values are mapped from the
+ * file and split into chunks that start and end on whitespace, so that no value is cut in two.
+ *
+ * <p>Decoding takes two passes over the chunks, both running on the common ForkJoinPool. The first
+ * pass counts the values in each chunk, which tells every chunk the index of its first value. The
+ * second pass parses each chunk into its own region of the pixels.
+ */
+final class ParallelPpmDecoder {
+
+  // Pixel values shorter than this are decoded serially.
+  static final long PARALLEL_THRESHOLD = 1L << 22;
+  // Smallest chunk worth handing to a worker.
+  private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+  private ParallelPpmDecoder() {
+  }
+
+  /**
+   * Decodes the pixel values that start at the given position of the file. Values after the
+   * pixels are ignored, but they must still be valid.
+   *
+   * @param channel   the file.
+   * @param offset    the position of the pixel values in the file.
+   * @param width     width of the image.
+   * @param height    height of the image.
+   * @param grayscale whether each pixel has a single value, rather than one for each channel.
+   * @return the pixel values in the format [row][column][channel], or null if the values cannot be
+   *     decoded in parallel, because they are interleaved with comments or are too long to map.
+   * @throws IOException              If the file cannot be mapped.
+   * @throws IllegalArgumentException If the values are invalid, or if there are too few of them.
+   */
+  static int[][][] decode(FileChannel channel, long offset, int width, int height,
+      boolean grayscale) throws IOException, IllegalArgumentException {
+    long length = channel.size() - offset;
+    if (length > Integer.MAX_VALUE) {
+      return null;
+    }
+    MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    int size = (int) length;
+
+    // Move each nominal chunk boundary forward to the next whitespace.
+    int chunks = Math.max(1, Math.min(size / MIN_CHUNK_SIZE,
+        4 * ForkJoinPool.getCommonPoolParallelism()));
+    int[] bounds = new int[chunks + 1];
+    bounds[chunks] = size;
+    for (int c = 1; c < chunks; c++) {
+      int bound = Math.max(bounds[c - 1], (int) ((long) size * c / chunks));
+      while (bound < size && !isWhitespace(payload.get(bound))) {
+        bound++;
+      }
+      bounds[c] = bound;
+    }
+
+    long[] counts = new long[chunks];
+    IntStream.range(0, chunks).parallel()
+        .forEach(c -> counts[c] = countValues(payload, bounds[c], bounds[c + 1]));
+    long[] firstValues = new long[chunks];
+    long total = 0;
+    for (int c = 0; c < chunks; c++) {
+      if (counts[c] < 0) {
+        return null;
+      }
+      firstValues[c] = total;
+      total += counts[c];
+    }
+    long samples = (long) width * height * (grayscale ? 1 : 3);
+    if (total < samples) {
+      throw new IllegalArgumentException("Provided ppm file is invalid");
+    }
+
+    int[][][] rgbValues = new int[height][width][3];
+    IntStream.range(0, chunks).parallel().forEach(c -> parseValues(payload, bounds[c],
+        bounds[c + 1], firstValues[c], samples, rgbValues, grayscale));
+    return rgbValues;
+  }
+
+  /**
+   * Returns the number of values in the given range of the payload, or -1 if it has a comment.
+   */
+  private static long countValues(MappedByteBuffer payload, int from, int to) {
+    long count = 0;
+    boolean inValue = false;
+    for (int k = from; k < to; k++) {
+      byte b = payload.get(k);
+      if (isWhitespace(b)) {
+        inValue = false;
+      } else if (b == '#') {
+        return -1;
+      } else if (!inValue) {
+        inValue = true;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Parses the values in the given range of the payload into the pixels, starting at the given
+   * value index.
+   */
+  private static void parseValues(MappedByteBuffer payload, int from, int to, long firstValue,
+      long samples, int[][][] rgbValues, boolean grayscale) {
+    int width = rgbValues[0].length;
+    int samplesPerPixel = grayscale ? 1 : 3;
+    long pixel = firstValue / samplesPerPixel;
+    int row = (int) (pixel / width);
+    int column = (int) (pixel % width);
+    int channel = (int) (firstValue % samplesPerPixel);
+    long index = firstValue;
+
+    int k = from;
+    while (true) {
+      while (k < to && isWhitespace(payload.get(k))) {
+        k++;
+      }
+      if (k == to) {
+        return;
+      }
+      int value = 0;
+      while (k < to && !isWhitespace(payload.get(k))) {
+        int digit = payload.get(k++) - '0';
+        value = value * 10 + digit;
+        if (digit < 0 || digit > 9 || value > 255) {
+          throw new IllegalArgumentException("Provided ppm file is invalid");
+        }
+      }
+
+      if (index++ < samples) {
+        int[] pixelValues = rgbValues[row][column];
+        if (grayscale) {
+          pixelValues[0] = value;
+          pixelValues[1] = value;
+          pixelValues[2] = value;
+        } else {
+          pixelValues[channel] = value;
+        }
+        if (++channel == samplesPerPixel) {
+          channel = 0;
+          if (++column == width) {
+            column = 0;
+            row++;
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isWhitespace(int b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+  }
+}
@@ -0,0 +1,286 @@
+package imeprogram.fileparser;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the rows of a PNG file as they are inflated, so only the current and the previous
+ * scanline are held at a time. The common layouts are read this way: 8-bit RGB, RGB with alpha,
+ * and palette images that are not interlaced. Alpha is dropped, which gives the same values as
+ * loading the whole file.
+ */
+final class PngRowReader implements IImageRowReader {
+
+  private static final int COLOR_TYPE_RGB = 2;
+  private static final int COLOR_TYPE_PALETTE = 3;
+  private static final int COLOR_TYPE_RGB_ALPHA = 6;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final DataInputStream input;
+  private final int width;
+  private final int height;
+  private final int bytesPerPixel;
+  private final byte[] palette;
+  private final Inflater inflater = new Inflater();
+  private final byte[] compressed = new byte[BUFFER_SIZE];
+  // Number of bytes left in the IDAT chunk being read, or -1 once the IDAT chunks ended.
+  private int idatRemaining;
+  private byte[] previous;
+  private byte[] current;
+  private int nextRow;
+
+  private PngRowReader(DataInputStream input, int width, int height, int bytesPerPixel,
+      byte[] palette, int idatLength) {
+    this.input = input;
+    this.width = width;
+    this.height = height;
+    this.bytesPerPixel = bytesPerPixel;
+    this.palette = palette;
+    this.idatRemaining = idatLength;
+    this.previous = new byte[width * bytesPerPixel + 1];
+    this.current = new byte[width * bytesPerPixel + 1];
+  }
+
+  /**
+   * Opens a PNG file to read its rows, if its layout is one this reader supports.
+   *
+   * @param filePath the path of the file.
+   * @return the reader, or null if the file is not a PNG file or has another layout.
+   * @throws IOException              If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid PNG file.
+   */
+  static PngRowReader open(String filePath) throws IOException, IllegalArgumentException {
+    DataInputStream input = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(filePath), BUFFER_SIZE));
+    try {
+      PngRowReader reader = readHeader(input);
+      if (reader == null) {
+        input.close();
+      }
+      return reader;
+    } catch (EOFException e) {
+      input.close();
+      throw new IllegalArgumentException("Provided image file is invalid");
+    } catch (IOException | RuntimeException e) {
+      input.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the chunks up to the first IDAT chunk, leaving the input at its data.
+   */
+  private static PngRowReader readHeader(DataInputStream input) throws IOException {
+    byte[] signature = new byte[ParallelPngEncoder.SIGNATURE.length];
+    input.readFully(signature);
+    if (!Arrays.equals(signature, ParallelPngEncoder.SIGNATURE)
+        || input.readInt() != 13 || input.readInt() != 0x49484452) {
+      return null;
+    }
+    int width = input.readInt();
+    int height = input.readInt();
+    int bitDepth = input.readUnsignedByte();
+    int colorType = input.readUnsignedByte();
+    int compression = input.readUnsignedByte();
+    int filterMethod = input.readUnsignedByte();
+    int interlace = input.readUnsignedByte();
+    input.readInt();
+    int bytesPerPixel = colorType == COLOR_TYPE_RGB ? 3
+        : colorType == COLOR_TYPE_RGB_ALPHA ? 4 : colorType == COLOR_TYPE_PALETTE ? 1 : 0;
+    if (bitDepth != 8 || bytesPerPixel == 0 || compression != 0 || filterMethod != 0
+        || interlace != 0 || width <= 0 || height <= 0
+        || (long) width * bytesPerPixel + 1 > Integer.MAX_VALUE) {
+      // Other layouts are left to the whole-image reader.
+      return null;
+    }
+
+    byte[] palette = null;
+    while (true) {
+      int length = input.readInt();
+      int type = input.readInt();
+      if (length < 0) {
+        throw new IllegalArgumentException("Provided image file is invalid");
+      }
+      if (type == 0x49444154) {
+        // IDAT
+        if (colorType == COLOR_TYPE_PALETTE && palette == null) {
+          throw new IllegalArgumentException("Provided image file is invalid");
+        }
+        return new PngRowReader(input, width, height, bytesPerPixel, palette, length);
+      } else if (type == 0x504C5445 && colorType == COLOR_TYPE_PALETTE) {
+        // PLTE, whose entries are padded to 256 so every index reads a color.
+        if (length % 3 != 0 || length > 768) {
+          throw new IllegalArgumentException("Provided image file is invalid");
+        }
+        palette = new byte[768];
+        input.readFully(palette, 0, length);
+      } else if (type == 0x49454E44) {
+        // IEND
+        throw new IllegalArgumentException("Provided image file is invalid");
+      } else {
+        skipFully(input, length);
+      }
+      input.readInt();
+    }
+  }
+
+  /**
+   * Skips the given number of bytes, throwing an EOFException if the stream ends first.
+   */
+  private static void skipFully(DataInputStream input, int length) throws IOException {
+    while (length > 0) {
+      int skipped = input.skipBytes(length);
+      if (skipped <= 0) {
+        // skipBytes may stop short without the stream ending, so one byte is read to tell.
+        if (input.read() < 0) {
+          throw new EOFException();
+        }
+        skipped = 1;
+      }
+      length -= skipped;
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int readRows(int[][] rows) throws IOException, IllegalArgumentException {
+    int count = Math.min(rows.length, height - nextRow);
+    for (int r = 0; r < count; r++) {
+      int[] values = rows[r];
+      if (values.length < width * 3) {
+        throw new IllegalArgumentException("Array is too short to hold the row.");
+      }
+      inflateRow();
+      unfilterRow();
+      for (int j = 0; j < width; j++) {
+        if (palette != null) {
+          int index = (current[1 + j] & 0xFF) * 3;
+          values[3 * j] = palette[index] & 0xFF;
+          values[3 * j + 1] = palette[index + 1] & 0xFF;
+          values[3 * j + 2] = palette[index + 2] & 0xFF;
+        } else {
+          int k = 1 + j * bytesPerPixel;
+          values[3 * j] = current[k] & 0xFF;
+          values[3 * j + 1] = current[k + 1] & 0xFF;
+          values[3 * j + 2] = current[k + 2] & 0xFF;
+        }
+      }
+    }
+    nextRow += count;
+    return count;
+  }
+
+  /**
+   * Inflates the next scanline, with its filter type, into the current row. The previous row is
+   * kept to unfilter it.
+   */
+  private void inflateRow() throws IOException {
+    byte[] swap = previous;
+    previous = current;
+    current = swap;
+    int filled = 0;
+    try {
+      while (filled < current.length) {
+        int inflated = inflater.inflate(current, filled, current.length - filled);
+        filled += inflated;
+        if (inflated == 0) {
+          if (inflater.finished() || inflater.needsDictionary() || !fillInflater()) {
+            throw new IllegalArgumentException("Provided image file is invalid");
+          }
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Provided image file is invalid");
+    }
+  }
+
+  /**
+   * Gives the inflater the next bytes of the IDAT chunks.
+   *
+   * @return false if there are no more IDAT chunks.
+   */
+  private boolean fillInflater() throws IOException {
+    try {
+      while (idatRemaining == 0) {
+        input.readInt();
+        int length = input.readInt();
+        if (input.readInt() != 0x49444154 || length < 0) {
+          idatRemaining = -1;
+        } else {
+          idatRemaining = length;
+        }
+      }
+      if (idatRemaining < 0) {
+        return false;
+      }
+      int read = input.read(compressed, 0, Math.min(compressed.length, idatRemaining));
+      if (read < 0) {
+        return false;
+      }
+      idatRemaining -= read;
+      inflater.setInput(compressed, 0, read);
+      return true;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reverses the filter of the current row. The row above the first one counts as zeros, which the
+   * previous row is until a row was read.
+   */
+  private void unfilterRow() {
+    int type = current[0];
+    int n = current.length;
+    for (int k = 1; k < n; k++) {
+      int a = k > bytesPerPixel ? current[k - bytesPerPixel] & 0xFF : 0;
+      int b = previous[k] & 0xFF;
+      int predictor;
+      switch (type) {
+        case 0:
+          predictor = 0;
+          break;
+        case 1:
+          predictor = a;
+          break;
+        case 2:
+          predictor = b;
+          break;
+        case 3:
+          predictor = (a + b) >> 1;
+          break;
+        case 4:
+          int c = k > bytesPerPixel ? previous[k - bytesPerPixel] & 0xFF : 0;
+          int pa = Math.abs(b - c);
+          int pb = Math.abs(a - c);
+          int pc = Math.abs(a + b - 2 * c);
+          predictor = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+          break;
+        default:
+          throw new IllegalArgumentException("Provided image file is invalid");
+      }
+      current[k] = (byte) (current[k] + predictor);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    input.close();
+  }
+}
@@ -0,0 +1,164 @@
+package imeprogram.fileparser;
+
+import imeprogram.fileparser.ParallelPngEncoder.EncodedChunk;
+import imeprogram.fileparser.ParallelPngEncoder.Filter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Writes the rows of an 8-bit RGB PNG file as they come. Each row is filtered by the calling
+ * thread into the current chunk, and every full chunk is deflated on the common ForkJoinPool the
+ * same way {@link ParallelPngEncoder} deflates it, with the end of the chunk before it as its
+ * dictionary. Chunks are written in order once they are deflated, and only a few are pending at
+ * once, so the memory held stays the same however tall the image is.
+ */
+final class PngRowWriter implements IImageRowWriter {
+
+  private final FileChannel channel;
+  private final int width;
+  private final int height;
+  private final int level;
+  private final Filter filter;
+  private final int stride;
+  private final int rowsPerChunk;
+  private final int maxPending;
+  private final Deque<ForkJoinTask<EncodedChunk>> pending = new ArrayDeque<>();
+  // The dictionary of the current chunk, followed by the rows filtered into it so far.
+  private byte[] filtered;
+  private int dictionaryLength;
+  private int chunkRows;
+  private byte[] previous;
+  private byte[] current;
+  private long adler = 1;
+  private int nextRow;
+  private boolean closed;
+
+  /**
+   * Instantiate a PngRowWriter object that creates the given file.
+   *
+   * @param filePath the path of the file.
+   * @param width    width of the image.
+   * @param height   height of the image.
+   * @param level    the deflate compression level, from 0 (stored) to 9 (smallest).
+   * @param filter   the filter applied to the scanlines.
+   * @throws IOException              If the file cannot be created.
+   * @throws IllegalArgumentException If the dimensions or the compression level are invalid.
+   */
+  PngRowWriter(String filePath, int width, int height, int level, Filter filter)
+      throws IOException, IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid dimensions for the image.");
+    }
+    if (level < 0 || level > 9) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    this.width = width;
+    this.height = height;
+    this.level = level;
+    this.filter = filter;
+    this.stride = width * 3 + 1;
+    this.rowsPerChunk = Math.max(1, (ParallelPngEncoder.CHUNK_SIZE + stride - 1) / stride);
+    this.maxPending = 2 * ForkJoinPool.getCommonPoolParallelism();
+    this.filtered = new byte[rowsPerChunk * stride];
+    this.previous = new byte[width * 3];
+    this.current = new byte[width * 3];
+    this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    try {
+      ParallelPngEncoder.writeHeader(channel, width, height, level);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public void writeRows(int[][] rows, int count) throws IOException, IllegalArgumentException {
+    if (count < 0 || count > rows.length || nextRow + count > height) {
+      throw new IllegalArgumentException("Rows go past the bottom of the image.");
+    }
+    for (int r = 0; r < count; r++) {
+      if (rows[r].length < width * 3) {
+        throw new IllegalArgumentException("Array is too short to hold the row.");
+      }
+      ParallelPngEncoder.toBytes(rows[r], current);
+      ParallelPngEncoder.filterRow(current, previous, filtered,
+          dictionaryLength + chunkRows * stride, filter);
+      byte[] swap = previous;
+      previous = current;
+      current = swap;
+      chunkRows++;
+      nextRow++;
+      // The last chunk is left for close, which finishes the stream with it.
+      if (chunkRows == rowsPerChunk && nextRow < height) {
+        submitChunk(false);
+      }
+    }
+  }
+
+  /**
+   * Starts deflating the current chunk and, unless it finishes the stream, begins the next chunk
+   * with the end of this one as its dictionary. The oldest chunks are written while too many are
+   * pending.
+   */
+  private void submitChunk(boolean finish) throws IOException {
+    byte[] data = filtered;
+    int offset = dictionaryLength;
+    int rawLength = chunkRows * stride;
+    pending.add(ForkJoinPool.commonPool().submit(
+        () -> ParallelPngEncoder.deflateChunk(data, offset, rawLength, finish, level)));
+
+    if (!finish) {
+      int nextDictionaryLength = Math.min(ParallelPngEncoder.DICTIONARY_SIZE,
+          offset + rawLength);
+      filtered = new byte[nextDictionaryLength + rowsPerChunk * stride];
+      System.arraycopy(data, offset + rawLength - nextDictionaryLength, filtered, 0,
+          nextDictionaryLength);
+      dictionaryLength = nextDictionaryLength;
+      chunkRows = 0;
+    }
+    while (pending.size() > maxPending) {
+      writePending();
+    }
+  }
+
+  private void writePending() throws IOException {
+    EncodedChunk chunk = pending.remove().join();
+    ParallelPngEncoder.writeChunk(channel, "IDAT", chunk.data, chunk.length);
+    adler = ParallelPngEncoder.combineAdler(adler, chunk.adler, chunk.rawLength);
+  }
+
+  @Override
+  public void close() throws IOException, IllegalStateException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try (FileChannel file = channel) {
+      if (nextRow < height) {
+        throw new IllegalStateException("Not every row was written.");
+      }
+      submitChunk(true);
+      while (!pending.isEmpty()) {
+        writePending();
+      }
+      ParallelPngEncoder.writeTrailer(file, adler);
+    }
+  }
+}
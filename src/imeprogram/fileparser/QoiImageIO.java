@@ -0,0 +1,271 @@
+package imeprogram.fileparser;
+
+import imeprogram.exceptions.FileFormatException;
+import imeprogram.model.IImage;
+import imeprogram.model.Image;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helper for file operations on a QOI ("Quite OK Image") format image file. QOI is lossless and
+ * compresses about as well as PNG, but both encoding and decoding take a single pass over the
+ * pixels with a handful of integer operations each, so it is many times faster.
+ *
+ * <p>Each pixel is stored as a run of the previous pixel, a reference into a table of 64 recently
+ * seen pixels, a small difference from the previous pixel, or the pixel itself. Files with an
+ * alpha channel can be loaded, and their alpha is dropped. Images are saved with three channels.
+ */
+class QoiImageIO implements IImageFileIO {
+
+  static final byte[] MAGIC = {'q', 'o', 'i', 'f'};
+  private static final int HEADER_SIZE = 14;
+  private static final byte[] END_MARKER = {0, 0, 0, 0, 0, 0, 0, 1};
+  // Largest number of pixels a file may have, as set by the specification.
+  private static final long MAX_PIXELS = 400_000_000L;
+  // Number of bytes of the file moved by each bulk write.
+  private static final int BLOCK_SIZE = 1 << 20;
+  // Longest encoding of a single pixel: a run that ends, followed by the pixel itself.
+  private static final int MAX_PIXEL_LENGTH = 5;
+
+  private static final int OP_INDEX = 0x00;
+  private static final int OP_DIFF = 0x40;
+  private static final int OP_LUMA = 0x80;
+  private static final int OP_RUN = 0xC0;
+  private static final int OP_RGB = 0xFE;
+  private static final int OP_RGBA = 0xFF;
+  private static final int MASK = 0xC0;
+  private static final int MAX_RUN = 62;
+
+  @Override
+  public IImage loadFromFile(String filePath) throws IOException, IllegalArgumentException {
+    byte[] data;
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Provided qoi file is invalid");
+      }
+      data = new byte[(int) channel.size()];
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+    }
+    ImageInfo info = readHeader(ByteBuffer.wrap(data));
+    int width = info.getWidth();
+    int height = info.getHeight();
+
+    // Pixels are held as ARGB, so that the alpha takes part in the table like the colors do.
+    int[] table = new int[64];
+    int pixel = 0xFF000000;
+    int run = 0;
+    int p = HEADER_SIZE;
+    int end = data.length - END_MARKER.length;
+    int[][][] rgbValues = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        if (run > 0) {
+          run--;
+        } else {
+          if (p >= end) {
+            throw new IllegalArgumentException("Provided qoi file is invalid");
+          }
+          int b1 = data[p++] & 0xFF;
+          if (b1 == OP_RGB || b1 == OP_RGBA) {
+            if (p + (b1 == OP_RGB ? 3 : 4) > end) {
+              throw new IllegalArgumentException("Provided qoi file is invalid");
+            }
+            int alpha = pixel & 0xFF000000;
+            pixel = (data[p] & 0xFF) << 16 | (data[p + 1] & 0xFF) << 8 | (data[p + 2] & 0xFF);
+            p += 3;
+            pixel |= b1 == OP_RGB ? alpha : (data[p++] & 0xFF) << 24;
+          } else if ((b1 & MASK) == OP_INDEX) {
+            pixel = table[b1];
+          } else if ((b1 & MASK) == OP_DIFF) {
+            pixel = addToChannels(pixel, ((b1 >> 4) & 0x03) - 2, ((b1 >> 2) & 0x03) - 2,
+                (b1 & 0x03) - 2);
+          } else if ((b1 & MASK) == OP_LUMA) {
+            if (p >= end) {
+              throw new IllegalArgumentException("Provided qoi file is invalid");
+            }
+            int b2 = data[p++] & 0xFF;
+            int greenDiff = (b1 & 0x3F) - 32;
+            pixel = addToChannels(pixel, greenDiff - 8 + ((b2 >> 4) & 0x0F), greenDiff,
+                greenDiff - 8 + (b2 & 0x0F));
+          } else {
+            run = b1 & 0x3F;
+          }
+          table[hash(pixel)] = pixel;
+        }
+
+        int[] values = rgbValues[i][j];
+        values[0] = (pixel >> 16) & 0xFF;  // Red value
+        values[1] = (pixel >> 8) & 0xFF;  // Green value
+        values[2] = pixel & 0xFF;  // Blue value
+      }
+    }
+    return new Image(rgbValues, width, height);
+  }
+
+  @Override
+  public ImageInfo probe(String filePath) throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining()) {
+        if (channel.read(header) < 0) {
+          throw new IllegalArgumentException("Provided qoi file is invalid");
+        }
+      }
+      return readHeader(header);
+    }
+  }
+
+  /**
+   * Reads and validates the header at the start of the given bytes.
+   *
+   * @return the dimensions of the image.
+   */
+  private static ImageInfo readHeader(ByteBuffer header) throws IllegalArgumentException {
+    if (header.limit() < HEADER_SIZE) {
+      throw new IllegalArgumentException("Provided qoi file is invalid");
+    }
+    long width = header.getInt(4) & 0xFFFFFFFFL;
+    long height = header.getInt(8) & 0xFFFFFFFFL;
+    int channels = header.get(12);
+    int colorspace = header.get(13);
+    if (header.getInt(0) != ByteBuffer.wrap(MAGIC).getInt() || width == 0 || height == 0
+        || width * height > MAX_PIXELS || (channels != 3 && channels != 4)
+        || (colorspace != 0 && colorspace != 1)) {
+      throw new IllegalArgumentException("Provided qoi file is invalid");
+    }
+    return new ImageInfo("qoi", (int) width, (int) height);
+  }
+
+  @Override
+  public void saveToFile(String filePath, IImage imageToSave) throws IOException {
+    fileFormatCheck(filePath);
+
+    int width = imageToSave.getWidth();
+    int height = imageToSave.getHeight();
+    byte[] block = new byte[BLOCK_SIZE];
+    ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      // Colors are stored as sRGB with three channels.
+      blockBuffer.put(MAGIC).putInt(width).putInt(height).put((byte) 3).put((byte) 0);
+      int k = HEADER_SIZE;
+
+      int[] table = new int[64];
+      int previous = 0xFF000000;
+      int run = 0;
+      int[] row = new int[width * 3];
+      for (int i = 0; i < height; i++) {
+        imageToSave.getRowValues(i, row);
+        for (int j = 0; j < 3 * width; j += 3) {
+          if (k > BLOCK_SIZE - MAX_PIXEL_LENGTH) {
+            writeFully(channel, blockBuffer.clear().limit(k));
+            k = 0;
+          }
+          int pixel = 0xFF000000 | row[j] << 16 | row[j + 1] << 8 | row[j + 2];
+          if (pixel == previous) {
+            run++;
+            if (run == MAX_RUN) {
+              block[k++] = (byte) (OP_RUN | (run - 1));
+              run = 0;
+            }
+            continue;
+          }
+          if (run > 0) {
+            block[k++] = (byte) (OP_RUN | (run - 1));
+            run = 0;
+          }
+
+          int position = hash(pixel);
+          if (table[position] == pixel) {
+            block[k++] = (byte) (OP_INDEX | position);
+          } else {
+            table[position] = pixel;
+            // Differences wrap around, as the channels are bytes.
+            int redDiff = (byte) (row[j] - (previous >> 16));
+            int greenDiff = (byte) (row[j + 1] - (previous >> 8));
+            int blueDiff = (byte) (row[j + 2] - previous);
+            int redGreenDiff = redDiff - greenDiff;
+            int blueGreenDiff = blueDiff - greenDiff;
+            if (redDiff >= -2 && redDiff <= 1 && greenDiff >= -2 && greenDiff <= 1
+                && blueDiff >= -2 && blueDiff <= 1) {
+              block[k++] = (byte) (OP_DIFF | (redDiff + 2) << 4 | (greenDiff + 2) << 2
+                  | (blueDiff + 2));
+            } else if (greenDiff >= -32 && greenDiff <= 31 && redGreenDiff >= -8
+                && redGreenDiff <= 7 && blueGreenDiff >= -8 && blueGreenDiff <= 7) {
+              block[k++] = (byte) (OP_LUMA | (greenDiff + 32));
+              block[k++] = (byte) ((redGreenDiff + 8) << 4 | (blueGreenDiff + 8));
+            } else {
+              block[k++] = (byte) OP_RGB;
+              block[k++] = (byte) row[j];
+              block[k++] = (byte) row[j + 1];
+              block[k++] = (byte) row[j + 2];
+            }
+          }
+          previous = pixel;
+        }
+      }
+      if (k > BLOCK_SIZE - 1 - END_MARKER.length) {
+        writeFully(channel, blockBuffer.clear().limit(k));
+        k = 0;
+      }
+      if (run > 0) {
+        block[k++] = (byte) (OP_RUN | (run - 1));
+      }
+      System.arraycopy(END_MARKER, 0, block, k, END_MARKER.length);
+      k += END_MARKER.length;
+      writeFully(channel, blockBuffer.clear().limit(k));
+    }
+  }
+
+  /**
+   * Returns the position of the given ARGB pixel in the table of recently seen pixels.
+   */
+  private static int hash(int pixel) {
+    return (((pixel >> 16) & 0xFF) * 3 + ((pixel >> 8) & 0xFF) * 5 + (pixel & 0xFF) * 7
+        + (pixel >>> 24) * 11) % 64;
+  }
+
+  /**
+   * Adds the given differences to the red, green and blue of an ARGB pixel, wrapping around.
+   */
+  private static int addToChannels(int pixel, int redDiff, int greenDiff, int blueDiff) {
+    int red = (((pixel >> 16) & 0xFF) + redDiff) & 0xFF;
+    int green = (((pixel >> 8) & 0xFF) + greenDiff) & 0xFF;
+    int blue = ((pixel & 0xFF) + blueDiff) & 0xFF;
+    return (pixel & 0xFF000000) | red << 16 | green << 8 | blue;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private String getExtensionFromPath(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = "";
+    int i = filePath.lastIndexOf('.');
+    if (i > 0) {
+      extension = filePath.substring(i + 1);
+    }
+    return extension;
+  }
+
+  private void fileFormatCheck(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = getExtensionFromPath(filePath).toLowerCase();
+
+    if (!extension.equals("qoi")) {
+      throw new FileFormatException("Unsupported file extension: " + extension);
+    }
+  }
+}
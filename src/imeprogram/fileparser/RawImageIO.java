@@ -0,0 +1,366 @@
+package imeprogram.fileparser;
+
+import imeprogram.exceptions.FileFormatException;
+import imeprogram.model.IImage;
+import imeprogram.model.Image;
+import imeprogram.model.MappedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Helper for file operations on a raw image file. The file holds the 8-bit samples of an image
+ * exactly as they are laid out in memory, so it is saved and loaded at the speed of the disk.
+ *
+ * <p>The file starts with a fixed header of {@value #HEADER_SIZE} bytes: a magic number, the width
+ * and height of the image, the number of channels (1 for grayscale or 3 for color), the layout of
+ * the samples, and the CRC32 of the samples. The samples follow, row after row, either interleaved
+ * per pixel or planar, with all of one channel before the next. Images are saved as interleaved
+ * color samples, which large files are memory-mapped from rather than read.
+ *
+ * <p>The checksum is checked whenever every sample is read: by loads onto the heap and by row
+ * readers. A mapped file opens without reading its samples, so its checksum is not checked, and
+ * its header and size are all that is validated.
+ */
+class RawImageIO implements IImageFileIO {
+
+  static final byte[] MAGIC = {'I', 'M', 'E', 'R', 'A', 'W', 0, 1};
+  static final int HEADER_SIZE = 24;
+  private static final byte INTERLEAVED = 0;
+  private static final byte PLANAR = 1;
+  // Number of bytes of samples moved by each bulk write.
+  private static final int BLOCK_SIZE = 1 << 20;
+  // Largest region mapped at once to compute the checksum.
+  private static final long MAX_SEGMENT_SIZE = 1L << 30;
+  // Interleaved color images with at least this many bytes of samples are mapped instead of read.
+  private static final long MAP_THRESHOLD = 1L << 26;
+
+  @Override
+  public IImage loadFromFile(String filePath) throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel);
+      int width = header.getInt(MAGIC.length);
+      int height = header.getInt(MAGIC.length + 4);
+      int channels = header.get(MAGIC.length + 8);
+      boolean planar = header.get(MAGIC.length + 9) == PLANAR;
+      long samples = (long) width * height * channels;
+      if (channels == 3 && !planar && samples >= MAP_THRESHOLD) {
+        // The checksum would touch every page of the file, which mapping is meant to avoid.
+        return new MappedImage(Paths.get(filePath), HEADER_SIZE, width, height);
+      }
+      if (checksum(channel, samples) != header.getInt(MAGIC.length + 12)) {
+        throw new IllegalArgumentException("Provided raw file is invalid");
+      }
+      return new Image(readSamples(channel, width, height, channels, planar), width, height);
+    }
+  }
+
+  @Override
+  public ImageInfo probe(String filePath) throws IOException, IllegalArgumentException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel);
+      return new ImageInfo("imeraw", header.getInt(MAGIC.length),
+          header.getInt(MAGIC.length + 4));
+    }
+  }
+
+  /**
+   * Reads and validates the header of the file, including that the file is as long as the header
+   * says.
+   *
+   * @return the header.
+   */
+  private static ByteBuffer readHeader(FileChannel channel)
+      throws IOException, IllegalArgumentException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining()) {
+      if (channel.read(header) < 0) {
+        throw new IllegalArgumentException("Provided raw file is invalid");
+      }
+    }
+    byte[] magic = new byte[MAGIC.length];
+    header.duplicate().position(0).get(magic);
+    int width = header.getInt(MAGIC.length);
+    int height = header.getInt(MAGIC.length + 4);
+    int channels = header.get(MAGIC.length + 8);
+    int layout = header.get(MAGIC.length + 9);
+    if (!Arrays.equals(magic, MAGIC) || width <= 0 || height <= 0
+        || (channels != 1 && channels != 3) || (layout != INTERLEAVED && layout != PLANAR)
+        || channel.size() != HEADER_SIZE + (long) width * height * channels) {
+      throw new IllegalArgumentException("Provided raw file is invalid");
+    }
+    return header;
+  }
+
+  private static int checksum(FileChannel channel, long samples) throws IOException {
+    CRC32 crc = new CRC32();
+    for (long offset = 0; offset < samples; offset += MAX_SEGMENT_SIZE) {
+      crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset,
+          Math.min(MAX_SEGMENT_SIZE, samples - offset)));
+    }
+    return (int) crc.getValue();
+  }
+
+  private static int[][][] readSamples(FileChannel channel, int width, int height, int channels,
+      boolean planar) {
+    int[][][] rgbValues = new int[height][width][3];
+    // Positional reads leave the position of the channel untouched, so rows are read in parallel.
+    IntStream.range(0, height).parallel().forEach(i -> {
+      byte[] row = new byte[width * channels];
+      try {
+        if (planar) {
+          for (int c = 0; c < channels; c++) {
+            readFully(channel, ByteBuffer.wrap(row, c * width, width),
+                HEADER_SIZE + ((long) c * height + i) * width);
+          }
+        } else {
+          readFully(channel, ByteBuffer.wrap(row), HEADER_SIZE + (long) i * width * channels);
+        }
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Provided raw file is invalid");
+      }
+      for (int j = 0; j < width; j++) {
+        for (int c = 0; c < 3; c++) {
+          int k = channels == 1 ? j : planar ? c * width + j : 3 * j + c;
+          rgbValues[i][j][c] = row[k] & 0xFF;
+        }
+      }
+    });
+    return rgbValues;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer destination, long position)
+      throws IOException {
+    while (destination.hasRemaining()) {
+      int read = channel.read(destination, position);
+      if (read < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+      position += read;
+    }
+  }
+
+  @Override
+  public IImageRowReader openRowReader(String filePath)
+      throws IOException, IllegalArgumentException {
+    FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    try {
+      ByteBuffer header = readHeader(channel);
+      int width = header.getInt(MAGIC.length);
+      int height = header.getInt(MAGIC.length + 4);
+      int channels = header.get(MAGIC.length + 8);
+      // The checksum is computed over the mapped file, which takes no heap.
+      if (checksum(channel, (long) width * height * channels)
+          != header.getInt(MAGIC.length + 12)) {
+        throw new IllegalArgumentException("Provided raw file is invalid");
+      }
+      return new RawRowReader(channel, width, height, channels,
+          header.get(MAGIC.length + 9) == PLANAR);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void saveToFile(String filePath, IImage imageToSave) throws IOException {
+    int width = imageToSave.getWidth();
+    int height = imageToSave.getHeight();
+    int[][] rows = new int[1][width * 3];
+    try (IImageRowWriter writer = openRowWriter(filePath, width, height, null)) {
+      for (int i = 0; i < height; i++) {
+        imageToSave.getRowValues(i, rows[0]);
+        writer.writeRows(rows, 1);
+      }
+    }
+  }
+
+  @Override
+  public IImageRowWriter openRowWriter(String filePath, int width, int height,
+      WriteOptions options) throws IOException {
+    fileFormatCheck(filePath);
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid dimensions for the image.");
+    }
+    return new RawRowWriter(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), width, height);
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private String getExtensionFromPath(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = "";
+    int i = filePath.lastIndexOf('.');
+    if (i > 0) {
+      extension = filePath.substring(i + 1);
+    }
+    return extension;
+  }
+
+  private void fileFormatCheck(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = getExtensionFromPath(filePath).toLowerCase();
+
+    if (!extension.equals("imeraw")) {
+      throw new FileFormatException("Unsupported file extension: " + extension);
+    }
+  }
+
+  /**
+   * Reads the rows of a raw file with positional reads, so only one row is held at a time.
+   */
+  private static final class RawRowReader implements IImageRowReader {
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final boolean planar;
+    private final byte[] row;
+    private int nextRow;
+
+    RawRowReader(FileChannel channel, int width, int height, int channels, boolean planar) {
+      this.channel = channel;
+      this.width = width;
+      this.height = height;
+      this.channels = channels;
+      this.planar = planar;
+      this.row = new byte[width * channels];
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int readRows(int[][] rows) throws IOException, IllegalArgumentException {
+      int count = Math.min(rows.length, height - nextRow);
+      for (int r = 0; r < count; r++) {
+        int[] values = rows[r];
+        if (values.length < width * 3) {
+          throw new IllegalArgumentException("Array is too short to hold the row.");
+        }
+        int i = nextRow + r;
+        if (planar) {
+          for (int c = 0; c < channels; c++) {
+            readFully(channel, ByteBuffer.wrap(row, c * width, width),
+                HEADER_SIZE + ((long) c * height + i) * width);
+          }
+        } else {
+          readFully(channel, ByteBuffer.wrap(row), HEADER_SIZE + (long) i * width * channels);
+        }
+        for (int j = 0; j < width; j++) {
+          for (int c = 0; c < 3; c++) {
+            int k = channels == 1 ? j : planar ? c * width + j : 3 * j + c;
+            values[3 * j + c] = row[k] & 0xFF;
+          }
+        }
+      }
+      nextRow += count;
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Writes the rows of a raw file as interleaved color samples. The samples are written after the
+   * header, which is written last with their checksum.
+   */
+  private static final class RawRowWriter implements IImageRowWriter {
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final byte[] block;
+    private final ByteBuffer blockBuffer;
+    private final CRC32 crc = new CRC32();
+    private int position;
+    private int nextRow;
+    private boolean closed;
+
+    RawRowWriter(FileChannel channel, int width, int height) throws IOException {
+      this.channel = channel;
+      this.width = width;
+      this.height = height;
+      this.block = new byte[Math.max(BLOCK_SIZE, width * 3)];
+      this.blockBuffer = ByteBuffer.wrap(block);
+      channel.position(HEADER_SIZE);
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public void writeRows(int[][] rows, int count) throws IOException, IllegalArgumentException {
+      if (count < 0 || count > rows.length || nextRow + count > height) {
+        throw new IllegalArgumentException("Rows go past the bottom of the image.");
+      }
+      int rowBytes = width * 3;
+      int k = position;
+      for (int r = 0; r < count; r++) {
+        int[] row = rows[r];
+        if (row.length < rowBytes) {
+          throw new IllegalArgumentException("Array is too short to hold the row.");
+        }
+        if (k > block.length - rowBytes) {
+          crc.update(block, 0, k);
+          writeFully(channel, blockBuffer.clear().limit(k));
+          k = 0;
+        }
+        for (int v = 0; v < rowBytes; v++) {
+          block[k++] = (byte) row[v];
+        }
+        nextRow++;
+      }
+      position = k;
+    }
+
+    @Override
+    public void close() throws IOException, IllegalStateException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try (FileChannel file = channel) {
+        if (nextRow < height) {
+          throw new IllegalStateException("Not every row was written.");
+        }
+        crc.update(block, 0, position);
+        writeFully(file, blockBuffer.clear().limit(position));
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putInt(width).putInt(height).put((byte) 3).put(INTERLEAVED)
+            .putShort((short) 0).putInt((int) crc.getValue());
+        file.position(0);
+        writeFully(file, header.flip());
+      }
+    }
+  }
+}
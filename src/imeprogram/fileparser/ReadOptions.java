@@ -0,0 +1,153 @@
+package imeprogram.fileparser;
+
+import imeprogram.model.IImage;
+import imeprogram.model.Image;
+
+/**
+ * This class represents the options for loading an image. An image can be loaded at a lower
+ * resolution by keeping only every n-th pixel along each axis, or cropped to a region of the file,
+ * or both. Subsampling is applied within the region, starting from its top left pixel.
+ */
+public class ReadOptions {
+
+  private final int subsampling;
+  private final int regionX;
+  private final int regionY;
+  private final int regionWidth;
+  private final int regionHeight;
+
+  /**
+   * Instantiate a ReadOptions object that loads the whole image.
+   *
+   * @param subsampling the distance between the pixels that are kept, 1 to keep every pixel.
+   * @throws IllegalArgumentException If the subsampling is less than 1.
+   */
+  public ReadOptions(int subsampling) throws IllegalArgumentException {
+    this(subsampling, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Instantiate a ReadOptions object that loads a region of the image. The region is clipped to
+   * the bounds of the image.
+   *
+   * @param subsampling  the distance between the pixels that are kept, 1 to keep every pixel.
+   * @param regionX      the column of the top left pixel of the region.
+   * @param regionY      the row of the top left pixel of the region.
+   * @param regionWidth  the width of the region.
+   * @param regionHeight the height of the region.
+   * @throws IllegalArgumentException If the subsampling is less than 1, or the region is empty or
+   *                                  starts at a negative position.
+   */
+  public ReadOptions(int subsampling, int regionX, int regionY, int regionWidth,
+      int regionHeight) throws IllegalArgumentException {
+    if (subsampling < 1) {
+      throw new IllegalArgumentException("Subsampling must be at least 1.");
+    }
+    if (regionX < 0 || regionY < 0 || regionWidth <= 0 || regionHeight <= 0) {
+      throw new IllegalArgumentException("Invalid region.");
+    }
+    this.subsampling = subsampling;
+    this.regionX = regionX;
+    this.regionY = regionY;
+    this.regionWidth = regionWidth;
+    this.regionHeight = regionHeight;
+  }
+
+  /**
+   * Gets the distance between the pixels that are kept.
+   *
+   * @return the subsampling.
+   */
+  public int getSubsampling() {
+    return subsampling;
+  }
+
+  /**
+   * Checks if only a region of the image is loaded.
+   *
+   * @return True if a region was given.
+   */
+  public boolean hasRegion() {
+    return regionX != 0 || regionY != 0 || regionWidth != Integer.MAX_VALUE
+        || regionHeight != Integer.MAX_VALUE;
+  }
+
+  /**
+   * Gets the column of the top left pixel of the region.
+   *
+   * @return the column.
+   */
+  public int getRegionX() {
+    return regionX;
+  }
+
+  /**
+   * Gets the row of the top left pixel of the region.
+   *
+   * @return the row.
+   */
+  public int getRegionY() {
+    return regionY;
+  }
+
+  /**
+   * Gets the width of the region.
+   *
+   * @return the width.
+   */
+  public int getRegionWidth() {
+    return regionWidth;
+  }
+
+  /**
+   * Gets the height of the region.
+   *
+   * @return the height.
+   */
+  public int getRegionHeight() {
+    return regionHeight;
+  }
+
+  /**
+   * Applies these options to an image that has already been loaded. This is used by the file
+   * formats that cannot decode only a part of a file.
+   *
+   * @param image the whole image.
+   * @return the subsampled region of the image, or the image itself if it is loaded whole.
+   * @throws IllegalArgumentException If the region lies outside the image.
+   */
+  IImage apply(IImage image) throws IllegalArgumentException {
+    if (subsampling == 1 && !hasRegion()) {
+      return image;
+    }
+    if (regionX >= image.getWidth() || regionY >= image.getHeight()) {
+      throw new IllegalArgumentException("Region lies outside the image.");
+    }
+    int right = (int) Math.min(image.getWidth(), (long) regionX + regionWidth);
+    int bottom = (int) Math.min(image.getHeight(), (long) regionY + regionHeight);
+    int width = (right - regionX + subsampling - 1) / subsampling;
+    int height = (bottom - regionY + subsampling - 1) / subsampling;
+
+    int[][][] rgbValues = new int[height][width][3];
+    int[] row = new int[3 * image.getWidth()];
+    for (int i = 0; i < height; i++) {
+      image.getRowValues(regionY + i * subsampling, row);
+      for (int j = 0; j < width; j++) {
+        int k = 3 * (regionX + j * subsampling);
+        rgbValues[i][j][0] = row[k];
+        rgbValues[i][j][1] = row[k + 1];
+        rgbValues[i][j][2] = row[k + 2];
+      }
+    }
+    return new Image(rgbValues, width, height);
+  }
+
+  @Override
+  public String toString() {
+    String options = "subsample=" + subsampling;
+    if (hasRegion()) {
+      options += " region=" + regionX + "," + regionY + "," + regionWidth + "," + regionHeight;
+    }
+    return options;
+  }
+}
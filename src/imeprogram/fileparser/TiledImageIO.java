@@ -0,0 +1,128 @@
+package imeprogram.fileparser;
+
+import imeprogram.exceptions.FileFormatException;
+import imeprogram.model.IImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
+
+/**
+ * Helper for file operations on a tiled image file. The image is cut into square tiles that are
+ * stored separately, so a region of the image can be loaded by reading only the tiles it overlaps.
+ *
+ * <p>The file starts with a header of {@value #HEADER_SIZE} bytes: a magic number, the width and
+ * height of the image, the tile size, and four reserved bytes. The index follows, with the offset
+ * and length of each tile, row of tiles after row of tiles. Each tile holds the interleaved red,
+ * green and blue samples of its pixels, row after row. The tiles at the right and bottom edges are
+ * cut to the image. A tile shorter than its samples is deflated.
+ */
+class TiledImageIO implements IImageFileIO {
+
+  static final byte[] MAGIC = {'I', 'M', 'E', 'T', 'I', 'L', 'E', 1};
+  static final int HEADER_SIZE = 24;
+  static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+  static final int MAX_TILE_SIZE = 4096;
+  static final long MAX_TILE_COUNT = 1L << 24;
+  private static final int TILE_SIZE = 256;
+
+  @Override
+  public IImage loadFromFile(String filePath) throws IOException, IllegalArgumentException {
+    try (TiledImageReader reader = new TiledImageReader(filePath)) {
+      return reader.readRegion(0, 0, reader.getWidth(), reader.getHeight());
+    }
+  }
+
+  @Override
+  public IImage loadFromFile(String filePath, ReadOptions options)
+      throws IOException, IllegalArgumentException {
+    try (TiledImageReader reader = new TiledImageReader(filePath)) {
+      int x = options.getRegionX();
+      int y = options.getRegionY();
+      if (x >= reader.getWidth() || y >= reader.getHeight()) {
+        throw new IllegalArgumentException("Region lies outside the image.");
+      }
+      IImage region = reader.readRegion(x, y,
+          Math.min(options.getRegionWidth(), reader.getWidth() - x),
+          Math.min(options.getRegionHeight(), reader.getHeight() - y));
+      return new ReadOptions(options.getSubsampling()).apply(region);
+    }
+  }
+
+  @Override
+  public ImageInfo probe(String filePath) throws IOException, IllegalArgumentException {
+    try (TiledImageReader reader = new TiledImageReader(filePath)) {
+      return new ImageInfo("imetile", reader.getWidth(), reader.getHeight());
+    }
+  }
+
+  @Override
+  public void saveToFile(String filePath, IImage imageToSave) throws IOException {
+    fileFormatCheck(filePath);
+
+    int width = imageToSave.getWidth();
+    int height = imageToSave.getHeight();
+    try (TiledImageWriter writer = new TiledImageWriter(filePath, width, height, TILE_SIZE,
+        true)) {
+      // The image is read one row of tiles at a time, which is then cut into tiles.
+      int[] row = new int[width * 3];
+      for (int tileRow = 0; tileRow < writer.getTilesDown(); tileRow++) {
+        int top = tileRow * TILE_SIZE;
+        int rows = Math.min(TILE_SIZE, height - top);
+        byte[][] tiles = new byte[writer.getTilesAcross()][];
+        for (int tileColumn = 0; tileColumn < tiles.length; tileColumn++) {
+          tiles[tileColumn] = new byte[Math.min(TILE_SIZE, width - tileColumn * TILE_SIZE)
+              * rows * 3];
+        }
+        for (int i = 0; i < rows; i++) {
+          imageToSave.getRowValues(top + i, row);
+          for (int tileColumn = 0; tileColumn < tiles.length; tileColumn++) {
+            int tileRowBytes = tiles[tileColumn].length / rows;
+            int from = tileColumn * TILE_SIZE * 3;
+            for (int k = 0; k < tileRowBytes; k++) {
+              tiles[tileColumn][i * tileRowBytes + k] = (byte) row[from + k];
+            }
+          }
+        }
+        // The tiles of a row are deflated in parallel.
+        int currentRow = tileRow;
+        try {
+          IntStream.range(0, tiles.length).parallel().forEach(tileColumn -> {
+            try {
+              writer.writeTile(tileColumn, currentRow, tiles[tileColumn]);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+        } catch (UncheckedIOException e) {
+          throw e.getCause();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of tiles of an image with the given dimensions.
+   */
+  static long getTileCount(int width, int height, int tileSize) {
+    return ((long) width + tileSize - 1) / tileSize * (((long) height + tileSize - 1) / tileSize);
+  }
+
+  private String getExtensionFromPath(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = "";
+    int i = filePath.lastIndexOf('.');
+    if (i > 0) {
+      extension = filePath.substring(i + 1);
+    }
+    return extension;
+  }
+
+  private void fileFormatCheck(String filePath) {
+    // Extract the file extension from the filepath
+    String extension = getExtensionFromPath(filePath).toLowerCase();
+
+    if (!extension.equals("imetile")) {
+      throw new FileFormatException("Unsupported file extension: " + extension);
+    }
+  }
+}
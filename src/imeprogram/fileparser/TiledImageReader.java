@@ -0,0 +1,222 @@
+package imeprogram.fileparser;
+
+import imeprogram.model.IImage;
+import imeprogram.model.Image;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads regions of a tiled image file. Only the index of the tiles is read when the file is
+ * opened, and reading a region fetches just the tiles that overlap it, so a region can be read
+ * from an image far larger than the heap. The tiles of a region are fetched and decoded in
+ * parallel.
+ *
+ * <p>The layout of the file is described in {@link TiledImageIO}.
+ */
+public class TiledImageReader implements AutoCloseable {
+
+  private final FileChannel channel;
+  private final int width;
+  private final int height;
+  private final int tileSize;
+  private final int tilesAcross;
+  private final long[] offsets;
+  private final int[] lengths;
+
+  /**
+   * Instantiate a TiledImageReader object by reading the header and the index of the given file.
+   *
+   * @param filePath the path of the file.
+   * @throws IOException              If the file cannot be read.
+   * @throws IllegalArgumentException If the file is not a valid tiled image file.
+   */
+  public TiledImageReader(String filePath) throws IOException, IllegalArgumentException {
+    FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(TiledImageIO.HEADER_SIZE);
+      readFully(channel, header, 0);
+      byte[] magic = new byte[TiledImageIO.MAGIC.length];
+      header.duplicate().position(0).get(magic);
+      int width = header.getInt(magic.length);
+      int height = header.getInt(magic.length + 4);
+      int tileSize = header.getInt(magic.length + 8);
+      if (!Arrays.equals(magic, TiledImageIO.MAGIC) || width <= 0 || height <= 0
+          || tileSize <= 0 || tileSize > TiledImageIO.MAX_TILE_SIZE
+          || TiledImageIO.getTileCount(width, height, tileSize) > TiledImageIO.MAX_TILE_COUNT) {
+        throw new IllegalArgumentException("Provided tiled file is invalid");
+      }
+
+      int tileCount = (int) TiledImageIO.getTileCount(width, height, tileSize);
+      ByteBuffer index = ByteBuffer.allocate(tileCount * TiledImageIO.INDEX_ENTRY_SIZE);
+      readFully(channel, index, TiledImageIO.HEADER_SIZE);
+      index.flip();
+      this.offsets = new long[tileCount];
+      this.lengths = new int[tileCount];
+      this.tilesAcross = (width + tileSize - 1) / tileSize;
+      for (int t = 0; t < tileCount; t++) {
+        offsets[t] = index.getLong();
+        lengths[t] = index.getInt();
+        int rawLength = getTileExtent(t % tilesAcross, width, tileSize)
+            * getTileExtent(t / tilesAcross, height, tileSize) * 3;
+        if (offsets[t] < 0 || lengths[t] <= 0 || lengths[t] > rawLength
+            || offsets[t] + lengths[t] > channel.size()) {
+          throw new IllegalArgumentException("Provided tiled file is invalid");
+        }
+      }
+      this.channel = channel;
+      this.width = width;
+      this.height = height;
+      this.tileSize = tileSize;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the width and height of a tile.
+   *
+   * @return the tile size.
+   */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  /**
+   * Reads a region of the image.
+   *
+   * @param x          the column of the top left pixel of the region.
+   * @param y          the row of the top left pixel of the region.
+   * @param areaWidth  the width of the region.
+   * @param areaHeight the height of the region.
+   * @return the pixels of the region.
+   * @throws IOException              If the file cannot be read.
+   * @throws IllegalArgumentException If the region does not lie within the image, or a tile is
+   *                                  invalid.
+   */
+  public IImage readRegion(int x, int y, int areaWidth, int areaHeight)
+      throws IOException, IllegalArgumentException {
+    if (x < 0 || y < 0 || areaWidth <= 0 || areaHeight <= 0
+        || (long) x + areaWidth > width || (long) y + areaHeight > height) {
+      throw new IllegalArgumentException("Region lies outside the image.");
+    }
+    int firstColumn = x / tileSize;
+    int lastColumn = (x + areaWidth - 1) / tileSize;
+    int firstRow = y / tileSize;
+    int lastRow = (y + areaHeight - 1) / tileSize;
+    int columns = lastColumn - firstColumn + 1;
+
+    int[][][] rgbValues = new int[areaHeight][areaWidth][3];
+    try {
+      IntStream.range(0, columns * (lastRow - firstRow + 1)).parallel().forEach(t -> {
+        int tileColumn = firstColumn + t % columns;
+        int tileRow = firstRow + t / columns;
+        byte[] samples;
+        try {
+          samples = readTile(tileColumn, tileRow);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        // Copy the part of the tile that overlaps the region.
+        int tileWidth = getTileExtent(tileColumn, width, tileSize);
+        int left = tileColumn * tileSize;
+        int top = tileRow * tileSize;
+        int fromColumn = Math.max(x, left);
+        int toColumn = Math.min(x + areaWidth, left + tileWidth);
+        int toRow = Math.min(y + areaHeight, top + getTileExtent(tileRow, height, tileSize));
+        for (int i = Math.max(y, top); i < toRow; i++) {
+          int k = ((i - top) * tileWidth + fromColumn - left) * 3;
+          int[][] destination = rgbValues[i - y];
+          for (int j = fromColumn; j < toColumn; j++) {
+            destination[j - x][0] = samples[k++] & 0xFF;
+            destination[j - x][1] = samples[k++] & 0xFF;
+            destination[j - x][2] = samples[k++] & 0xFF;
+          }
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new Image(rgbValues, areaWidth, areaHeight);
+  }
+
+  /**
+   * Reads the interleaved samples of a tile.
+   */
+  private byte[] readTile(int tileColumn, int tileRow) throws IOException {
+    int tile = tileRow * tilesAcross + tileColumn;
+    int rawLength = getTileExtent(tileColumn, width, tileSize)
+        * getTileExtent(tileRow, height, tileSize) * 3;
+    byte[] data = new byte[lengths[tile]];
+    readFully(channel, ByteBuffer.wrap(data), offsets[tile]);
+    if (data.length == rawLength) {
+      return data;
+    }
+
+    // A tile shorter than its samples is deflated.
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      byte[] samples = new byte[rawLength];
+      int inflated = inflater.inflate(samples);
+      if (inflated != rawLength || !inflater.finished()) {
+        throw new IllegalArgumentException("Provided tiled file is invalid");
+      }
+      return samples;
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Provided tiled file is invalid");
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Returns the width of the tile at the given column when the image has the given width, or
+   * equally the height of the tile at the given row when the image has the given height.
+   */
+  private static int getTileExtent(int tile, int extent, int tileSize) {
+    return Math.min(tileSize, extent - tile * tileSize);
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer destination, long position)
+      throws IOException {
+    while (destination.hasRemaining()) {
+      int read = channel.read(destination, position);
+      if (read < 0) {
+        throw new IllegalArgumentException("Provided tiled file is invalid");
+      }
+      position += read;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,210 @@
+package imeprogram.fileparser;
+
+import imeprogram.model.IReadOnlyImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a tiled image file one tile at a time, so an image can be saved while it is being
+ * produced, without ever holding all of it. Tiles may be written in any order and from several
+ * threads; each is compressed by the calling thread and then appended to the file. The index of
+ * the tiles is written when the writer is closed.
+ *
+ * <p>The layout of the file is described in {@link TiledImageIO}.
+ */
+public class TiledImageWriter implements AutoCloseable {
+
+  private final FileChannel channel;
+  private final int width;
+  private final int height;
+  private final int tileSize;
+  private final boolean compress;
+  private final int tilesAcross;
+  private final long[] offsets;
+  private final int[] lengths;
+  private long end;
+  private boolean closed;
+
+  /**
+   * Instantiate a TiledImageWriter object that creates the given file.
+   *
+   * @param filePath the path of the file.
+   * @param width    width of the image.
+   * @param height   height of the image.
+   * @param tileSize the width and height of a tile. The tiles at the right and bottom edges are
+   *                 cut to the image.
+   * @param compress whether to deflate the tiles. A tile that does not get smaller is stored as it
+   *                 is.
+   * @throws IOException              If the file cannot be created.
+   * @throws IllegalArgumentException If the dimensions or the tile size are invalid.
+   */
+  public TiledImageWriter(String filePath, int width, int height, int tileSize, boolean compress)
+      throws IOException, IllegalArgumentException {
+    if (width <= 0 || height <= 0 || tileSize <= 0 || tileSize > TiledImageIO.MAX_TILE_SIZE) {
+      throw new IllegalArgumentException("Invalid dimensions for the tiled image.");
+    }
+    long tileCount = TiledImageIO.getTileCount(width, height, tileSize);
+    if (tileCount > TiledImageIO.MAX_TILE_COUNT) {
+      throw new IllegalArgumentException("Invalid dimensions for the tiled image.");
+    }
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.compress = compress;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.offsets = new long[(int) tileCount];
+    this.lengths = new int[(int) tileCount];
+    Arrays.fill(lengths, -1);
+    this.end = TiledImageIO.HEADER_SIZE + tileCount * TiledImageIO.INDEX_ENTRY_SIZE;
+    this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Writes the tile at the given position.
+   *
+   * @param tileColumn the column of the tile, counted in tiles.
+   * @param tileRow    the row of the tile, counted in tiles.
+   * @param tile       the pixels of the tile, which must be as large as the tile.
+   * @throws IOException              If the tile cannot be written.
+   * @throws IllegalArgumentException If the position is outside the image, the tile has the wrong
+   *                                  size, or it was written already.
+   */
+  public void writeTile(int tileColumn, int tileRow, IReadOnlyImage tile)
+      throws IOException, IllegalArgumentException {
+    int tileWidth = getTileWidth(tileColumn);
+    int tileHeight = getTileHeight(tileRow);
+    if (tile.getWidth() != tileWidth || tile.getHeight() != tileHeight) {
+      throw new IllegalArgumentException("Tile does not have the size of its position.");
+    }
+    byte[] samples = new byte[tileWidth * tileHeight * 3];
+    int[] row = new int[tileWidth * 3];
+    for (int i = 0; i < tileHeight; i++) {
+      tile.getRowValues(i, row);
+      for (int k = 0; k < row.length; k++) {
+        samples[i * row.length + k] = (byte) row[k];
+      }
+    }
+    writeTile(tileColumn, tileRow, samples);
+  }
+
+  /**
+   * Writes the tile at the given position from its interleaved red, green and blue samples.
+   */
+  void writeTile(int tileColumn, int tileRow, byte[] samples)
+      throws IOException, IllegalArgumentException {
+    int tileWidth = getTileWidth(tileColumn);
+    int tileHeight = getTileHeight(tileRow);
+    if (samples.length != tileWidth * tileHeight * 3) {
+      throw new IllegalArgumentException("Tile does not have the size of its position.");
+    }
+
+    byte[] data = samples;
+    int length = samples.length;
+    if (compress) {
+      // A deflated tile that is not smaller than the samples would only slow reading down.
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(samples);
+        deflater.finish();
+        byte[] deflated = new byte[samples.length];
+        int deflatedLength = deflater.deflate(deflated);
+        if (deflater.finished() && deflatedLength < samples.length) {
+          data = deflated;
+          length = deflatedLength;
+        }
+      } finally {
+        deflater.end();
+      }
+    }
+
+    int tile = tileRow * tilesAcross + tileColumn;
+    long offset;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Writer is closed.");
+      }
+      if (lengths[tile] >= 0) {
+        throw new IllegalArgumentException("Tile was written already.");
+      }
+      offset = end;
+      end += length;
+      offsets[tile] = offset;
+      lengths[tile] = length;
+    }
+    // Each tile has its own region of the file, so tiles are written concurrently.
+    ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+    while (buffer.hasRemaining()) {
+      offset += channel.write(buffer, offset);
+    }
+  }
+
+  /**
+   * Gets the number of tiles along the width of the image.
+   *
+   * @return the number of tile columns.
+   */
+  public int getTilesAcross() {
+    return tilesAcross;
+  }
+
+  /**
+   * Gets the number of tiles along the height of the image.
+   *
+   * @return the number of tile rows.
+   */
+  public int getTilesDown() {
+    return (height + tileSize - 1) / tileSize;
+  }
+
+  private int getTileWidth(int tileColumn) {
+    if (tileColumn < 0 || tileColumn >= tilesAcross) {
+      throw new IllegalArgumentException("Tile is outside the image.");
+    }
+    return Math.min(tileSize, width - tileColumn * tileSize);
+  }
+
+  private int getTileHeight(int tileRow) {
+    if (tileRow < 0 || tileRow >= getTilesDown()) {
+      throw new IllegalArgumentException("Tile is outside the image.");
+    }
+    return Math.min(tileSize, height - tileRow * tileSize);
+  }
+
+  /**
+   * Writes the header and the index of the tiles, and closes the file.
+   *
+   * @throws IOException           If the file cannot be written.
+   * @throws IllegalStateException If a tile was not written.
+   */
+  @Override
+  public synchronized void close() throws IOException, IllegalStateException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try (FileChannel file = channel) {
+      for (int length : lengths) {
+        if (length < 0) {
+          throw new IllegalStateException("Not every tile was written.");
+        }
+      }
+      ByteBuffer header = ByteBuffer.allocate(
+          TiledImageIO.HEADER_SIZE + lengths.length * TiledImageIO.INDEX_ENTRY_SIZE);
+      header.put(TiledImageIO.MAGIC).putInt(width).putInt(height).putInt(tileSize).putInt(0);
+      for (int t = 0; t < lengths.length; t++) {
+        header.putLong(offsets[t]).putInt(lengths[t]);
+      }
+      header.flip();
+      long position = 0;
+      while (header.hasRemaining()) {
+        position += file.write(header, position);
+      }
+    }
+  }
+}
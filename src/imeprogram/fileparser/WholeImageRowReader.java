@@ -0,0 +1,47 @@
+package imeprogram.fileparser;
+
+import imeprogram.model.IReadOnlyImage;
+
+/**
+ * Reads the rows of an image that was loaded whole. This serves the file formats that cannot be
+ * decoded a row at a time, so it holds the whole image in memory.
+ */
+final class WholeImageRowReader implements IImageRowReader {
+
+  private final IReadOnlyImage image;
+  private int nextRow;
+
+  /**
+   * Instantiate a WholeImageRowReader object that reads the rows of the given image.
+   *
+   * @param image the loaded image.
+   */
+  WholeImageRowReader(IReadOnlyImage image) {
+    this.image = image;
+  }
+
+  @Override
+  public int getWidth() {
+    return image.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return image.getHeight();
+  }
+
+  @Override
+  public int readRows(int[][] rows) throws IllegalArgumentException {
+    int count = Math.min(rows.length, image.getHeight() - nextRow);
+    for (int r = 0; r < count; r++) {
+      image.getRowValues(nextRow + r, rows[r]);
+    }
+    nextRow += count;
+    return count;
+  }
+
+  @Override
+  public void close() {
+    // Nothing is held open.
+  }
+}
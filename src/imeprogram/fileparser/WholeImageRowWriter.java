@@ -0,0 +1,89 @@
+package imeprogram.fileparser;
+
+import imeprogram.model.Image;
+import java.io.IOException;
+
+/**
+ * Collects the rows written to it into an image, and saves the whole image when it is closed. This
+ * serves the file formats that cannot be encoded a row at a time, so it holds the whole image in
+ * memory.
+ */
+final class WholeImageRowWriter implements IImageRowWriter {
+
+  private final IImageFileIO imageIO;
+  private final String filePath;
+  private final WriteOptions options;
+  private final int width;
+  private final int height;
+  private final int[][][] rgbValues;
+  private int nextRow;
+  private boolean closed;
+
+  /**
+   * Instantiate a WholeImageRowWriter object.
+   *
+   * @param imageIO  the helper that saves the image.
+   * @param filePath the path where the image will be saved.
+   * @param width    width of the image.
+   * @param height   height of the image.
+   * @param options  the encoder options, or null for the defaults of the format.
+   * @throws IllegalArgumentException If the dimensions are not positive.
+   */
+  WholeImageRowWriter(IImageFileIO imageIO, String filePath, int width, int height,
+      WriteOptions options) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid dimensions for the image.");
+    }
+    this.imageIO = imageIO;
+    this.filePath = filePath;
+    this.options = options;
+    this.width = width;
+    this.height = height;
+    this.rgbValues = new int[height][][];
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public void writeRows(int[][] rows, int count) throws IllegalArgumentException {
+    if (count < 0 || count > rows.length || nextRow + count > height) {
+      throw new IllegalArgumentException("Rows go past the bottom of the image.");
+    }
+    for (int r = 0; r < count; r++) {
+      int[] values = rows[r];
+      if (values.length < width * 3) {
+        throw new IllegalArgumentException("Array is too short to hold the row.");
+      }
+      int[][] row = new int[width][];
+      for (int j = 0; j < width; j++) {
+        row[j] = new int[]{values[3 * j], values[3 * j + 1], values[3 * j + 2]};
+      }
+      rgbValues[nextRow++] = row;
+    }
+  }
+
+  @Override
+  public void close() throws IOException, IllegalStateException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (nextRow < height) {
+      throw new IllegalStateException("Not every row was written.");
+    }
+    Image image = new Image(rgbValues, width, height);
+    if (options == null) {
+      imageIO.saveToFile(filePath, image);
+    } else {
+      imageIO.saveToFile(filePath, image, options);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package imeprogram.fileparser;
+
+/**
+ * This class represents the options for saving an image, which trade the size of the file
+ * against the time taken to encode it. Each option applies to some file formats only, and the
+ * formats it does not apply to ignore it.
+ *
+ * <p>JPEG files use the quality and whether they are progressive. PNG files use the compression
+ * level and the filter applied to each row, which is one of none, sub, up, average, paeth, or
+ * adaptive to choose the best of those for each row. PPM files are binary (P6) rather than ASCII
+ * (P3) if asked to be.
+ */
+public class WriteOptions {
+
+  public static final int DEFAULT_QUALITY = 75;
+  public static final int DEFAULT_COMPRESSION = 4;
+  public static final String DEFAULT_FILTER = "adaptive";
+
+  private final int quality;
+  private final boolean progressive;
+  private final int compression;
+  private final String filter;
+  private final boolean binary;
+
+  /**
+   * Instantiate a WriteOptions object with the default options of every format.
+   */
+  public WriteOptions() {
+    this(DEFAULT_QUALITY, false, DEFAULT_COMPRESSION, DEFAULT_FILTER);
+  }
+
+  /**
+   * Instantiate a WriteOptions object with the given options.
+   *
+   * @param quality     the JPEG quality, from 1 (smallest) to 100 (best).
+   * @param progressive whether JPEG files are progressive.
+   * @param compression the PNG compression level, from 0 (fastest) to 9 (smallest).
+   * @param filter      the name of the PNG filter.
+   * @throws IllegalArgumentException If the quality or compression is out of range, or the filter
+   *                                  is unknown.
+   */
+  public WriteOptions(int quality, boolean progressive, int compression, String filter)
+      throws IllegalArgumentException {
+    this(quality, progressive, compression, filter, false);
+  }
+
+  /**
+   * Instantiate a WriteOptions object with the given options.
+   *
+   * @param quality     the JPEG quality, from 1 (smallest) to 100 (best).
+   * @param progressive whether JPEG files are progressive.
+   * @param compression the PNG compression level, from 0 (fastest) to 9 (smallest).
+   * @param filter      the name of the PNG filter.
+   * @param binary      whether PPM files are binary rather than ASCII.
+   * @throws IllegalArgumentException If the quality or compression is out of range, or the filter
+   *                                  is unknown.
+   */
+  public WriteOptions(int quality, boolean progressive, int compression, String filter,
+      boolean binary) throws IllegalArgumentException {
+    if (quality < 1 || quality > 100) {
+      throw new IllegalArgumentException("Quality must be between 1 and 100.");
+    }
+    if (compression < 0 || compression > 9) {
+      throw new IllegalArgumentException("Compression must be between 0 and 9.");
+    }
+    toPngFilter(filter);
+    this.quality = quality;
+    this.progressive = progressive;
+    this.compression = compression;
+    this.filter = filter.toLowerCase();
+    this.binary = binary;
+  }
+
+  /**
+   * Gets the JPEG quality.
+   *
+   * @return the quality, from 1 to 100.
+   */
+  public int getQuality() {
+    return quality;
+  }
+
+  /**
+   * Checks if JPEG files are progressive.
+   *
+   * @return True if JPEG files are progressive.
+   */
+  public boolean isProgressive() {
+    return progressive;
+  }
+
+  /**
+   * Gets the PNG compression level.
+   *
+   * @return the compression level, from 0 to 9.
+   */
+  public int getCompression() {
+    return compression;
+  }
+
+  /**
+   * Gets the name of the PNG filter.
+   *
+   * @return the filter.
+   */
+  public String getFilter() {
+    return filter;
+  }
+
+  /**
+   * Checks if PPM files are binary (P6) rather than ASCII (P3).
+   *
+   * @return True if PPM files are binary.
+   */
+  public boolean isBinary() {
+    return binary;
+  }
+
+  /**
+   * Gets the PNG filter that the encoder applies.
+   */
+  ParallelPngEncoder.Filter getPngFilter() {
+    return toPngFilter(filter);
+  }
+
+  private static ParallelPngEncoder.Filter toPngFilter(String filter)
+      throws IllegalArgumentException {
+    for (ParallelPngEncoder.Filter value : ParallelPngEncoder.Filter.values()) {
+      if (value.name().equalsIgnoreCase(filter)) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Unknown filter: " + filter);
+  }
+
+  @Override
+  public String toString() {
+    return "quality=" + quality + " progressive=" + progressive + " compression=" + compression
+        + " filter=" + filter + " binary=" + binary;
+  }
+}
@@ -0,0 +1,232 @@
+package imeprogram.model;
+
+import imeprogram.exceptions.FileFormatException;
+import imeprogram.fileparser.IImageFileIO;
+import imeprogram.fileparser.WriteOptions;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Saves images on a fixed number of background threads, so that the caller can go on while they
+ * are encoded and written. The caller is blocked while the given number of saves are already
+ * waiting, which bounds the images held for saving. The failures of saves are kept until they are
+ * collected by {@link #sync()}.
+ *
+ * <p>Saves of the same file are written one after another, in the order they were queued, while
+ * saves of different files run at the same time. A load of a file can wait for the saves of it
+ * with {@link #awaitSaves(String)}.
+ *
+ * <p>Saves are submitted and collected from a single thread. Each save holds the image it was
+ * given, so later changes to the image names of the model do not affect it.
+ */
+final class BackgroundSaver {
+
+  private final ExecutorService executor;
+  private final Semaphore slots;
+  private final Consumer<String> onWritten;
+  private final List<PendingSave> pending = new ArrayList<>();
+  // The last save queued for each file, which the next save of the file waits for.
+  private final Map<String, CompletableFuture<Void>> lastSaves = new HashMap<>();
+
+  /**
+   * Instantiate a BackgroundSaver object.
+   *
+   * @param threads   the number of threads that encode and write images.
+   * @param queueSize the number of saves that may wait for a thread.
+   * @param onWritten  called with the file path of each save once it has finished writing,
+   *                   whether it succeeded or not, before it counts as finished.
+   * @throws IllegalArgumentException If there are no threads, or the queue size is negative.
+   */
+  BackgroundSaver(int threads, int queueSize, Consumer<String> onWritten)
+      throws IllegalArgumentException {
+    if (threads < 1 || queueSize < 0) {
+      throw new IllegalArgumentException("Invalid number of save threads or queue size.");
+    }
+    AtomicInteger count = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "image-saver-" + count.incrementAndGet());
+      // Pending saves are waited for by sync, so they never keep the program alive.
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.slots = new Semaphore(threads + queueSize);
+    this.onWritten = onWritten;
+  }
+
+  /**
+   * Queues the save of an image, waiting while the queue is full. The save is written once the
+   * saves queued before it for the same file have finished.
+   *
+   * @param imageIO  the helper for the format of the file.
+   * @param filePath the path where the image will be saved.
+   * @param image    the image to be saved.
+   * @param options  the encoder options, or null for the defaults of the format.
+   */
+  void submit(IImageFileIO imageIO, String filePath, IImage image, WriteOptions options) {
+    String fileKey = getFileKey(filePath);
+    Runnable save = () -> {
+      try {
+        ImageFileWriter.write(imageIO, filePath, image, options);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      } finally {
+        onWritten.accept(filePath);
+        slots.release();
+      }
+    };
+
+    slots.acquireUninterruptibly();
+    CompletableFuture<Void> future;
+    try {
+      CompletableFuture<Void> previous = lastSaves.get(fileKey);
+      future = previous == null ? CompletableFuture.runAsync(save, executor)
+          : previous.handle((result, failure) -> result).thenRunAsync(save, executor);
+    } catch (RuntimeException e) {
+      slots.release();
+      throw e;
+    }
+    // Saves that finished need not be waited for, and those that succeeded need not be remembered.
+    lastSaves.values().removeIf(CompletableFuture::isDone);
+    lastSaves.put(fileKey, future);
+    pending.removeIf(PendingSave::hasSucceeded);
+    pending.add(new PendingSave(filePath, future));
+  }
+
+  /**
+   * Waits for the queued saves of the given file to finish. Their failures are still reported by
+   * the next sync.
+   *
+   * @param filePath the path of the file.
+   */
+  void awaitSaves(String filePath) {
+    CompletableFuture<Void> last = lastSaves.get(getFileKey(filePath));
+    if (last != null) {
+      last.handle((result, failure) -> result).join();
+    }
+  }
+
+  /**
+   * Checks if a save of the given file is queued or being written.
+   *
+   * @param filePath the path of the file.
+   * @return True if the file has a save that has not finished.
+   */
+  boolean hasPendingSave(String filePath) {
+    CompletableFuture<Void> last = lastSaves.get(getFileKey(filePath));
+    return last != null && !last.isDone();
+  }
+
+  /**
+   * Returns the same key for every path of a file, as far as it can be told without the file
+   * existing, and the path itself if it is not a valid path.
+   */
+  private static String getFileKey(String filePath) {
+    try {
+      Path path = Paths.get(filePath).toAbsolutePath().normalize();
+      Path parent = path.getParent();
+      if (parent != null && Files.isDirectory(parent)) {
+        path = parent.toRealPath().resolve(path.getFileName());
+      }
+      return path.toString();
+    } catch (InvalidPathException | IOException e) {
+      return filePath;
+    }
+  }
+
+  /**
+   * Waits for every queued save to finish.
+   *
+   * @return each save that failed since the last sync, in the order they were queued.
+   */
+  List<SaveFailure> sync() {
+    List<SaveFailure> failures = new ArrayList<>();
+    for (Iterator<PendingSave> it = pending.iterator(); it.hasNext(); ) {
+      PendingSave save = it.next();
+      Exception failure = save.awaitFailure();
+      if (failure != null) {
+        failures.add(new SaveFailure(save.filePath, failure));
+      }
+      it.remove();
+    }
+    lastSaves.clear();
+    return failures;
+  }
+
+  /**
+   * Waits for every queued save to finish and stops the threads. The failures are returned as by
+   * {@link #sync()}.
+   */
+  List<SaveFailure> shutdown() {
+    List<SaveFailure> failures = sync();
+    executor.shutdown();
+    return failures;
+  }
+
+  /**
+   * A queued save and the file it writes.
+   */
+  private static final class PendingSave {
+
+    private final String filePath;
+    private final CompletableFuture<Void> future;
+
+    private PendingSave(String filePath, CompletableFuture<Void> future) {
+      this.filePath = filePath;
+      this.future = future;
+    }
+
+    private boolean hasSucceeded() {
+      return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Waits for the save to finish, and returns its failure in the form a synchronous save would
+     * have thrown it, or null if it succeeded.
+     */
+    private Exception awaitFailure() {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            future.get();
+            return null;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+              return new FileNotFoundException(cause.getMessage());
+            } else if (cause instanceof RuntimeException) {
+              // Includes the FileFormatException of an encoder that rejects the file.
+              return new FileFormatException("Invalid image file format");
+            } else if (cause instanceof Error) {
+              throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package imeprogram.model;
+
+/**
+ * This class represents the outcome of compressing an image to a quality target. It holds the
+ * compressed image, the compression ratio that was chosen, the quality achieved with it, and whether
+ * that quality meets the target.
+ */
+public class CompressionResult {
+
+  private final IImage image;
+  private final int ratio;
+  private final double psnr;
+  private final long coefficientCount;
+  private final boolean targetMet;
+
+  /**
+   * Instantiate a CompressionResult object.
+   *
+   * @param image            the compressed image.
+   * @param ratio            the compression ratio that was chosen.
+   * @param psnr             the PSNR of the compressed image against the source image, in dB.
+   * @param coefficientCount the number of non-zero haar coefficients kept by the compression.
+   * @param targetMet        whether the compressed image meets the quality target.
+   */
+  public CompressionResult(IImage image, int ratio, double psnr, long coefficientCount,
+      boolean targetMet) {
+    this.image = image;
+    this.ratio = ratio;
+    this.psnr = psnr;
+    this.coefficientCount = coefficientCount;
+    this.targetMet = targetMet;
+  }
+
+  /**
+   * Gets the compressed image.
+   *
+   * @return the compressed image.
+   */
+  public IImage getImage() {
+    return this.image;
+  }
+
+  /**
+   * Gets the compression ratio that was chosen.
+   *
+   * @return the compression percentage.
+   */
+  public int getRatio() {
+    return this.ratio;
+  }
+
+  /**
+   * Gets the PSNR of the compressed image against the source image. It is infinite when both the
+   * images are identical.
+   *
+   * @return the PSNR in dB.
+   */
+  public double getPsnr() {
+    return this.psnr;
+  }
+
+  /**
+   * Gets the number of non-zero haar coefficients kept by the compression.
+   *
+   * @return the number of coefficients kept.
+   */
+  public long getCoefficientCount() {
+    return this.coefficientCount;
+  }
+
+  /**
+   * Checks if the compressed image meets the quality target. When no ratio meets it, the result
+   * holds the ratio that comes closest.
+   *
+   * @return true if the quality target is met.
+   */
+  public boolean isTargetMet() {
+    return this.targetMet;
+  }
+}
@@ -0,0 +1,259 @@
+package imeprogram.model;
+
+import imeprogram.fileparser.ReadOptions;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the images decoded from files, so that loading an unchanged file again takes
+ * the decoded image instead of decoding it anew. An image is kept for the canonical path of its
+ * file and the options it was loaded with, along with the size and modification time the file had
+ * when decoding started. A file whose size or modification time changed since is decoded again.
+ *
+ * <p>The images are kept within a memory budget, and the least recently loaded images are dropped
+ * first to make room. The same image is handed to every load that takes it, which is safe because
+ * the operations of the model never change an image, they produce new ones. A kept image is marked
+ * as shared, so that {@link IImage#combineRGB} refuses to overwrite it. Images mapped from a
+ * file are not kept, since they load without decoding and keeping them would keep the file mapped.
+ *
+ * <p>A cache may be shared by several models, so that they do not decode the same files twice.
+ */
+public class DecodedImageCache {
+
+  // Approximate heap size of an Image, whose pixels are an int[3] array each.
+  private static final long BYTES_PER_PIXEL = 36;
+  private static final long BYTES_PER_ROW = 20;
+
+  private long budget;
+  private long usedBytes;
+  private long hits;
+  private long misses;
+  // Ordered from the least to the most recently loaded image.
+  private final Map<String, CachedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Decodes an image from its file.
+   */
+  interface Decoder {
+
+    IImage decode() throws IOException;
+  }
+
+  /**
+   * Instantiate a DecodedImageCache object.
+   *
+   * @param budget the number of bytes the kept images may take up.
+   * @throws IllegalArgumentException If the budget is negative.
+   */
+  public DecodedImageCache(long budget) throws IllegalArgumentException {
+    setBudget(budget);
+  }
+
+  /**
+   * Sets the number of bytes the kept images may take up, dropping the least recently loaded
+   * images until they fit.
+   *
+   * @param budget the budget in bytes, or 0 to keep no images.
+   * @throws IllegalArgumentException If the budget is negative.
+   */
+  public synchronized void setBudget(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("The cache budget cannot be negative.");
+    }
+    this.budget = budget;
+    evict();
+  }
+
+  /**
+   * Gets the number of bytes the kept images may take up.
+   *
+   * @return the budget in bytes.
+   */
+  public synchronized long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Gets the approximate number of bytes taken up by the kept images.
+   *
+   * @return the used bytes.
+   */
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * Gets the number of images kept.
+   *
+   * @return the number of images.
+   */
+  public synchronized int getImageCount() {
+    return images.size();
+  }
+
+  /**
+   * Gets the number of loads that took a kept image.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of loads that had to decode their file.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Drops every kept image.
+   */
+  public synchronized void clear() {
+    images.clear();
+    usedBytes = 0;
+  }
+
+  /**
+   * Loads an image, taking the kept image if its file did not change, or decoding it and keeping
+   * the result otherwise.
+   *
+   * @param filePath the path of the file.
+   * @param options  the options of the load, or null to load the whole image.
+   * @param decoder  decodes the image when it is not kept.
+   * @return the image.
+   * @throws IOException              If the file could not be read.
+   * @throws IllegalArgumentException If the file is not a valid image.
+   */
+  IImage load(String filePath, ReadOptions options, Decoder decoder)
+      throws IOException, IllegalArgumentException {
+    String path = getCanonicalPath(filePath);
+    if (path == null) {
+      return decoder.decode();
+    }
+    File file = new File(path);
+    // The file is stamped before decoding starts, so a change during decoding is noticed.
+    long lastModified = file.lastModified();
+    long length = file.length();
+    String key = getKey(path, options);
+    synchronized (this) {
+      CachedImage cached = images.get(key);
+      if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+        hits++;
+        return cached.image;
+      }
+      misses++;
+    }
+
+    IImage image = decoder.decode();
+    if (image instanceof Image && lastModified != 0) {
+      long size = BYTES_PER_ROW * image.getHeight()
+          + BYTES_PER_PIXEL * image.getHeight() * image.getWidth();
+      put(key, new CachedImage(path, lastModified, length, image, size));
+    }
+    return image;
+  }
+
+  /**
+   * Checks if the image of an unchanged file is kept for the given options.
+   *
+   * @param filePath the path of the file.
+   * @param options  the options of the load, or null to load the whole image.
+   * @return True if a load would take a kept image.
+   */
+  boolean contains(String filePath, ReadOptions options) {
+    String path = getCanonicalPath(filePath);
+    if (path == null) {
+      return false;
+    }
+    File file = new File(path);
+    synchronized (this) {
+      CachedImage cached = images.get(getKey(path, options));
+      return cached != null && cached.lastModified == file.lastModified()
+          && cached.length == file.length();
+    }
+  }
+
+  /**
+   * Drops the images kept for the given file, whatever options they were loaded with.
+   *
+   * @param filePath the path of the file.
+   */
+  void invalidate(String filePath) {
+    String path = getCanonicalPath(filePath);
+    if (path == null) {
+      return;
+    }
+    synchronized (this) {
+      for (Iterator<CachedImage> it = images.values().iterator(); it.hasNext(); ) {
+        CachedImage cached = it.next();
+        if (cached.path.equals(path)) {
+          usedBytes -= cached.size;
+          it.remove();
+        }
+      }
+    }
+  }
+
+  private synchronized void put(String key, CachedImage image) {
+    if (image.size > budget) {
+      return;
+    }
+    // From now on, the image is handed to every load that takes it.
+    ((Image) image.image).markShared();
+    CachedImage previous = images.put(key, image);
+    if (previous != null) {
+      usedBytes -= previous.size;
+    }
+    usedBytes += image.size;
+    evict();
+  }
+
+  // Drops the least recently loaded images until the rest fit in the budget.
+  private void evict() {
+    for (Iterator<CachedImage> it = images.values().iterator();
+        usedBytes > budget && it.hasNext(); ) {
+      usedBytes -= it.next().size;
+      it.remove();
+    }
+  }
+
+  private static String getKey(String path, ReadOptions options) {
+    return path + "\n" + (options == null ? "" : options.toString());
+  }
+
+  private static String getCanonicalPath(String filePath) {
+    try {
+      return new File(filePath).getCanonicalPath();
+    } catch (IOException e) {
+      // A path that cannot be resolved is loaded without the cache.
+      return null;
+    }
+  }
+
+  /**
+   * A kept image, with the state of its file when decoding started.
+   */
+  private static final class CachedImage {
+
+    private final String path;
+    private final long lastModified;
+    private final long length;
+    private final IImage image;
+    private final long size;
+
+    private CachedImage(String path, long lastModified, long length, IImage image, long size) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.image = image;
+      this.size = size;
+    }
+  }
+}
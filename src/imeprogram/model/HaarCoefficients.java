@@ -0,0 +1,102 @@
+package imeprogram.model;
+
+/**
+ * This class represents the forward Haar transform of an image. It keeps the transformed channels
+ * along with a sorted index of their magnitudes, so that the image can be compressed with any ratio
+ * by only thresholding and inverting the transform.
+ */
+class HaarCoefficients {
+
+  // Never modified once transformed. Thresholding works on a copy.
+  private final double[][][] channels;
+  // Distinct magnitudes of the coefficients, in ascending order.
+  private final double[] distinctMagnitudes;
+  // Number of coefficients whose magnitude is at least the distinct magnitude at the same index.
+  private final int[] countAtOrAbove;
+  private final int height;
+  private final int width;
+
+  /**
+   * Applies the forward Haar transform to the given pixel values.
+   *
+   * @param rgbValues   the pixel values in the format [row][column][channel].
+   * @param height      the height of the image.
+   * @param width       the width of the image.
+   * @param numChannels the number of channels of the image.
+   */
+  HaarCoefficients(int[][][] rgbValues, int height, int width, int numChannels) {
+    this.height = height;
+    this.width = width;
+    this.channels = HaarWavelet.forward(rgbValues, height, width, numChannels);
+
+    double[] magnitudes = HaarWavelet.getSortedMagnitudes(this.channels);
+    int distinct = 0;
+    for (int i = 0; i < magnitudes.length; i++) {
+      if (i == 0 || magnitudes[i] != magnitudes[i - 1]) {
+        distinct++;
+      }
+    }
+    this.distinctMagnitudes = new double[distinct];
+    this.countAtOrAbove = new int[distinct];
+    for (int i = 0, k = 0; i < magnitudes.length; i++) {
+      if (i == 0 || magnitudes[i] != magnitudes[i - 1]) {
+        this.distinctMagnitudes[k] = magnitudes[i];
+        this.countAtOrAbove[k] = magnitudes.length - i;
+        k++;
+      }
+    }
+  }
+
+  /**
+   * Returns the magnitude below which coefficients are discarded for the given compression ratio.
+   * This is a lookup in the sorted magnitudes, so it takes constant time.
+   *
+   * @param ratio the compression percentage.
+   * @return the threshold for the given ratio.
+   */
+  double getThreshold(double ratio) {
+    return this.distinctMagnitudes[
+        HaarWavelet.getThresholdIndex(this.distinctMagnitudes.length, ratio)];
+  }
+
+  /**
+   * Returns the number of non-zero coefficients that are kept when compressing with the given
+   * ratio. This is a lookup in the sorted magnitudes, so it takes constant time.
+   *
+   * @param ratio the compression percentage.
+   * @return the number of non-zero coefficients kept.
+   */
+  long getCoefficientCount(double ratio) {
+    int index = HaarWavelet.getThresholdIndex(this.distinctMagnitudes.length, ratio);
+    // Coefficients that are already zero are never stored.
+    if (this.distinctMagnitudes[index] == 0) {
+      index++;
+    }
+    return index < this.countAtOrAbove.length ? this.countAtOrAbove[index] : 0;
+  }
+
+  /**
+   * Returns the image compressed with the given ratio. The image keeps the coefficients that
+   * survived the compression, so that it can be stored in the wavelet domain.
+   *
+   * @param ratio the compression percentage.
+   * @return the compressed image.
+   */
+  Image compress(double ratio) {
+    double[][][] thresholded = HaarWavelet.applyThreshold(this.channels, getThreshold(ratio));
+    SparseHaarCoefficients kept =
+        SparseHaarCoefficients.fromChannels(thresholded, this.height, this.width);
+    HaarWavelet.inverse(thresholded);
+    return new Image(HaarWavelet.toRgbValues(thresholded, this.height, this.width), this.width,
+        this.height, kept);
+  }
+
+  /**
+   * Returns all the non-zero coefficients of the transform, in a sparse form.
+   *
+   * @return the sparse coefficients.
+   */
+  SparseHaarCoefficients toSparse() {
+    return SparseHaarCoefficients.fromChannels(this.channels, this.height, this.width);
+  }
+}
@@ -0,0 +1,311 @@
+package imeprogram.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * This class represents the Haar wavelet engine used to compress images. Each channel of an image
+ * is transformed in place as a [row][column] plane whose sides are powers of two.
+ *
+ * <p>The channels of an image are transformed concurrently, and the row and column passes of each
+ * level are split into blocks that run in parallel on the common ForkJoinPool, which is shared by
+ * every transform in the application.
+ */
+final class HaarWavelet {
+
+  // Passes over fewer values than this are run on the calling thread.
+  private static final long PARALLEL_THRESHOLD = 1 << 14;
+  // Number of adjacent columns transformed together in a column pass.
+  private static final int COLUMN_BLOCK = 16;
+
+  private HaarWavelet() {
+  }
+
+  /**
+   * Applies the haar transform to each channel of the given pixel values. Each axis is padded with
+   * zeros to its own next power of two.
+   *
+   * @param rgbValues   the pixel values in the format [row][column][channel].
+   * @param height      the height of the image.
+   * @param width       the width of the image.
+   * @param numChannels the number of channels of the image.
+   * @return the transformed channels, in the format [channel][row][column].
+   */
+  static double[][][] forward(int[][][] rgbValues, int height, int width, int numChannels) {
+    int paddedHeight = nextPowerOfTwo(height);
+    int paddedWidth = nextPowerOfTwo(width);
+    double[][][] channels = new double[numChannels][paddedHeight][paddedWidth];
+
+    forEachBlock(height, getRowBlock(height), (long) height * width, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        for (int j = 0; j < width; j++) {
+          for (int v = 0; v < numChannels; v++) {
+            channels[v][i][j] = rgbValues[i][j][v];
+          }
+        }
+      }
+    });
+
+    parallelChannels(numChannels, (long) paddedHeight * paddedWidth)
+        .forEach(v -> haarTwoDim(channels[v]));
+    return channels;
+  }
+
+  /**
+   * Reverts the haar transform of each of the given channels in place.
+   *
+   * @param channels the transformed channels, in the format [channel][row][column].
+   */
+  static void inverse(double[][][] channels) {
+    parallelChannels(channels.length, (long) channels[0].length * channels[0][0].length)
+        .forEach(v -> invHaarTwoDim(channels[v]));
+  }
+
+  /**
+   * Returns the absolute values of all the coefficients of the given channels, in ascending order.
+   *
+   * @param channels the transformed channels, in the format [channel][row][column].
+   * @return the sorted magnitudes of the coefficients.
+   */
+  static double[] getSortedMagnitudes(double[][][] channels) {
+    int rows = channels[0].length;
+    int cols = channels[0][0].length;
+    double[] magnitudes = new double[channels.length * rows * cols];
+
+    forEachBlock(channels.length * rows, getRowBlock(channels.length * rows), magnitudes.length,
+        (from, to) -> {
+          for (int r = from; r < to; r++) {
+            double[] row = channels[r / rows][r % rows];
+            int offset = r * cols;
+            for (int j = 0; j < cols; j++) {
+              magnitudes[offset + j] = Math.abs(row[j]);
+            }
+          }
+        });
+    Arrays.parallelSort(magnitudes);
+    return magnitudes;
+  }
+
+  /**
+   * Returns the index of the threshold magnitude for the given compression ratio, among the
+   * distinct magnitudes of the coefficients.
+   *
+   * @param distinctMagnitudes the number of distinct magnitudes of the coefficients.
+   * @param ratio              the compression percentage.
+   * @return the index of the threshold in the sorted distinct magnitudes.
+   */
+  static int getThresholdIndex(int distinctMagnitudes, double ratio) {
+    // Calculate the index corresponding to the desired compression ratio
+    int thresholdIndex = (int) Math.round((ratio / 100) * distinctMagnitudes) - 1;
+
+    if (thresholdIndex <= 0) {
+      thresholdIndex = 0;
+    }
+    return thresholdIndex;
+  }
+
+  /**
+   * Returns a copy of the given channels where every coefficient whose magnitude is less than the
+   * threshold is set to zero.
+   *
+   * @param channels  the transformed channels, in the format [channel][row][column].
+   * @param threshold the threshold magnitude.
+   * @return the thresholded copy of the channels.
+   */
+  static double[][][] applyThreshold(double[][][] channels, double threshold) {
+    int rows = channels[0].length;
+    int cols = channels[0][0].length;
+    double[][][] result = new double[channels.length][rows][cols];
+    forEachBlock(channels.length * rows, getRowBlock(channels.length * rows),
+        (long) channels.length * rows * cols, (from, to) -> {
+          for (int r = from; r < to; r++) {
+            double[] row = channels[r / rows][r % rows];
+            double[] resultRow = result[r / rows][r % rows];
+            for (int j = 0; j < cols; j++) {
+              resultRow[j] = Math.abs(row[j]) < threshold ? 0 : row[j];
+            }
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Converts the given channels back to pixel values, cropping away the padding. Values are
+   * rounded off and clamped to [0, 255].
+   *
+   * @param channels the channels, in the format [channel][row][column].
+   * @param height   the height of the image.
+   * @param width    the width of the image.
+   * @return the pixel values in the format [row][column][channel].
+   */
+  static int[][][] toRgbValues(double[][][] channels, int height, int width) {
+    int numChannels = channels.length;
+    int[][][] rgbValues = new int[height][width][numChannels];
+
+    forEachBlock(height, getRowBlock(height), (long) height * width, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        for (int j = 0; j < width; j++) {
+          for (int v = 0; v < numChannels; v++) {
+            rgbValues[i][j][v] = (int) Math.min(255, Math.max(0, Math.round(channels[v][i][j])));
+          }
+        }
+      }
+    });
+    return rgbValues;
+  }
+
+  private static void haarOneDim(double[] s, int n, double[] scratch) {
+    int half = n / 2;
+    for (int i = 0; i < half; i++) {
+      scratch[i] = (s[2 * i] + s[2 * i + 1]) / Math.sqrt(2);
+      scratch[i + half] = (s[2 * i] - s[2 * i + 1]) / Math.sqrt(2);
+    }
+    System.arraycopy(scratch, 0, s, 0, n);
+  }
+
+  private static void invHaarOneDim(double[] s, int n, double[] scratch) {
+    int half = n / 2;
+    for (int i = 0; i < half; i++) {
+      scratch[2 * i] = (s[i] + s[i + half]) / Math.sqrt(2);
+      scratch[2 * i + 1] = (s[i] - s[i + half]) / Math.sqrt(2);
+    }
+    System.arraycopy(scratch, 0, s, 0, n);
+  }
+
+  /**
+   * Returns the (rows, cols) extent of each level of the transform on a rows x cols channel. Both
+   * the axes are halved independently, until each of them has been reduced to a single value.
+   */
+  private static List<int[]> getHaarLevels(int rows, int cols) {
+    List<int[]> levels = new ArrayList<>();
+    int r = rows;
+    int c = cols;
+    while (r > 1 || c > 1) {
+      levels.add(new int[]{r, c});
+      r = Math.max(1, r / 2);
+      c = Math.max(1, c / 2);
+    }
+    return levels;
+  }
+
+  private static void haarTwoDim(double[][] x) {
+    int cols = x[0].length;
+    for (int[] level : getHaarLevels(x.length, cols)) {
+      int r = level[0];
+      int c = level[1];
+      if (c > 1) {
+        forEachBlock(r, getRowBlock(r), (long) r * cols, (from, to) -> {
+          double[] scratch = new double[cols];
+          for (int i = from; i < to; i++) {
+            haarOneDim(x[i], cols, scratch);
+          }
+        });
+      }
+      if (r > 1) {
+        forEachBlock(c, COLUMN_BLOCK, (long) r * c, (from, to) -> {
+          int blockWidth = to - from;
+          double[] block = copyColumns(x, r, from, blockWidth);
+          int half = r / 2;
+          for (int k = 0; k < half; k++) {
+            int even = 2 * k * blockWidth;
+            int odd = even + blockWidth;
+            for (int j = 0; j < blockWidth; j++) {
+              x[k][from + j] = (block[even + j] + block[odd + j]) / Math.sqrt(2);
+              x[k + half][from + j] = (block[even + j] - block[odd + j]) / Math.sqrt(2);
+            }
+          }
+        });
+      }
+    }
+  }
+
+  private static void invHaarTwoDim(double[][] x) {
+    int cols = x[0].length;
+    List<int[]> levels = getHaarLevels(x.length, cols);
+    // Undo the levels in the reverse order of the forward transform.
+    for (int l = levels.size() - 1; l >= 0; l--) {
+      int r = levels.get(l)[0];
+      int c = levels.get(l)[1];
+      if (r > 1) {
+        forEachBlock(c, COLUMN_BLOCK, (long) r * c, (from, to) -> {
+          int blockWidth = to - from;
+          double[] block = copyColumns(x, r, from, blockWidth);
+          int half = r / 2;
+          for (int k = 0; k < half; k++) {
+            int avg = k * blockWidth;
+            int diff = (k + half) * blockWidth;
+            for (int j = 0; j < blockWidth; j++) {
+              x[2 * k][from + j] = (block[avg + j] + block[diff + j]) / Math.sqrt(2);
+              x[2 * k + 1][from + j] = (block[avg + j] - block[diff + j]) / Math.sqrt(2);
+            }
+          }
+        });
+      }
+      if (c > 1) {
+        forEachBlock(r, getRowBlock(r), (long) r * cols, (from, to) -> {
+          double[] scratch = new double[cols];
+          for (int i = from; i < to; i++) {
+            invHaarOneDim(x[i], cols, scratch);
+          }
+        });
+      }
+    }
+  }
+
+  // Copies the first rows of the given columns into a row-major block.
+  private static double[] copyColumns(double[][] x, int rows, int from, int blockWidth) {
+    double[] block = new double[rows * blockWidth];
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(x[i], from, block, i * blockWidth, blockWidth);
+    }
+    return block;
+  }
+
+  /**
+   * Returns the smallest power of two that is at least the given number.
+   *
+   * @param n the number.
+   * @return the power of two.
+   */
+  static int nextPowerOfTwo(int n) {
+    int power = 1;
+    while (power < n) {
+      power *= 2;
+    }
+    return power;
+  }
+
+  private static IntStream parallelChannels(int numChannels, long valuesPerChannel) {
+    IntStream channels = IntStream.range(0, numChannels);
+    return valuesPerChannel >= PARALLEL_THRESHOLD ? channels.parallel() : channels;
+  }
+
+  // Splits a pass over rows into a few blocks per worker of the pool.
+  private static int getRowBlock(int rows) {
+    return Math.max(1, rows / (4 * ForkJoinPool.getCommonPoolParallelism()));
+  }
+
+  /**
+   * Runs the given action on consecutive blocks of [0, count). Blocks run in parallel only when the
+   * pass covers enough values to be worth splitting.
+   */
+  private static void forEachBlock(int count, int blockSize, long work, BlockAction action) {
+    int blocks = (count + blockSize - 1) / blockSize;
+    IntStream indices = IntStream.range(0, blocks);
+    if (work >= PARALLEL_THRESHOLD && blocks > 1) {
+      indices = indices.parallel();
+    }
+    indices.forEach(b -> action.apply(b * blockSize, Math.min(count, (b + 1) * blockSize)));
+  }
+
+  /**
+   * An action performed on the block [from, to) of a pass.
+   */
+  private interface BlockAction {
+
+    void apply(int from, int to);
+  }
+}
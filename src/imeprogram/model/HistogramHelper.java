@@ -0,0 +1,53 @@
+package imeprogram.model;
+
+/**
+ * This class draws the histograms of images. It is shared by the image representations, which only
+ * need to count the frequencies of their pixel values.
+ */
+final class HistogramHelper {
+
+  private static final int BIT_DEPTH = 256;
+
+  private HistogramHelper() {
+  }
+
+  /**
+   * Draws the given frequency histogram as a line graph.
+   *
+   * @param histogram the frequencies, in the format [pixelValue][channel].
+   * @param graph     the line graph used to draw the histogram.
+   * @return an IImage of the histogram.
+   */
+  static IImage draw(int[][] histogram, ILineGraph graph) {
+    int histogramHeight = BIT_DEPTH;
+    int histogramWidth = BIT_DEPTH;
+
+    // Normalize the histogram. Scale its height to 256.
+    int topMarginNormalize = 1;
+    int[][] histogramData = normalize(histogram, histogramHeight - (topMarginNormalize));
+    return graph.drawLineGraph(histogramData, histogramHeight, histogramWidth);
+  }
+
+  private static int[][] normalize(int[][] histogram, int scaleFactor) {
+    int numChannels = histogram[0].length;
+    int[][] normalizedHistogram = new int[BIT_DEPTH][numChannels];
+    // Find the maximum frequency in the histogram
+    int maxFrequency = 0;
+    // Discard boundary values (0,255) for max frequency calculation
+    // This is done as presence of clamped pixels can alter the histogram drawn
+    for (int i = 1; i < BIT_DEPTH - 1; i++) {
+      for (int c = 0; c < numChannels; c++) {
+        if (histogram[i][c] > maxFrequency) {
+          maxFrequency = histogram[i][c];
+        }
+      }
+    }
+    // Normalize the histogram values
+    for (int i = 0; i < BIT_DEPTH; i++) {
+      for (int c = 0; c < numChannels; c++) {
+        normalizedHistogram[i][c] = (int) (histogram[i][c] * ((double) scaleFactor / maxFrequency));
+      }
+    }
+    return normalizedHistogram;
+  }
+}
@@ -75,10 +75,15 @@ public interface IImage extends IReadOnlyImage {
    * Overwrite this IImage by combining the red, green, and blue components from the given IImages.
    * Picks one channel from each of the given arguments.
    *
+   * <p>This is the only operation that changes an image. It may only be called on an image that
+   * was just created and is held nowhere else: the image of an unchanged file is handed to every
+   * load of that file by a {@link DecodedImageCache}, and overwriting it would change all of them.
+   *
    * @param red   IImage whose Red component is selected.
    * @param green IImage whose Green component is selected.
    * @param blue  IImage whose Blue component is selected.
    * @throws IllegalArgumentException If the input images have different dimensions.
+   * @throws IllegalStateException    If the image is shared, such as one kept by a cache.
    */
   void combineRGB(IImage red, IImage green, IImage blue) throws IllegalArgumentException;
 
@@ -163,6 +168,21 @@ public interface IImage extends IReadOnlyImage {
    */
   IImage haarCompress(int ratio) throws IllegalArgumentException;
 
+  /**
+   * Compresses the image with the haar transform, choosing the compression ratio from the given
+   * quality target. For a PSNR target, the highest ratio whose result still has at least the given
+   * PSNR is chosen. For a coefficient target, the lowest ratio that keeps at most the given number
+   * of non-zero coefficients is chosen, or 100 if no ratio keeps that few. If even ratio 0 misses a
+   * PSNR target, ratio 0 is chosen, and the result reports that the target is not met.
+   *
+   * @param target the quality metric to be met.
+   * @param value  the value to be met, in dB for PSNR, or a number of coefficients.
+   * @return the compressed image along with the chosen ratio and the achieved quality.
+   * @throws IllegalArgumentException If the given value is not valid for the target.
+   */
+  CompressionResult haarCompressToQuality(QualityTarget target, double value)
+      throws IllegalArgumentException;
+
   /**
    * Represents different components of the IImage.
    */
@@ -190,6 +210,16 @@ public interface IImage extends IReadOnlyImage {
     }
   }
 
+  /**
+   * Represents the quality metrics that a compression can target.
+   */
+  enum QualityTarget {
+    // Peak signal-to-noise ratio of the result, in dB
+    PSNR,
+    // Number of non-zero haar coefficients kept
+    COEFFICIENTS
+  }
+
   /**
    * Represents different filter kernels supported by our IImage.
    */
@@ -3,7 +3,12 @@ package imeprogram.model;
 import imeprogram.exceptions.FileFormatException;
 import imeprogram.exceptions.ImageNotFoundException;
 import imeprogram.exceptions.InvalidImageNameException;
+import imeprogram.fileparser.ImageInfo;
+import imeprogram.fileparser.ReadOptions;
+import imeprogram.fileparser.WriteOptions;
+import imeprogram.model.IImage.QualityTarget;
 import java.io.FileNotFoundException;
+import java.util.List;
 
 /**
  * The model of the IME program. This interface represents actions that can be taken in our
@@ -25,6 +30,50 @@ public interface IModel {
   void loadImageFromFile(String filePath, String imageName)
       throws FileNotFoundException, FileFormatException, InvalidImageNameException;
 
+  /**
+   * Load a subsampled region of an image from the specified file path and refer to it with the
+   * given image name.
+   *
+   * @param filePath  The file path of the image.
+   * @param imageName The name to assign to the loaded image.
+   * @param options   The region and subsampling to be loaded.
+   * @throws FileNotFoundException     If the specified file path is invalid or the file does not
+   *                                   exist.
+   * @throws FileFormatException       If the provided file format is not supported, or the region
+   *                                   lies outside the image.
+   * @throws InvalidImageNameException If the specified image name cannot be assigned to an image in
+   *                                   the application.
+   */
+  void loadImageFromFile(String filePath, String imageName, ReadOptions options)
+      throws FileNotFoundException, FileFormatException, InvalidImageNameException;
+
+  /**
+   * Starts decoding the image at the specified file path in the background, so that a later load of
+   * the same file with the same options takes the decoded image instead of decoding it then. The
+   * image is not given a name until it is loaded, and it is decoded again by the load if the file
+   * changed in the meantime. Any error is reported by the load.
+   *
+   * @param filePath The file path of the image.
+   * @param options  The region and subsampling to be loaded, or null to load the whole image.
+   */
+  void prefetchImage(String filePath, ReadOptions options);
+
+  /**
+   * Throws away the images that were prefetched but not loaded.
+   */
+  void clearPrefetchedImages();
+
+  /**
+   * Reads the format and dimensions of the image at the specified file path, without loading it.
+   *
+   * @param filePath The file path of the image.
+   * @return the format and dimensions of the image.
+   * @throws FileNotFoundException If the specified file path is invalid or the file does not
+   *                               exist.
+   * @throws FileFormatException   If the provided file format is not supported.
+   */
+  ImageInfo getImageInfo(String filePath) throws FileNotFoundException, FileFormatException;
+
   /**
    * Save the image with the given name to the specified file path.
    *
@@ -37,6 +86,70 @@ public interface IModel {
   void saveImageToFile(String imageName, String filePath)
       throws ImageNotFoundException, FileNotFoundException, FileFormatException;
 
+  /**
+   * Save the image with the given name to the specified file path, with the given encoder options.
+   *
+   * @param imageName The name of the image to be saved.
+   * @param filePath  The file path where the image will be saved.
+   * @param options   The encoder options, of which only those of the file format are used.
+   * @throws ImageNotFoundException If the specified source image does not exist.
+   * @throws FileNotFoundException  If the image cannot be saved at the specified file path.
+   * @throws FileFormatException    If the provided file format is not supported
+   */
+  void saveImageToFile(String imageName, String filePath, WriteOptions options)
+      throws ImageNotFoundException, FileNotFoundException, FileFormatException;
+
+  /**
+   * Sets whether images are saved in the background. While they are, a save checks the image and
+   * the file format and returns, and the image is encoded and written by one of the given number
+   * of threads. A save waits while the given number of saves are already waiting for a thread.
+   * Saves of the same path are written in the order they were made, and loading, probing or
+   * streaming a file waits for its saves first. Any saves that are queued when this is called are
+   * finished first.
+   *
+   * @param threads   the number of threads that save images, or 0 to save each image before the
+   *                  save returns.
+   * @param queueSize the number of saves that may wait for a thread.
+   * @throws IllegalArgumentException If the number of threads or the queue size is negative.
+   */
+  void setBackgroundSaves(int threads, int queueSize) throws IllegalArgumentException;
+
+  /**
+   * Sets the number of bytes the decoded images kept for loads of unchanged files may take up,
+   * dropping the least recently loaded images until they fit. A cache shared with other models
+   * takes the new budget for all of them.
+   *
+   * @param bytes the budget in bytes, or 0 to keep no images.
+   * @throws IllegalArgumentException If the budget is negative.
+   */
+  void setCacheBudget(long bytes) throws IllegalArgumentException;
+
+  /**
+   * Waits for every image that is being saved in the background to be written.
+   *
+   * @return each background save that failed since the last sync, in the order they were made.
+   *     Saves of the same path that failed are all listed.
+   */
+  List<SaveFailure> syncSaves();
+
+  /**
+   * Reads the image at the source path a band of rows at a time, applies the given operations to
+   * each band, and writes the result to the destination path as the bands are done. The image is
+   * never held whole, so images larger than the memory of the program can be processed. The image
+   * is not given a name.
+   *
+   * @param sourcePath The file path of the image to be read.
+   * @param destPath   The file path where the result will be written, whose extension decides
+   *                   its format.
+   * @param operations The operations to be applied, in order.
+   * @throws FileNotFoundException    If the source cannot be read or the result written.
+   * @throws FileFormatException      If the source is not a valid image, or the extension of the
+   *                                  destination is not supported.
+   * @throws IllegalArgumentException If the source and destination are the same file.
+   */
+  void streamImage(String sourcePath, String destPath, List<RowOperation> operations)
+      throws FileNotFoundException, FileFormatException, IllegalArgumentException;
+
   /**
    * Gets the pixel values of a specific image.
    *
@@ -314,4 +427,24 @@ public interface IModel {
    */
   void compress(String sourceImageName, String destImageName, int compressRatio)
       throws ImageNotFoundException, InvalidImageNameException, IllegalArgumentException;
+
+  /**
+   * Compress the given source image with the ratio that meets the given quality target. For a PSNR
+   * target, the highest ratio whose result still has at least the given PSNR is chosen. For a
+   * coefficient target, the lowest ratio that keeps at most the given number of coefficients is
+   * chosen.
+   *
+   * @param sourceImageName The name of the source image.
+   * @param destImageName   The name to assign to the compressed image.
+   * @param target          The quality metric to be met.
+   * @param value           The value to be met, in dB for PSNR, or a number of coefficients.
+   * @return the chosen compression ratio and the quality achieved with it.
+   * @throws ImageNotFoundException    If the specified source image does not exist.
+   * @throws InvalidImageNameException If the specified destination image name cannot be assigned to
+   *                                   an image in the application.
+   * @throws IllegalArgumentException  If the given value is not valid for the target.
+   */
+  CompressionResult compressToQuality(String sourceImageName, String destImageName,
+      QualityTarget target, double value)
+      throws ImageNotFoundException, InvalidImageNameException, IllegalArgumentException;
 }
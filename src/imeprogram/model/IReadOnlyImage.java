@@ -28,6 +28,18 @@ public interface IReadOnlyImage {
   int getValueAtPixel(int horizontalPos, int verticalPos, int channel)
       throws IndexOutOfBoundsException, IllegalArgumentException;
 
+  /**
+   * Copies the values of a row of the Image into the given array. The channels of each pixel are
+   * placed together, in the order Red, Green, Blue.
+   *
+   * @param row       The index of the row.
+   * @param rowValues The array to be filled, which must hold at least 3 * width values.
+   * @throws IndexOutOfBoundsException If the provided row is out of bounds.
+   * @throws IllegalArgumentException  If the array is too short to hold the row.
+   */
+  void getRowValues(int row, int[] rowValues)
+      throws IndexOutOfBoundsException, IllegalArgumentException;
+
   /**
    * Gets the width of the Image.
    *
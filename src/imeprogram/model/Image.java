@@ -1,10 +1,7 @@
 package imeprogram.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.lang.ref.SoftReference;
+import java.util.stream.IntStream;
 
 /**
  * This class represents a 24-bit Image with Red, Green, and Blue channels. And operations that can
@@ -17,6 +14,12 @@ public class Image implements IImage {
   private int width;
   private final int bitDepth = 256;
   private final int numChannels = 3;
+  // Cached forward transform, used to compress this image with different ratios.
+  private SoftReference<HaarCoefficients> haarCoefficients = new SoftReference<>(null);
+  // Coefficients this image was rebuilt from, if it is the result of a haar compression.
+  private SparseHaarCoefficients haarSource;
+  // Set once the image may be handed to several holders, after which it must not be overwritten.
+  private volatile boolean shared;
 
   /**
    * Instantiate an Image object with all pixel values set to Zero.
@@ -43,6 +46,22 @@ public class Image implements IImage {
     this.rgbValues = getDeepCopy(rgbValues);
   }
 
+  /**
+   * Instantiate an Image object rebuilt from the given haar coefficients. The image takes ownership
+   * of the given pixel values instead of copying them.
+   *
+   * @param rgbValues  array of pixel values.
+   * @param width      width of the image.
+   * @param height     height of the image.
+   * @param haarSource the coefficients the pixel values were rebuilt from.
+   */
+  Image(int[][][] rgbValues, int width, int height, SparseHaarCoefficients haarSource) {
+    this.height = height;
+    this.width = width;
+    this.rgbValues = rgbValues;
+    this.haarSource = haarSource;
+  }
+
   @Override
   public IImage getComponent(ImageComponent component) {
     int[][][] componentValues = new int[height][width][numChannels];
@@ -160,8 +179,19 @@ public class Image implements IImage {
         new Image(blueValues, width, height)};
   }
 
+  /**
+   * Marks this image as shared by several holders, such as every load that takes it from a
+   * {@link DecodedImageCache}. A shared image can no longer be overwritten.
+   */
+  void markShared() {
+    this.shared = true;
+  }
+
   @Override
   public void combineRGB(IImage red, IImage green, IImage blue) throws IllegalArgumentException {
+    if (this.shared) {
+      throw new IllegalStateException("A shared image cannot be overwritten.");
+    }
     boolean equalWidth = (red.getWidth() == green.getWidth() && (green.getWidth()
         == blue.getWidth()) && (red.getWidth() == blue.getWidth()));
 
@@ -172,13 +202,28 @@ public class Image implements IImage {
       throw new IllegalArgumentException("Provided images have unequal dimensions");
     }
 
+    // The cached transform no longer matches the pixels of this image. It is dropped before any
+    // pixel changes, so a failure part way through cannot leave it in place.
+    synchronized (this) {
+      this.haarCoefficients = new SoftReference<>(null);
+      this.haarSource = null;
+    }
+
     // Assuming that the red, green, and blue images are of type Image and have the same dimensions
+    // The images are read a row at a time, which is much cheaper than a pixel at a time for images
+    // that are not on the heap.
     int[][][] combinedValues = this.rgbValues;
+    int[] redRow = new int[width * 3];
+    int[] greenRow = new int[width * 3];
+    int[] blueRow = new int[width * 3];
     for (int i = 0; i < height; i++) {
+      red.getRowValues(i, redRow);
+      green.getRowValues(i, greenRow);
+      blue.getRowValues(i, blueRow);
       for (int j = 0; j < width; j++) {
-        combinedValues[i][j][0] = red.getValueAtPixel(i, j, 0); // Red value
-        combinedValues[i][j][1] = green.getValueAtPixel(i, j, 1);  // Green value
-        combinedValues[i][j][2] = blue.getValueAtPixel(i, j, 2);  // Blue value
+        combinedValues[i][j][0] = redRow[3 * j]; // Red value
+        combinedValues[i][j][1] = greenRow[3 * j + 1];  // Green value
+        combinedValues[i][j][2] = blueRow[3 * j + 2];  // Blue value
       }
     }
   }
@@ -223,14 +268,7 @@ public class Image implements IImage {
 
   @Override
   public IImage getHistogram(ILineGraph graph) {
-    int histogramHeight = this.bitDepth;
-    int histogramWidth = this.bitDepth;
-    int[][] histogramData = getHistogram();
-
-    // Normalize the histogram. Scale its height to 256.
-    int topMarginNormalize = 1;
-    histogramData = normalizeHistogram(histogramData, histogramHeight - (topMarginNormalize));
-    return graph.drawLineGraph(histogramData, histogramHeight, histogramWidth);
+    return HistogramHelper.draw(getHistogram(), graph);
   }
 
   /**
@@ -341,7 +379,9 @@ public class Image implements IImage {
 
     int[][][] splitValues = new int[this.height][this.width][this.numChannels];
     int splitHorizontalPosition = getSplitPosition(this.width, splitRatio);
+    int[] otherRow = new int[this.width * 3];
     for (int i = 0; i < this.height; i++) {
+      other.getRowValues(i, otherRow);
       // Fill left portion of result
       for (int j = 0; j < splitHorizontalPosition; j++) {
         splitValues[i][j][0] = this.rgbValues[i][j][0]; // Red
@@ -350,9 +390,9 @@ public class Image implements IImage {
       }
       // Fill right portion of result
       for (int j = splitHorizontalPosition; j < this.width; j++) {
-        splitValues[i][j][0] = other.getValueAtPixel(i, j, 0); // Red
-        splitValues[i][j][1] = other.getValueAtPixel(i, j, 1); // Green
-        splitValues[i][j][2] = other.getValueAtPixel(i, j, 2); // Blue
+        splitValues[i][j][0] = otherRow[3 * j]; // Red
+        splitValues[i][j][1] = otherRow[3 * j + 1]; // Green
+        splitValues[i][j][2] = otherRow[3 * j + 2]; // Blue
       }
     }
     return new Image(splitValues, width, height);
@@ -408,6 +448,23 @@ public class Image implements IImage {
     return this.rgbValues[horizontalPos][verticalPos][channel];
   }
 
+  @Override
+  public void getRowValues(int row, int[] rowValues)
+      throws IndexOutOfBoundsException, IllegalArgumentException {
+    if (row < 0 || row >= this.height) {
+      throw new IndexOutOfBoundsException("Row is out of bound.");
+    }
+    if (rowValues.length < this.width * this.numChannels) {
+      throw new IllegalArgumentException("Array is too short to hold the row.");
+    }
+    int k = 0;
+    for (int[] pixel : this.rgbValues[row]) {
+      rowValues[k++] = pixel[0];
+      rowValues[k++] = pixel[1];
+      rowValues[k++] = pixel[2];
+    }
+  }
+
   @Override
   public int[][][] getRgbValues() {
     return getDeepCopy(this.rgbValues);
@@ -427,32 +484,6 @@ public class Image implements IImage {
     return Math.round((width * splitPercentage) / 100);
   }
 
-  private int[][] normalizeHistogram(int[][] histogram, int scaleFactor) {
-    int[][] normalizedHistogram = new int[this.bitDepth][this.numChannels];
-    int maxFreqChannel = 0;
-    int maxFreqPosition = 0;
-    // Find the maximum frequency in the histogram
-    int maxFrequency = 0;
-    // Discard boundary values (0,255) for max frequency calculation
-    // This is done as presence of clamped pixels can alter the histogram drawn
-    for (int i = 1; i < this.bitDepth - 1; i++) {
-      for (int c = 0; c < this.numChannels; c++) {
-        if (histogram[i][c] > maxFrequency) {
-          maxFrequency = histogram[i][c];
-          maxFreqPosition = i;
-          maxFreqChannel = c;
-        }
-      }
-    }
-    // Normalize the histogram values
-    for (int i = 0; i < 256; i++) {
-      for (int c = 0; c < this.numChannels; c++) {
-        normalizedHistogram[i][c] = (int) (histogram[i][c] * ((double) scaleFactor / maxFrequency));
-      }
-    }
-    return normalizedHistogram;
-  }
-
   /**
    * Returns the histogram peak for each channel of the given histogram.
    *
@@ -483,232 +514,127 @@ public class Image implements IImage {
 
   // Image Compression Methods.
 
-  private double[] haarOneDim(double[] s) {
-    int n = s.length;
-    double[] avg = new double[n / 2];
-    double[] diff = new double[n / 2];
-    for (int i = 0; i < n; i += 2) {
-      avg[i / 2] = (s[i] + s[i + 1]) / Math.sqrt(2);
-      diff[i / 2] = (s[i] - s[i + 1]) / Math.sqrt(2);
-    }
-    for (int i = 0; i < n / 2; i++) {
-      s[i] = avg[i];
-      s[i + n / 2] = diff[i];
-    }
-    return s;
-  }
-
-  private double[] invHaarOneDim(double[] s) {
-    int n = s.length;
-    double[] avg = new double[n / 2];
-    double[] diff = new double[n / 2];
-    for (int i = 0; i < n / 2; i++) {
-      avg[i] = (s[i] + s[i + n / 2]) / Math.sqrt(2);
-      diff[i] = (s[i] - s[i + n / 2]) / Math.sqrt(2);
-    }
-    for (int i = 0; i < n / 2; i++) {
-      s[2 * i] = avg[i];
-      s[2 * i + 1] = diff[i];
-    }
-    return s;
-  }
-
-  private double[][] haarTwoDim(double[][] x, int s) {
-    int c = s;
-    while (c > 1) {
-      for (int i = 0; i < c; i++) {
-        x[i] = haarOneDim(x[i]);
-      }
-
-      for (int j = 0; j < c; j++) {
-        double[] col = new double[c];
-        for (int i = 0; i < c; i++) {
-          col[i] = x[i][j];
-        }
-        col = haarOneDim(col);
-        for (int i = 0; i < c; i++) {
-          x[i][j] = col[i];
-        }
-      }
-      c /= 2;
-    }
-    return x;
-  }
+  /**
+   * Compresses an image using Haar Wavelet Transforms.
+   *
+   * @param ratio The Compression Ratio.
+   * @return Image object.
+   */
+  public IImage haarCompress(int ratio) throws IllegalArgumentException {
 
-  private double[][] invHaarTwoDim(double[][] x, int s) {
-    int c = 2;
-    while (c <= s) {
-      for (int j = 0; j < c; j++) {
-        double[] col = new double[c];
-        for (int i = 0; i < c; i++) {
-          col[i] = x[i][j];
-        }
-        col = invHaarOneDim(col);
-        for (int i = 0; i < c; i++) {
-          x[i][j] = col[i];
-        }
-      }
-      for (int i = 0; i < c; i++) {
-        x[i] = invHaarOneDim(x[i]);
-      }
-      c *= 2;
+    if (ratio < 0 || ratio > 100) {
+      throw new IllegalArgumentException("Ratio must be between 0 and 100.");
     }
-    return x;
-  }
-
-  private double[][][] haarThreeDim(double[][][] x) {
-    int height = x.length;
-    int width = x[0].length;
-    int values = x[0][0].length;
-    int s = nextPowerOfTwo(Math.max(height, width));
-
-    double[][][] y = new double[s][s][values];
-    for (int v = 0; v < values; v++) {
-      double[][] channel = new double[s][s];
 
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          channel[i][j] = x[i][j][v];
-        }
-      }
-
-      channel = haarTwoDim(channel, s);
-      for (int i = 0; i < channel.length; i++) {
-        for (int j = 0; j < channel[i].length; j++) {
-          y[i][j][v] = channel[i][j];
-        }
-      }
-    }
-    return y;
+    return getHaarCoefficients().compress(ratio);
   }
 
-  private double[][][] invHaarThreeDim(double[][][] x) {
-    int s = x.length;
-    int values = x[0][0].length;
-    double[][][] y = new double[s][s][values];
-    for (int v = 0; v < values; v++) {
-      double[][] channel = new double[s][s];
-      for (int i = 0; i < s; i++) {
-        for (int j = 0; j < s; j++) {
-          channel[i][j] = x[i][j][v];
+  @Override
+  public CompressionResult haarCompressToQuality(QualityTarget target, double value)
+      throws IllegalArgumentException {
+    if (Double.isNaN(value) || (target == QualityTarget.COEFFICIENTS && value < 0)) {
+      throw new IllegalArgumentException("Invalid value for the quality target.");
+    }
+
+    // All the probed ratios reuse a single forward transform.
+    HaarCoefficients coefficients = getHaarCoefficients();
+    int low = 0;
+    int high = 100;
+    Image compressed = null;
+    double psnr = 0;
+
+    if (target == QualityTarget.PSNR) {
+      // PSNR falls as the ratio grows. Find the highest ratio that still meets the target.
+      // Rounding the rebuilt pixels can make PSNR rise a little between close ratios, so the search
+      // may pass over a slightly higher ratio that also meets the target. The ratio it keeps was
+      // measured to meet it, or is 0 when none was.
+      while (low < high) {
+        int mid = (low + high + 1) / 2;
+        Image midImage = coefficients.compress(mid);
+        double midPsnr = getPsnr(midImage.rgbValues);
+        if (midPsnr >= value) {
+          low = mid;
+          compressed = midImage;
+          psnr = midPsnr;
+        } else {
+          high = mid - 1;
         }
       }
-      channel = invHaarTwoDim(channel, s);
-      for (int i = 0; i < s; i++) {
-        for (int j = 0; j < s; j++) {
-          y[i][j][v] = channel[i][j];
+    } else {
+      // Fewer coefficients are kept as the ratio grows. Find the lowest ratio within the budget.
+      while (low < high) {
+        int mid = (low + high) / 2;
+        if (coefficients.getCoefficientCount(mid) <= value) {
+          high = mid;
+        } else {
+          low = mid + 1;
         }
       }
     }
-    return y;
-  }
 
-  private int nextPowerOfTwo(int n) {
-    int power = 1;
-    while (power < n) {
-      power *= 2;
+    if (compressed == null) {
+      compressed = coefficients.compress(low);
+      psnr = getPsnr(compressed.rgbValues);
     }
-    return power;
+    long coefficientCount = coefficients.getCoefficientCount(low);
+    boolean targetMet = target == QualityTarget.PSNR ? psnr >= value : coefficientCount <= value;
+    return new CompressionResult(compressed, low, psnr, coefficientCount, targetMet);
   }
 
-  private double[][][] compress(double[][][] rgbValues, double compressionRatio) {
-    // Create a set of all absolute values in the rgbValues array
-    Set<Double> allValuesSet = new HashSet<>();
-    for (double[][] channel : rgbValues) {
-      for (double[] row : channel) {
-        for (double value : row) {
-          allValuesSet.add(Math.abs(value));
+  /**
+   * Returns the peak signal-to-noise ratio of the given pixel values against this image. The
+   * squared errors of the rows are summed in parallel.
+   *
+   * @param otherValues pixel values of the same dimensions as this image.
+   * @return the PSNR in dB, which is infinite if the pixel values are identical.
+   */
+  private double getPsnr(int[][][] otherValues) {
+    long squaredError = IntStream.range(0, this.height).parallel().mapToLong(i -> {
+      long rowError = 0;
+      for (int j = 0; j < this.width; j++) {
+        for (int c = 0; c < this.numChannels; c++) {
+          long difference = this.rgbValues[i][j][c] - otherValues[i][j][c];
+          rowError += difference * difference;
         }
       }
-    }
-
-    // Convert the set to a list and sort it
-    List<Double> allValuesList = new ArrayList<>(allValuesSet);
-    Collections.sort(allValuesList);
-
-    // Calculate the index corresponding to the desired compression ratio
-    int thresholdIndex = (int) Math.round((compressionRatio / 100) * allValuesList.size()) - 1;
-
-    if (thresholdIndex <= 0) {
-      thresholdIndex = 0;
-    }
+      return rowError;
+    }).sum();
 
-    // Get the threshold value
-    double threshold = allValuesList.get(thresholdIndex);
-
-    for (double[][] channel : rgbValues) {
-      for (double[] row : channel) {
-        for (int i = 0; i < row.length; i++) {
-          if (Math.abs(row[i]) < threshold) {
-            row[i] = 0;
-          }
-        }
-      }
+    if (squaredError == 0) {
+      return Double.POSITIVE_INFINITY;
     }
-
-    return invHaarThreeDim(rgbValues);
+    double meanSquaredError = (double) squaredError / ((long) height * width * numChannels);
+    return 10 * Math.log10((255.0 * 255.0) / meanSquaredError);
   }
 
-  private double[][][] unPad(double[][][] array, int[] originalDimensions) {
-    int originalX = originalDimensions[0];
-    int originalY = originalDimensions[1];
-    int originalZ = originalDimensions[2];
-
-    double[][][] newArray = new double[originalX][originalY][originalZ];
-
-    for (int x = 0; x < originalX; x++) {
-      for (int y = 0; y < originalY; y++) {
-        System.arraycopy(array[x][y], 0, newArray[x][y], 0, originalZ);
-      }
+  /**
+   * Returns the haar coefficients of the image in a sparse form. For an image produced by a haar
+   * compression, these are only the coefficients kept by the compression. Otherwise, these are all
+   * the non-zero coefficients of the transform of the image.
+   *
+   * @return the sparse haar coefficients of the image.
+   */
+  public synchronized SparseHaarCoefficients getSparseHaarCoefficients() {
+    if (this.haarSource != null) {
+      return this.haarSource;
     }
-
-    return newArray;
+    return getHaarCoefficients().toSparse();
   }
 
   /**
-   * Compresses an image using Haar Wavelet Transforms.
+   * Returns the forward Haar transform of this image. The transform is computed once and kept
+   * until this image is modified, or until the memory is needed elsewhere.
    *
-   * @param ratio The Compression Ratio.
-   * @return Image object.
+   * @return the Haar coefficients of this image.
    */
-  public IImage haarCompress(int ratio) throws IllegalArgumentException {
-
-    if (ratio < 0 || ratio > 100) {
-      throw new IllegalArgumentException("Ratio must be between 0 and 100.");
-    }
-
-    int height = this.rgbValues.length;
-    int width = this.rgbValues[0].length;
-    int values = this.rgbValues[0][0].length;
-    int[] dimensions = new int[3];
-    dimensions[0] = height;
-    dimensions[1] = width;
-    dimensions[2] = values;
-
-    double[][][] rgbValuesDouble = new double[height][width][values];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        for (int v = 0; v < values; v++) {
-          rgbValuesDouble[i][j][v] = this.rgbValues[i][j][v];
-        }
-      }
-    }
-
-    double[][][] transformed = haarThreeDim(rgbValuesDouble);
-    double[][][] compressed = compress(transformed, ratio);
-    double[][][] unpadded = unPad(compressed, dimensions);
-
-    int[][][] rgbValuesInt = new int[height][width][values];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        for (int v = 0; v < values; v++) {
-          rgbValuesInt[i][j][v] = (int) Math.min(255, Math.max(0, Math.round(unpadded[i][j][v])));
-        }
-      }
-    }
-    return new Image(rgbValuesInt, width, height);
+  private synchronized HaarCoefficients getHaarCoefficients() {
+    HaarCoefficients coefficients = this.haarCoefficients.get();
+    if (coefficients == null) {
+      coefficients = new HaarCoefficients(this.rgbValues, this.height, this.width,
+          this.numChannels);
+      this.haarCoefficients = new SoftReference<>(coefficients);
+    }
+    return coefficients;
   }
 
   // End of Image compression methods.
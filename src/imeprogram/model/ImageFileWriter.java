@@ -0,0 +1,140 @@
+package imeprogram.model;
+
+import imeprogram.fileparser.IImageFileIO;
+import imeprogram.fileparser.WriteOptions;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes image files without rewriting a file that an image is mapped from. Such a file is
+ * replaced instead: the image is written to a temporary file in the same folder, which is then
+ * moved over the file, so the mapped image keeps reading its own pixels while they are written.
+ * Every other file is written in place, which keeps its links, permissions and owner. Streamed
+ * images are always written through a temporary file, so a stream that fails partway does not
+ * leave a cut-short file behind.
+ */
+final class ImageFileWriter {
+
+  private ImageFileWriter() {
+  }
+
+  /**
+   * Writes an image to the given path.
+   *
+   * @param imageIO  the helper for the format of the file.
+   * @param filePath the path where the image will be saved.
+   * @param image    the image to be saved.
+   * @param options  the encoder options, or null for the defaults of the format.
+   * @throws IOException              If the file cannot be written.
+   * @throws IllegalArgumentException If the image cannot be encoded in the format.
+   */
+  static void write(IImageFileIO imageIO, String filePath, IImage image, WriteOptions options)
+      throws IOException, IllegalArgumentException {
+    if (!MappedImage.isMapped(toPath(filePath))) {
+      save(imageIO, filePath, image, options);
+      return;
+    }
+    replace(filePath, path -> save(imageIO, path, image, options));
+  }
+
+  /**
+   * Writes a file through a temporary file in the same folder, which replaces the file at the path
+   * only once it is fully written. A failed write leaves the old file as it was, or no file if
+   * there was none. A link at the path is kept, and the file it points at replaced.
+   *
+   * @param filePath the path of the file.
+   * @param contents writes the file at the path it is given.
+   * @throws IOException              If the file cannot be written.
+   * @throws IllegalArgumentException If the contents cannot be encoded.
+   */
+  static void replace(String filePath, FileContents contents)
+      throws IOException, IllegalArgumentException {
+    Path target = toPath(filePath);
+    boolean exists = Files.exists(target);
+    if (exists) {
+      target = target.toRealPath();
+    }
+    Path temp = createTempFile(target);
+    boolean replaced = false;
+    try {
+      contents.writeTo(temp.toString());
+      if (exists) {
+        try {
+          Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException e) {
+          // The file system has no such permissions to keep.
+        }
+      }
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      replaced = true;
+    } finally {
+      if (!replaced) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  private static Path toPath(String filePath) throws FileNotFoundException {
+    try {
+      return Paths.get(filePath).toAbsolutePath();
+    } catch (InvalidPathException e) {
+      throw new FileNotFoundException(e.getMessage());
+    }
+  }
+
+  private static void save(IImageFileIO imageIO, String filePath, IImage image,
+      WriteOptions options) throws IOException, IllegalArgumentException {
+    if (options == null) {
+      imageIO.saveToFile(filePath, image);
+    } else {
+      imageIO.saveToFile(filePath, image, options);
+    }
+  }
+
+  /**
+   * Creates an empty hidden file next to the target. It keeps the extension of the target, which
+   * some formats read from the path, and gets the permissions of any newly created file.
+   */
+  private static Path createTempFile(Path target) throws IOException {
+    String name = target.getFileName().toString();
+    int i = name.lastIndexOf('.');
+    String extension = i > 0 ? name.substring(i) : "";
+    while (true) {
+      Path temp = target.resolveSibling("." + name + "."
+          + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + extension);
+      try {
+        return Files.createFile(temp);
+      } catch (FileAlreadyExistsException e) {
+        // Try another name.
+      }
+    }
+  }
+
+  /**
+   * Writes the contents of a file.
+   */
+  interface FileContents {
+
+    /**
+     * Writes the contents to the given path.
+     *
+     * @param filePath the path to write.
+     * @throws IOException              If the file cannot be written.
+     * @throws IllegalArgumentException If the contents cannot be encoded.
+     */
+    void writeTo(String filePath) throws IOException, IllegalArgumentException;
+  }
+}
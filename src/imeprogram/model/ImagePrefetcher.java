@@ -0,0 +1,162 @@
+package imeprogram.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes images on background threads before they are asked for, so that the time taken to
+ * decode them is spent while other work goes on. A prefetched image is taken by the load that
+ * asks for the same file with the same options, and it is thrown away if the file was changed
+ * after it started being decoded.
+ *
+ * <p>Images are prefetched and taken from a single thread.
+ */
+final class ImagePrefetcher {
+
+  private final ExecutorService executor;
+  private final Map<String, PrefetchedImage> prefetched = new HashMap<>();
+
+  /**
+   * Instantiate an ImagePrefetcher object.
+   *
+   * @param threads the number of threads that decode images.
+   */
+  ImagePrefetcher(int threads) {
+    AtomicInteger count = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "image-prefetcher-" + count.incrementAndGet());
+      // An image nobody takes is not worth keeping the program alive for.
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts decoding an image, unless it is being prefetched already.
+   *
+   * @param key      the file path and options of the load that will take the image.
+   * @param filePath the path of the file.
+   * @param decoder  decodes the image.
+   */
+  void prefetch(String key, String filePath, Callable<IImage> decoder) {
+    if (prefetched.containsKey(key)) {
+      return;
+    }
+    File file = new File(filePath);
+    // The file is stamped before decoding starts, so a change during decoding is noticed.
+    long lastModified = file.lastModified();
+    long length = file.length();
+    prefetched.put(key,
+        new PrefetchedImage(filePath, lastModified, length, executor.submit(decoder)));
+  }
+
+  /**
+   * Takes a prefetched image, waiting for it to be decoded.
+   *
+   * @param key      the file path and options of the load.
+   * @param filePath the path of the file.
+   * @return the image, or null if it was not prefetched or the file changed since.
+   * @throws IOException              If the file could not be read.
+   * @throws IllegalArgumentException If the file is not a valid image.
+   */
+  IImage take(String key, String filePath) throws IOException, IllegalArgumentException {
+    PrefetchedImage image = prefetched.remove(key);
+    if (image == null) {
+      return null;
+    }
+    File file = new File(filePath);
+    if (file.lastModified() != image.lastModified || file.length() != image.length) {
+      image.future.cancel(true);
+      return null;
+    }
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return image.future.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IllegalStateException(cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Throws away the prefetched images of a file, whatever the options they were decoded with.
+   *
+   * @param filePath the path of the file.
+   */
+  void discard(String filePath) {
+    Iterator<PrefetchedImage> it = prefetched.values().iterator();
+    while (it.hasNext()) {
+      PrefetchedImage image = it.next();
+      if (isSameFile(image.filePath, filePath)) {
+        image.future.cancel(true);
+        it.remove();
+      }
+    }
+  }
+
+  private static boolean isSameFile(String first, String second) {
+    try {
+      return Paths.get(first).toAbsolutePath().normalize()
+          .equals(Paths.get(second).toAbsolutePath().normalize());
+    } catch (InvalidPathException e) {
+      return first.equals(second);
+    }
+  }
+
+  /**
+   * Throws away every prefetched image, and stops decoding those that are not decoded yet.
+   */
+  void clear() {
+    for (PrefetchedImage image : prefetched.values()) {
+      image.future.cancel(true);
+    }
+    prefetched.clear();
+  }
+
+  /**
+   * An image being decoded, with the state of its file when decoding started.
+   */
+  private static final class PrefetchedImage {
+
+    private final String filePath;
+    private final long lastModified;
+    private final long length;
+    private final Future<IImage> future;
+
+    private PrefetchedImage(String filePath, long lastModified, long length,
+        Future<IImage> future) {
+      this.filePath = filePath;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.future = future;
+    }
+  }
+}
@@ -28,6 +28,12 @@ public class ImageViewer implements IReadOnlyImage {
     return this.getValueAtPixel(horizontalPos, verticalPos, channel);
   }
 
+  @Override
+  public void getRowValues(int row, int[] rowValues)
+      throws IndexOutOfBoundsException, IllegalArgumentException {
+    this.image.getRowValues(row, rowValues);
+  }
+
   @Override
   public int getWidth() {
     return this.image.getWidth();
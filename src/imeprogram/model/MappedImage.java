@@ -0,0 +1,385 @@
+package imeprogram.model;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class represents a 24-bit image whose pixels stay in a memory-mapped file. The pixels are
+ * stored as interleaved red, green and blue bytes, row after row, as in the raster of a binary PPM.
+ *
+ * <p>Reading pixels and drawing the histogram work on the mapped file directly, so opening a large
+ * image does not copy it onto the heap. Operations that produce a new image read the pixels into a
+ * heap image first. The first write to this image copies it onto the heap for good, and from then
+ * on this image behaves as an ordinary Image.
+ *
+ * <p>The file must not be cut short or rewritten in place while it is mapped. Its size is checked
+ * once, when it is mapped, and reading pixels that are gone from the file afterwards makes the JVM
+ * throw an error. Saves made through the Model replace a mapped file rather than rewrite it.
+ */
+public class MappedImage implements IImage {
+
+  // Largest region mapped at once. A single mapping cannot exceed 2 GB.
+  private static final long MAX_SEGMENT_SIZE = 1L << 30;
+  // Number of rows counted together when drawing the histogram.
+  private static final int HISTOGRAM_ROW_BLOCK = 64;
+  // The images mapped from each file, so that a save over a mapped file replaces it rather than
+  // rewrites it under the mapping.
+  private static final List<MappedFile> MAPPED_FILES = new ArrayList<>();
+
+  private final int width;
+  private final int height;
+  private final int rowBytes;
+  private final int rowsPerSegment;
+  private final MappedByteBuffer[] segments;
+  // Heap copy of this image, made on the first write.
+  private volatile Image written;
+  // Heap copy compressions are made from, kept so that its cached Haar transform is reused by
+  // later compressions of this image, until the memory is needed elsewhere.
+  private SoftReference<Image> compressionSource = new SoftReference<>(null);
+
+  /**
+   * Instantiate a MappedImage object by mapping the pixels of the given file. The file is closed
+   * once it is mapped, since the mapping stays valid without it.
+   *
+   * @param file       the file that holds the pixels.
+   * @param dataOffset the position of the first pixel in the file.
+   * @param width      width of the image.
+   * @param height     height of the image.
+   * @throws IOException              If the file cannot be opened or mapped.
+   * @throws IllegalArgumentException If the dimensions are not positive, or if the file is too
+   *                                  short to hold the pixels.
+   */
+  public MappedImage(Path file, long dataOffset, int width, int height)
+      throws IOException, IllegalArgumentException {
+    long rowSize = (long) width * 3;
+    if (width <= 0 || height <= 0 || rowSize > MAX_SEGMENT_SIZE) {
+      throw new IllegalArgumentException("Invalid dimensions for the mapped image.");
+    }
+    this.width = width;
+    this.height = height;
+    this.rowBytes = (int) rowSize;
+    this.rowsPerSegment = (int) Math.min(height, MAX_SEGMENT_SIZE / rowSize);
+    this.segments = new MappedByteBuffer[(height + rowsPerSegment - 1) / rowsPerSegment];
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < dataOffset + rowSize * height) {
+        throw new IllegalArgumentException("Invalid dimensions for the mapped image.");
+      }
+      for (int s = 0; s < segments.length; s++) {
+        int rows = Math.min(rowsPerSegment, height - s * rowsPerSegment);
+        segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+            dataOffset + (long) s * rowsPerSegment * rowBytes, (long) rows * rowBytes);
+      }
+    }
+    Object fileKey = getFileKey(file);
+    synchronized (MAPPED_FILES) {
+      MAPPED_FILES.removeIf(mapped -> !mapped.isInUse());
+      MAPPED_FILES.add(new MappedFile(fileKey, this));
+    }
+  }
+
+  /**
+   * Checks if an image still reads its pixels from the given file.
+   *
+   * @param file the file.
+   * @return True if the file is mapped by an image that is in use and has not been written to.
+   */
+  static boolean isMapped(Path file) {
+    synchronized (MAPPED_FILES) {
+      if (MAPPED_FILES.isEmpty()) {
+        return false;
+      }
+    }
+    Object fileKey;
+    try {
+      fileKey = getFileKey(file);
+    } catch (IOException e) {
+      // A file that cannot be read is not mapped.
+      return false;
+    }
+    synchronized (MAPPED_FILES) {
+      MAPPED_FILES.removeIf(mapped -> !mapped.isInUse());
+      for (MappedFile mapped : MAPPED_FILES) {
+        if (mapped.fileKey.equals(fileKey)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Returns the same key for every path and link of a file.
+   */
+  private static Object getFileKey(Path file) throws IOException {
+    Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    return fileKey != null ? fileKey : file.toRealPath();
+  }
+
+  @Override
+  public int getValueAtPixel(int horizontalPos, int verticalPos, int channel)
+      throws IndexOutOfBoundsException, IllegalArgumentException {
+    Image heapImage = this.written;
+    if (heapImage != null) {
+      return heapImage.getValueAtPixel(horizontalPos, verticalPos, channel);
+    }
+    if (horizontalPos < 0 || verticalPos < 0 || channel < 0) {
+      throw new IllegalArgumentException("Arguments cannot be negative.");
+    }
+    if (horizontalPos >= this.height || verticalPos >= this.width || channel >= 3) {
+      throw new IndexOutOfBoundsException("Arguments are out of bound.");
+    }
+    return segments[horizontalPos / rowsPerSegment].get(
+        (horizontalPos % rowsPerSegment) * rowBytes + verticalPos * 3 + channel) & 0xFF;
+  }
+
+  @Override
+  public int[][][] getRgbValues() {
+    Image heapImage = this.written;
+    return heapImage != null ? heapImage.getRgbValues() : readRgbValues();
+  }
+
+  @Override
+  public void getRowValues(int row, int[] rowValues)
+      throws IndexOutOfBoundsException, IllegalArgumentException {
+    Image heapImage = this.written;
+    if (heapImage != null) {
+      heapImage.getRowValues(row, rowValues);
+      return;
+    }
+    if (row < 0 || row >= this.height) {
+      throw new IndexOutOfBoundsException("Row is out of bound.");
+    }
+    if (rowValues.length < rowBytes) {
+      throw new IllegalArgumentException("Array is too short to hold the row.");
+    }
+    byte[] bytes = new byte[rowBytes];
+    readRow(row, bytes);
+    for (int k = 0; k < rowBytes; k++) {
+      rowValues[k] = bytes[k] & 0xFF;
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IImage getHistogram(ILineGraph graph) {
+    Image heapImage = this.written;
+    if (heapImage != null) {
+      return heapImage.getHistogram(graph);
+    }
+
+    // Each block of rows is counted separately, and the counts are then added up.
+    int blocks = (height + HISTOGRAM_ROW_BLOCK - 1) / HISTOGRAM_ROW_BLOCK;
+    int[] counts = IntStream.range(0, blocks).parallel().mapToObj(b -> {
+      int[] blockCounts = new int[256 * 3];
+      byte[] row = new byte[rowBytes];
+      for (int i = b * HISTOGRAM_ROW_BLOCK; i < Math.min(height, (b + 1) * HISTOGRAM_ROW_BLOCK);
+          i++) {
+        readRow(i, row);
+        for (int k = 0; k < rowBytes; k++) {
+          blockCounts[(row[k] & 0xFF) * 3 + k % 3]++;
+        }
+      }
+      return blockCounts;
+    }).reduce(new int[256 * 3], (a, b) -> {
+      int[] sum = new int[a.length];
+      for (int k = 0; k < a.length; k++) {
+        sum[k] = a[k] + b[k];
+      }
+      return sum;
+    });
+
+    int[][] histogram = new int[256][3];
+    for (int v = 0; v < 256; v++) {
+      for (int c = 0; c < 3; c++) {
+        histogram[v][c] = counts[v * 3 + c];
+      }
+    }
+    return HistogramHelper.draw(histogram, graph);
+  }
+
+  @Override
+  public synchronized void combineRGB(IImage red, IImage green, IImage blue)
+      throws IllegalArgumentException {
+    if (this.written == null) {
+      this.written = new Image(readRgbValues(), width, height, null);
+    }
+    this.written.combineRGB(red, green, blue);
+  }
+
+  @Override
+  public IImage getComponent(ImageComponent component) {
+    return toHeapImage().getComponent(component);
+  }
+
+  @Override
+  public IImage getValueComponent() {
+    return toHeapImage().getValueComponent();
+  }
+
+  @Override
+  public IImage getIntensityComponent() {
+    return toHeapImage().getIntensityComponent();
+  }
+
+  @Override
+  public IImage getLumaComponent() {
+    return toHeapImage().getLumaComponent();
+  }
+
+  @Override
+  public IImage flipHorizontal() {
+    return toHeapImage().flipHorizontal();
+  }
+
+  @Override
+  public IImage flipVertical() {
+    return toHeapImage().flipVertical();
+  }
+
+  @Override
+  public IImage brighten(int increment) {
+    return toHeapImage().brighten(increment);
+  }
+
+  @Override
+  public IImage[] splitRGB() {
+    return toHeapImage().splitRGB();
+  }
+
+  @Override
+  public IImage applyFilter(Filter imageFilter) {
+    return toHeapImage().applyFilter(imageFilter);
+  }
+
+  @Override
+  public IImage convertToGrayscale() {
+    return toHeapImage().convertToGrayscale();
+  }
+
+  @Override
+  public IImage convertToSepia() {
+    return toHeapImage().convertToSepia();
+  }
+
+  @Override
+  public IImage colorCorrect() {
+    return toHeapImage().colorCorrect();
+  }
+
+  @Override
+  public IImage adjustLevels(int black, int mid, int white) throws IllegalArgumentException {
+    return toHeapImage().adjustLevels(black, mid, white);
+  }
+
+  @Override
+  public IImage splitView(IImage other, int splitRatio) throws IllegalArgumentException {
+    return toHeapImage().splitView(other, splitRatio);
+  }
+
+  @Override
+  public IImage haarCompress(int ratio) throws IllegalArgumentException {
+    return getCompressionSource().haarCompress(ratio);
+  }
+
+  @Override
+  public CompressionResult haarCompressToQuality(QualityTarget target, double value)
+      throws IllegalArgumentException {
+    return getCompressionSource().haarCompressToQuality(target, value);
+  }
+
+  /**
+   * Returns the haar coefficients of the image in a sparse form, as
+   * {@link Image#getSparseHaarCoefficients()} does.
+   *
+   * @return the sparse haar coefficients of the image.
+   */
+  public SparseHaarCoefficients getSparseHaarCoefficients() {
+    return getCompressionSource().getSparseHaarCoefficients();
+  }
+
+  /**
+   * Returns a heap image with the pixels of this image. Unless this image has been written to, the
+   * heap image is a fresh copy that is not kept.
+   */
+  private Image toHeapImage() {
+    Image heapImage = this.written;
+    return heapImage != null ? heapImage : new Image(readRgbValues(), width, height, null);
+  }
+
+  /**
+   * Returns the heap image compressions of this image are made from. Unlike a fresh copy, it is
+   * kept while memory allows, so the forward Haar transform is computed once for all of them.
+   */
+  private synchronized Image getCompressionSource() {
+    Image heapImage = this.written;
+    if (heapImage != null) {
+      return heapImage;
+    }
+    heapImage = this.compressionSource.get();
+    if (heapImage == null) {
+      heapImage = new Image(readRgbValues(), width, height, null);
+      this.compressionSource = new SoftReference<>(heapImage);
+    }
+    return heapImage;
+  }
+
+  private int[][][] readRgbValues() {
+    int[][][] rgbValues = new int[height][width][3];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      byte[] row = new byte[rowBytes];
+      readRow(i, row);
+      for (int j = 0; j < width; j++) {
+        rgbValues[i][j][0] = row[3 * j] & 0xFF;  // Red value
+        rgbValues[i][j][1] = row[3 * j + 1] & 0xFF;  // Green value
+        rgbValues[i][j][2] = row[3 * j + 2] & 0xFF;  // Blue value
+      }
+    });
+    return rgbValues;
+  }
+
+  private void readRow(int row, byte[] destination) {
+    // A duplicate leaves the position of the shared buffer untouched.
+    ByteBuffer segment = segments[row / rowsPerSegment].duplicate();
+    segment.position((row % rowsPerSegment) * rowBytes);
+    segment.get(destination);
+  }
+
+  /**
+   * A mapped file and the image that maps it.
+   */
+  private static final class MappedFile {
+
+    private final Object fileKey;
+    private final WeakReference<MappedImage> image;
+
+    private MappedFile(Object fileKey, MappedImage image) {
+      this.fileKey = fileKey;
+      this.image = new WeakReference<>(image);
+    }
+
+    private boolean isInUse() {
+      MappedImage mappedImage = image.get();
+      return mappedImage != null && mappedImage.written == null;
+    }
+  }
+}
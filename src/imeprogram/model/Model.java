@@ -5,11 +5,23 @@ import imeprogram.exceptions.ImageNotFoundException;
 import imeprogram.exceptions.InvalidImageNameException;
 import imeprogram.fileparser.IImageFileIO;
 import imeprogram.fileparser.IImageFileIOFactory;
+import imeprogram.fileparser.IImageRowReader;
+import imeprogram.fileparser.IImageRowWriter;
+import imeprogram.fileparser.ImageInfo;
+import imeprogram.fileparser.ReadOptions;
+import imeprogram.fileparser.WriteOptions;
 import imeprogram.model.IImage.Filter;
 import imeprogram.model.IImage.ImageComponent;
+import imeprogram.model.IImage.QualityTarget;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,11 +36,31 @@ public class Model implements IModel {
   private Map<String, IImage> loadedImages;
 
   private IImageFileIOFactory imageIOFactory;
+  // Saves images in the background, or null when they are saved before the save returns.
+  private BackgroundSaver backgroundSaver;
+  private final List<SaveFailure> finishedSaveFailures = new ArrayList<>();
+  // Decodes images ahead of their loads, created on the first prefetch.
+  private ImagePrefetcher prefetcher;
+  private static final int PREFETCH_THREADS = 2;
+  // Keeps decoded images for loads of unchanged files, or null to decode every load.
+  private DecodedImageCache imageCache;
   private static final String VALID_ALIAS_NAME_CHARS_REGEX = "[a-zA-Z0-9._-]+";
 
   public Model(IImageFileIOFactory imageIOFactory) {
+    this(imageIOFactory, null);
+  }
+
+  /**
+   * Instantiate a Model object that takes the images of unchanged files from the given cache.
+   *
+   * @param imageIOFactory the factory of image file parsers.
+   * @param imageCache     the cache of decoded images, which may be shared with other models, or
+   *                       null to decode every load.
+   */
+  public Model(IImageFileIOFactory imageIOFactory, DecodedImageCache imageCache) {
     this.loadedImages = new HashMap<String, IImage>();
     this.imageIOFactory = imageIOFactory;
+    this.imageCache = imageCache;
   }
 
   @Override
@@ -37,35 +69,221 @@ public class Model implements IModel {
     // Delegate FileNotFoundException to the Image class.
     // Image class needs a public const,
     // which takes filepath as arg or a builder method that takes filepath.
-    IImage sourceImage;
+    saveImageToMemory(loadImage(filePath, null), imageName);
+  }
+
+  @Override
+  public void loadImageFromFile(String filePath, String imageName, ReadOptions options)
+      throws FileNotFoundException, FileFormatException, InvalidImageNameException {
+    saveImageToMemory(loadImage(filePath, options), imageName);
+  }
+
+  /**
+   * Loads an image, taking it from the cache or the prefetched images if it is among them.
+   */
+  private IImage loadImage(String filePath, ReadOptions options)
+      throws FileNotFoundException, FileFormatException {
+    awaitSaves(filePath);
+    try {
+      if (imageCache != null) {
+        return imageCache.load(filePath, options, () -> takeOrDecodeImage(filePath, options));
+      }
+      return takeOrDecodeImage(filePath, options);
+    } catch (IOException e) {
+      throw new FileNotFoundException(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      throw new FileFormatException(e.getMessage());
+    }
+  }
+
+  /**
+   * Waits for the background saves of the given file, so that it is read as they left it.
+   */
+  private void awaitSaves(String filePath) {
+    if (backgroundSaver != null) {
+      backgroundSaver.awaitSaves(filePath);
+    }
+  }
+
+  private IImage takeOrDecodeImage(String filePath, ReadOptions options) throws IOException {
+    IImage sourceImage = null;
+    if (prefetcher != null) {
+      sourceImage = prefetcher.take(getPrefetchKey(filePath, options), filePath);
+    }
+    return sourceImage != null ? sourceImage : decodeImage(filePath, options);
+  }
+
+  private IImage decodeImage(String filePath, ReadOptions options) throws IOException {
+    // sourceImage = Image.loadImageFromFile(filePath);
+    IImageFileIO imageIO = imageIOFactory.getImageReader(filePath);
+    return options == null ? imageIO.loadFromFile(filePath)
+        : imageIO.loadFromFile(filePath, options);
+  }
+
+  private static String getPrefetchKey(String filePath, ReadOptions options) {
+    return filePath + "\n" + (options == null ? "" : options.toString());
+  }
+
+  @Override
+  public void prefetchImage(String filePath, ReadOptions options) {
+    if (imageCache != null && imageCache.contains(filePath, options)) {
+      return;
+    }
+    // The file would be read before the save writes it.
+    if (backgroundSaver != null && backgroundSaver.hasPendingSave(filePath)) {
+      return;
+    }
+    if (prefetcher == null) {
+      prefetcher = new ImagePrefetcher(PREFETCH_THREADS);
+    }
+    prefetcher.prefetch(getPrefetchKey(filePath, options), filePath,
+        () -> decodeImage(filePath, options));
+  }
+
+  @Override
+  public void clearPrefetchedImages() {
+    if (prefetcher != null) {
+      prefetcher.clear();
+    }
+  }
+
+  @Override
+  public void streamImage(String sourcePath, String destPath, List<RowOperation> operations)
+      throws FileNotFoundException, FileFormatException, IllegalArgumentException {
+    awaitSaves(sourcePath);
+    awaitSaves(destPath);
+    if (prefetcher != null) {
+      prefetcher.discard(destPath);
+    }
+    try {
+      Path source = Paths.get(sourcePath);
+      Path dest = Paths.get(destPath);
+      // The result would overwrite the rows before they are read.
+      if (Files.exists(source) && Files.exists(dest) && Files.isSameFile(source, dest)) {
+        throw new IllegalArgumentException("Cannot stream an image onto its own file.");
+      }
+    } catch (IOException | InvalidPathException e) {
+      throw new FileNotFoundException(e.getMessage());
+    }
+
     try {
-      // sourceImage = Image.loadImageFromFile(filePath);
-      IImageFileIO imageIO = imageIOFactory.getImageParser(filePath);
-      sourceImage = imageIO.loadFromFile(filePath);
+      IImageFileIO destIO = imageIOFactory.getImageParser(destPath);
+      IImageFileIO sourceIO = imageIOFactory.getImageReader(sourcePath);
+      try (IImageRowReader reader = sourceIO.openRowReader(sourcePath)) {
+        // A stream that fails partway leaves the destination as it was.
+        ImageFileWriter.replace(destPath, path -> {
+          try (IImageRowWriter writer = destIO.openRowWriter(path, reader.getWidth(),
+              reader.getHeight(), null)) {
+            RowPipeline.run(reader, writer, operations);
+          }
+        });
+      }
     } catch (IOException e) {
       throw new FileNotFoundException(e.getMessage());
     } catch (IllegalArgumentException e) {
       throw new FileFormatException(e.getMessage());
+    } finally {
+      invalidateCachedImage(destPath);
     }
+  }
 
-    saveImageToMemory(sourceImage, imageName);
+  @Override
+  public ImageInfo getImageInfo(String filePath)
+      throws FileNotFoundException, FileFormatException {
+    awaitSaves(filePath);
+    try {
+      return imageIOFactory.getImageReader(filePath).probe(filePath);
+    } catch (IOException e) {
+      throw new FileNotFoundException(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      throw new FileFormatException(e.getMessage());
+    }
   }
 
   @Override
   public void saveImageToFile(String imageName, String filePath)
       throws ImageNotFoundException, FileNotFoundException, FileFormatException {
-    IImage image = getImageFromMemory(imageName);
+    saveImage(getImageFromMemory(imageName), filePath, null);
+  }
 
+  @Override
+  public void saveImageToFile(String imageName, String filePath, WriteOptions options)
+      throws ImageNotFoundException, FileNotFoundException, FileFormatException {
+    saveImage(getImageFromMemory(imageName), filePath, options);
+  }
+
+  /**
+   * Saves an image now, or queues it when saves are made in the background. The format of the
+   * file is checked before the save is queued.
+   */
+  private void saveImage(IImage image, String filePath, WriteOptions options)
+      throws FileNotFoundException, FileFormatException {
+    IImageFileIO imageIO;
     try {
       // Delegate InvalidFilePathException to the Image class.
       // image.saveToFile(filePath);
-      IImageFileIO imageIO = imageIOFactory.getImageParser(filePath);
-      imageIO.saveToFile(filePath, image);
+      imageIO = imageIOFactory.getImageParser(filePath);
+    } catch (IllegalArgumentException e) {
+      throw new FileFormatException("Invalid image file format");
+    }
+    if (prefetcher != null) {
+      // A prefetched image holds the pixels the file had before this save.
+      prefetcher.discard(filePath);
+    }
+    if (backgroundSaver != null) {
+      // The cache is invalidated by the saver once the file is written.
+      backgroundSaver.submit(imageIO, filePath, image, options);
+      return;
+    }
+    try {
+      ImageFileWriter.write(imageIO, filePath, image, options);
     } catch (IOException e) {
       throw new FileNotFoundException();
     } catch (IllegalArgumentException e) {
       throw new FileFormatException("Invalid image file format");
+    } finally {
+      invalidateCachedImage(filePath);
+    }
+  }
+
+  private void invalidateCachedImage(String filePath) {
+    if (imageCache != null) {
+      // The modification time may not change if the file is rewritten quickly.
+      imageCache.invalidate(filePath);
+    }
+  }
+
+  @Override
+  public void setBackgroundSaves(int threads, int queueSize) throws IllegalArgumentException {
+    if (threads < 0 || queueSize < 0) {
+      throw new IllegalArgumentException("Invalid number of save threads or queue size.");
+    }
+    BackgroundSaver saver = threads == 0 ? null
+        : new BackgroundSaver(threads, queueSize, this::invalidateCachedImage);
+    if (backgroundSaver != null) {
+      // The failures of the saves already queued are kept for the next sync.
+      finishedSaveFailures.addAll(backgroundSaver.shutdown());
     }
+    backgroundSaver = saver;
+  }
+
+  @Override
+  public void setCacheBudget(long bytes) throws IllegalArgumentException {
+    if (imageCache != null) {
+      imageCache.setBudget(bytes);
+    } else if (bytes != 0) {
+      imageCache = new DecodedImageCache(bytes);
+    }
+  }
+
+  @Override
+  public List<SaveFailure> syncSaves() {
+    List<SaveFailure> failures = new ArrayList<>(finishedSaveFailures);
+    finishedSaveFailures.clear();
+    if (backgroundSaver != null) {
+      failures.addAll(backgroundSaver.sync());
+    }
+    return failures;
   }
 
   @Override
@@ -185,7 +403,8 @@ public class Model implements IModel {
     IImage blueComponent = getImageFromMemory(sourceImageNameBlueComp);
 
     // Create a new IImage to assign to destImageName from the given components.
-    // Call builder/constructor of the IImage class
+    // Call builder/constructor of the IImage class. Only a new image is combined into, since the
+    // images in memory may be shared with the cache and other models.
     IImage combinedImage = new Image(redComponent.getHeight(), redComponent.getWidth());
     combinedImage.combineRGB(redComponent, greenComponent, blueComponent);
 
@@ -258,6 +477,17 @@ public class Model implements IModel {
     saveImageToMemory(sourceImg.haarCompress(compressRatio), destImageName);
   }
 
+  @Override
+  public CompressionResult compressToQuality(String sourceImageName, String destImageName,
+      QualityTarget target, double value)
+      throws ImageNotFoundException, InvalidImageNameException, IllegalArgumentException {
+    IImage sourceImg = getImageFromMemory(sourceImageName);
+
+    CompressionResult result = sourceImg.haarCompressToQuality(target, value);
+    saveImageToMemory(result.getImage(), destImageName);
+    return result;
+  }
+
   /**
    * Gets an image from the application memory with the provided image name.
    *
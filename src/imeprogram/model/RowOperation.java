@@ -0,0 +1,152 @@
+package imeprogram.model;
+
+import imeprogram.model.IImage.Filter;
+import imeprogram.model.IImage.ImageComponent;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class represents an operation that can be applied to an image a band of rows at a time,
+ * because each row of its result depends only on the rows near it. Point operations need only
+ * the row itself, and a filter needs the rows its kernel reaches above and below.
+ *
+ * <p>Each operation applies the same method of the image as the command of the same name, so a
+ * streamed image comes out exactly as it would when loaded whole.
+ */
+public final class RowOperation {
+
+  private final String name;
+  private final int radius;
+  private final UnaryOperator<IImage> operation;
+
+  private RowOperation(String name, int radius, UnaryOperator<IImage> operation) {
+    this.name = name;
+    this.radius = radius;
+    this.operation = operation;
+  }
+
+  /**
+   * Keeps a single color component of each pixel.
+   *
+   * @param component the component to be kept.
+   * @return the operation.
+   */
+  public static RowOperation component(ImageComponent component) {
+    return new RowOperation(component.name().toLowerCase() + "-component", 0,
+        image -> image.getComponent(component));
+  }
+
+  /**
+   * Replaces each pixel with its value, the largest of its components.
+   *
+   * @return the operation.
+   */
+  public static RowOperation valueComponent() {
+    return new RowOperation("value-component", 0, IImage::getValueComponent);
+  }
+
+  /**
+   * Replaces each pixel with its luma.
+   *
+   * @return the operation.
+   */
+  public static RowOperation lumaComponent() {
+    return new RowOperation("luma-component", 0, IImage::getLumaComponent);
+  }
+
+  /**
+   * Replaces each pixel with its intensity, the average of its components.
+   *
+   * @return the operation.
+   */
+  public static RowOperation intensityComponent() {
+    return new RowOperation("intensity-component", 0, IImage::getIntensityComponent);
+  }
+
+  /**
+   * Flips each row from left to right.
+   *
+   * @return the operation.
+   */
+  public static RowOperation horizontalFlip() {
+    return new RowOperation("horizontal-flip", 0, IImage::flipHorizontal);
+  }
+
+  /**
+   * Adds the given increment to every component.
+   *
+   * @param increment the increment, which darkens the image if it is negative.
+   * @return the operation.
+   */
+  public static RowOperation brighten(int increment) {
+    return new RowOperation("brighten=" + increment, 0, image -> image.brighten(increment));
+  }
+
+  /**
+   * Converts each pixel to its sepia tone.
+   *
+   * @return the operation.
+   */
+  public static RowOperation sepia() {
+    return new RowOperation("sepia", 0, IImage::convertToSepia);
+  }
+
+  /**
+   * Adjusts the levels of each pixel.
+   *
+   * @param black the black level.
+   * @param mid   the mid level.
+   * @param white the white level.
+   * @return the operation.
+   * @throws IllegalArgumentException If the levels are not in ascending order within [0, 255].
+   */
+  public static RowOperation adjustLevels(int black, int mid, int white)
+      throws IllegalArgumentException {
+    if (!(0 <= black && black < mid && mid < white && white <= 255)) {
+      throw new IllegalArgumentException("Provided black, mid, and white levels are not valid");
+    }
+    return new RowOperation("levels-adjust=" + black + "," + mid + "," + white, 0,
+        image -> image.adjustLevels(black, mid, white));
+  }
+
+  /**
+   * Blurs the image, using the rows on either side of each row.
+   *
+   * @return the operation.
+   */
+  public static RowOperation blur() {
+    return filter("blur", Filter.GAUSSIAN_BLUR);
+  }
+
+  /**
+   * Sharpens the image, using the rows on either side of each row.
+   *
+   * @return the operation.
+   */
+  public static RowOperation sharpen() {
+    return filter("sharpen", Filter.SHARPEN);
+  }
+
+  private static RowOperation filter(String name, Filter filter) {
+    return new RowOperation(name, filter.getKernel().length / 2,
+        image -> image.applyFilter(filter));
+  }
+
+  /**
+   * Gets the number of rows above and below a row that its result depends on.
+   */
+  int getRadius() {
+    return radius;
+  }
+
+  /**
+   * Applies the operation to a band of rows.
+   */
+  IImage apply(IImage band) {
+    return operation.apply(band);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,169 @@
+package imeprogram.model;
+
+import imeprogram.fileparser.IImageRowReader;
+import imeprogram.fileparser.IImageRowWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streams the rows of an image from a reader through a chain of row operations into a writer.
+ * Each operation works on a band of {@value #BAND_ROWS} rows at a time, along with the rows its
+ * kernel reaches above and below the band, and passes its rows on as soon as they are done. Only
+ * those rows are held by each operation, so the memory used does not grow with the height of the
+ * image.
+ */
+final class RowPipeline {
+
+  // Number of rows each operation produces at a time.
+  static final int BAND_ROWS = 16;
+
+  private RowPipeline() {
+  }
+
+  /**
+   * Reads every row of the image, applies the operations in order, and writes the result.
+   *
+   * @param reader     the reader of the source image.
+   * @param writer     the writer of the result, which must have the size of the source image.
+   * @param operations the operations to be applied, in order.
+   * @throws IOException              If the source cannot be read or the result written.
+   * @throws IllegalArgumentException If the source is not a valid image.
+   */
+  static void run(IImageRowReader reader, IImageRowWriter writer, List<RowOperation> operations)
+      throws IOException, IllegalArgumentException {
+    int width = reader.getWidth();
+    int height = reader.getHeight();
+    RowSink sink = new WriterSink(writer);
+    for (int k = operations.size() - 1; k >= 0; k--) {
+      sink = new Stage(operations.get(k), width, height, sink);
+    }
+    while (true) {
+      // The stages keep the rows they are given, so each band is read into new arrays.
+      int[][] band = new int[BAND_ROWS][width * 3];
+      int count = reader.readRows(band);
+      if (count == 0) {
+        break;
+      }
+      for (int r = 0; r < count; r++) {
+        sink.accept(band[r]);
+      }
+    }
+    sink.finish();
+  }
+
+  /**
+   * Takes the rows of an image from top to bottom.
+   */
+  private interface RowSink {
+
+    void accept(int[] row) throws IOException;
+
+    void finish() throws IOException;
+  }
+
+  /**
+   * Applies an operation to the rows it is given, and passes the result on a band at a time. The
+   * rows above the band that the operation still needs are kept in a rolling window.
+   */
+  private static final class Stage implements RowSink {
+
+    private final RowOperation operation;
+    private final int width;
+    private final int height;
+    private final RowSink next;
+    private final Deque<int[]> window = new ArrayDeque<>();
+    // Index of the first row in the window.
+    private int windowStart;
+    private int received;
+    private int emitted;
+
+    private Stage(RowOperation operation, int width, int height, RowSink next) {
+      this.operation = operation;
+      this.width = width;
+      this.height = height;
+      this.next = next;
+    }
+
+    @Override
+    public void accept(int[] row) throws IOException {
+      window.add(row);
+      received++;
+      // A band is ready once the rows below it that the kernel reaches have arrived.
+      while (emitted < height
+          && received >= Math.min(height, emitted + BAND_ROWS + operation.getRadius())) {
+        emitBand();
+      }
+    }
+
+    private void emitBand() throws IOException {
+      int radius = operation.getRadius();
+      int count = Math.min(BAND_ROWS, height - emitted);
+      int first = Math.max(0, emitted - radius);
+      int last = Math.min(height, emitted + count + radius);
+      while (windowStart < first) {
+        window.removeFirst();
+        windowStart++;
+      }
+
+      int[][][] rgbValues = new int[last - first][width][3];
+      Iterator<int[]> rows = window.iterator();
+      for (int i = 0; i < last - first; i++) {
+        int[] row = rows.next();
+        for (int j = 0; j < width; j++) {
+          rgbValues[i][j][0] = row[3 * j];
+          rgbValues[i][j][1] = row[3 * j + 1];
+          rgbValues[i][j][2] = row[3 * j + 2];
+        }
+      }
+      // Rows outside the image count as missing, just as they do at the edges of the band, so the
+      // rows of the band come out as they would from the whole image.
+      IImage result = operation.apply(new Image(rgbValues, width, last - first, null));
+      for (int r = 0; r < count; r++) {
+        int[] row = new int[width * 3];
+        result.getRowValues(emitted - first + r, row);
+        next.accept(row);
+      }
+      emitted += count;
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (emitted < height) {
+        throw new IllegalArgumentException("The image ended before its last row.");
+      }
+      next.finish();
+    }
+  }
+
+  /**
+   * Writes the rows it is given, a band at a time.
+   */
+  private static final class WriterSink implements RowSink {
+
+    private final IImageRowWriter writer;
+    private final int[][] band = new int[BAND_ROWS][];
+    private int count;
+
+    private WriterSink(IImageRowWriter writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public void accept(int[] row) throws IOException {
+      band[count++] = row;
+      if (count == band.length) {
+        writer.writeRows(band, count);
+        count = 0;
+      }
+    }
+
+    @Override
+    public void finish() throws IOException {
+      writer.writeRows(band, count);
+      count = 0;
+    }
+  }
+}
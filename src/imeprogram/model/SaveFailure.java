@@ -0,0 +1,42 @@
+package imeprogram.model;
+
+/**
+ * This class represents a background save that failed. It holds the path the image was to be
+ * saved at, and the failure in the form a save made before returning would have thrown it.
+ */
+public class SaveFailure {
+
+  private final String filePath;
+  private final Exception failure;
+
+  /**
+   * Instantiate a SaveFailure object.
+   *
+   * @param filePath the path the image was to be saved at.
+   * @param failure  a FileNotFoundException if the image could not be saved at its path, or a
+   *                 FileFormatException if it could not be encoded.
+   */
+  public SaveFailure(String filePath, Exception failure) {
+    this.filePath = filePath;
+    this.failure = failure;
+  }
+
+  /**
+   * Gets the path the image was to be saved at.
+   *
+   * @return the file path of the save.
+   */
+  public String getFilePath() {
+    return this.filePath;
+  }
+
+  /**
+   * Gets the failure of the save.
+   *
+   * @return a FileNotFoundException if the image could not be saved at its path, or a
+   *     FileFormatException if it could not be encoded.
+   */
+  public Exception getFailure() {
+    return this.failure;
+  }
+}
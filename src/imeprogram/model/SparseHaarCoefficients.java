@@ -0,0 +1,194 @@
+package imeprogram.model;
+
+import java.util.stream.IntStream;
+
+/**
+ * This class represents the haar coefficients of an image in a sparse form. Only the non-zero
+ * coefficients of each channel are kept, along with their positions in the transformed channel.
+ *
+ * <p>Each channel is transformed with both of its sides padded to the next power of two, so a
+ * position is the index row * paddedWidth + column into that padded channel. Positions are kept in
+ * ascending order.
+ */
+public class SparseHaarCoefficients {
+
+  private final int height;
+  private final int width;
+  private final int[][] positions;
+  private final double[][] values;
+
+  /**
+   * Instantiate a SparseHaarCoefficients object from the given coefficients of each channel.
+   *
+   * @param height    height of the image.
+   * @param width     width of the image.
+   * @param positions the positions of the coefficients of each channel, in ascending order.
+   * @param values    the values of the coefficients of each channel.
+   * @throws IllegalArgumentException If the dimensions are not positive, or if the positions are
+   *                                  not ascending, out of the padded channel, or don't match the
+   *                                  values.
+   */
+  public SparseHaarCoefficients(int height, int width, int[][] positions, double[][] values)
+      throws IllegalArgumentException {
+    if (height <= 0 || width <= 0 || positions.length == 0
+        || positions.length != values.length) {
+      throw new IllegalArgumentException("Invalid haar coefficients.");
+    }
+    long size = (long) HaarWavelet.nextPowerOfTwo(height) * HaarWavelet.nextPowerOfTwo(width);
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid haar coefficients.");
+    }
+    for (int v = 0; v < positions.length; v++) {
+      if (positions[v].length != values[v].length) {
+        throw new IllegalArgumentException("Invalid haar coefficients.");
+      }
+      for (int i = 0; i < positions[v].length; i++) {
+        int previous = i == 0 ? -1 : positions[v][i - 1];
+        if (positions[v][i] <= previous || positions[v][i] >= size) {
+          throw new IllegalArgumentException("Invalid haar coefficients.");
+        }
+      }
+    }
+    this.height = height;
+    this.width = width;
+    this.positions = positions;
+    this.values = values;
+  }
+
+  /**
+   * Returns the haar coefficients of the given image in a sparse form. For an image produced by a
+   * haar compression, these are only the coefficients kept by the compression. Otherwise, these are
+   * all the non-zero coefficients of the transform of the image.
+   *
+   * @param image the image.
+   * @return the sparse haar coefficients of the image.
+   */
+  public static SparseHaarCoefficients of(IImage image) {
+    if (image instanceof Image) {
+      return ((Image) image).getSparseHaarCoefficients();
+    }
+    if (image instanceof MappedImage) {
+      return ((MappedImage) image).getSparseHaarCoefficients();
+    }
+    return new Image(image.getRgbValues(), image.getWidth(), image.getHeight())
+        .getSparseHaarCoefficients();
+  }
+
+  /**
+   * Collects the non-zero coefficients of the given transformed channels.
+   *
+   * @param channels the transformed channels, in the format [channel][row][column].
+   * @param height   height of the image.
+   * @param width    width of the image.
+   * @return the sparse coefficients of the channels.
+   */
+  static SparseHaarCoefficients fromChannels(double[][][] channels, int height, int width) {
+    int numChannels = channels.length;
+    int[][] positions = new int[numChannels][];
+    double[][] values = new double[numChannels][];
+
+    IntStream.range(0, numChannels).parallel().forEach(v -> {
+      int cols = channels[v][0].length;
+      int count = 0;
+      for (double[] row : channels[v]) {
+        for (double coefficient : row) {
+          if (coefficient != 0) {
+            count++;
+          }
+        }
+      }
+      positions[v] = new int[count];
+      values[v] = new double[count];
+      int k = 0;
+      for (int i = 0; i < channels[v].length; i++) {
+        for (int j = 0; j < cols; j++) {
+          if (channels[v][i][j] != 0) {
+            positions[v][k] = i * cols + j;
+            values[v][k] = channels[v][i][j];
+            k++;
+          }
+        }
+      }
+    });
+    return new SparseHaarCoefficients(height, width, positions, values);
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the number of channels of the image.
+   *
+   * @return the number of channels.
+   */
+  public int getNumChannels() {
+    return positions.length;
+  }
+
+  /**
+   * Gets the positions of the non-zero coefficients of the given channel, in ascending order.
+   *
+   * @param channel the channel.
+   * @return a copy of the positions.
+   */
+  public int[] getPositions(int channel) {
+    return positions[channel].clone();
+  }
+
+  /**
+   * Gets the values of the non-zero coefficients of the given channel, in the order of their
+   * positions.
+   *
+   * @param channel the channel.
+   * @return a copy of the values.
+   */
+  public double[] getValues(int channel) {
+    return values[channel].clone();
+  }
+
+  /**
+   * Gets the number of non-zero coefficients across all the channels.
+   *
+   * @return the number of coefficients.
+   */
+  public long getCoefficientCount() {
+    long count = 0;
+    for (int[] channelPositions : positions) {
+      count += channelPositions.length;
+    }
+    return count;
+  }
+
+  /**
+   * Reverts the haar transform to get the image these coefficients represent.
+   *
+   * @return the image, which keeps these coefficients.
+   */
+  public IImage toImage() {
+    int paddedHeight = HaarWavelet.nextPowerOfTwo(height);
+    int paddedWidth = HaarWavelet.nextPowerOfTwo(width);
+    double[][][] channels = new double[positions.length][paddedHeight][paddedWidth];
+    for (int v = 0; v < positions.length; v++) {
+      for (int k = 0; k < positions[v].length; k++) {
+        channels[v][positions[v][k] / paddedWidth][positions[v][k] % paddedWidth] = values[v][k];
+      }
+    }
+    HaarWavelet.inverse(channels);
+    return new Image(HaarWavelet.toRgbValues(channels, height, width), width, height, this);
+  }
+}
@@ -1,6 +1,7 @@
 package imeprogram.view;
 
 import imeprogram.controller.IFeatures;
+import imeprogram.fileparser.WriteOptions;
 import imeprogram.model.IReadOnlyImage;
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -608,7 +609,8 @@ public class GUIView extends JFrame implements IGUIView {
   private void openFile() {
     final JFileChooser fchooser = new JFileChooser(".");
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-        "Image files", "jpg", "png", "ppm"); // Add "ppm" to the list of accepted file extensions
+        // Add "ppm" to the list of accepted file extensions
+        "Image files", "jpg", "png", "ppm", "pnm", "pgm", "haar", "imeraw", "imetile", "qoi");
     fchooser.setFileFilter(filter);
     int retvalue = fchooser.showOpenDialog(this);
     if (retvalue == JFileChooser.APPROVE_OPTION) {
@@ -623,12 +625,34 @@ public class GUIView extends JFrame implements IGUIView {
   private void saveImage() {
     final JFileChooser fchooser = new JFileChooser(".");
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-        "Image files", "jpg", "png", "ppm");
+        "Image files", "jpg", "png", "ppm", "pnm", "pgm", "haar", "imeraw", "imetile", "qoi");
     fchooser.setFileFilter(filter);
+
+    // Encoder options, each used by the format it applies to and ignored by the others.
+    JSlider qualitySlider = new JSlider(1, 100, WriteOptions.DEFAULT_QUALITY);
+    JLabel qualityLabel = new JLabel("JPEG quality: " + qualitySlider.getValue());
+    qualitySlider.addChangeListener(
+        e -> qualityLabel.setText("JPEG quality: " + qualitySlider.getValue()));
+    JCheckBox progressiveToggle = new JCheckBox("Progressive JPEG");
+    JSlider compressionSlider = new JSlider(0, 9, WriteOptions.DEFAULT_COMPRESSION);
+    JLabel compressionLabel = new JLabel("PNG compression: " + compressionSlider.getValue());
+    compressionSlider.addChangeListener(
+        e -> compressionLabel.setText("PNG compression: " + compressionSlider.getValue()));
+    JPanel optionsPanel = new JPanel(new GridLayout(0, 1));
+    optionsPanel.setBorder(new TitledBorder("Options"));
+    optionsPanel.add(qualityLabel);
+    optionsPanel.add(qualitySlider);
+    optionsPanel.add(progressiveToggle);
+    optionsPanel.add(compressionLabel);
+    optionsPanel.add(compressionSlider);
+    fchooser.setAccessory(optionsPanel);
+
     int retvalue = fchooser.showSaveDialog(this);
     if (retvalue == JFileChooser.APPROVE_OPTION) {
       File f = fchooser.getSelectedFile();
-      features.saveImage(tabReference, f.getAbsolutePath());
+      features.saveImage(tabReference, f.getAbsolutePath(),
+          new WriteOptions(qualitySlider.getValue(), progressiveToggle.isSelected(),
+              compressionSlider.getValue(), WriteOptions.DEFAULT_FILTER));
     }
   }
   // End of Listener Methods
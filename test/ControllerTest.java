@@ -1,12 +1,24 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import imeprogram.controller.Controller;
 import imeprogram.controller.Controller.MessageHelper;
 import imeprogram.controller.IController;
+import imeprogram.exceptions.FileFormatException;
 import imeprogram.model.IModel;
+import imeprogram.model.SaveFailure;
 import imeprogram.view.IView;
 import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -84,6 +96,79 @@ public class ControllerTest {
     assertEquals(expectedViewLog, viewLog.toString());
   }
 
+  @Test
+  public void loadImage_WithOptions() {
+    String command = "load res/folderpath/file.png resImage region=10,20,300,200 subsample=4";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected = "\n" + "res/folderpath/file.png" + "\n" + "resimage" + "\n"
+        + "subsample=4 region=10,20,300,200";
+    assertEquals(expected, modelLog.toString());
+    assertEquals(expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void loadImage_UnknownOption() {
+    String command = "load res/folderpath/file.png resImage scale=2";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Invalid load option: scale=2", viewLog.toString());
+  }
+
+  @Test
+  public void loadImage_InvalidRegion() {
+    String command = "load res/folderpath/file.png resImage region=0,0,0,10";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Invalid load option: region=0,0,0,10", viewLog.toString());
+  }
+
+  @Test
+  public void loadImage_OptionNotANumber() {
+    String command = "load res/folderpath/file.png resImage subsample=two";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Provided input value is not a valid number",
+        viewLog.toString());
+  }
+
+  @Test
+  public void info() {
+    String command = "info res/folderpath/file.png";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + "res/folderpath/file.png", modelLog.toString());
+    String expectedViewLog = "\n" + String.format(MessageHelper.IMAGE_INFO_MSG,
+        "res/folderpath/file.png", "png", 640, 480) + expectedSuccess;
+    assertEquals(expectedViewLog, viewLog.toString());
+  }
+
+  @Test
+  public void info_FileNotFoundException() {
+    ((MockModel) model).setThrowFileNotFoundException(true);
+
+    String command = "info res/folderpath/file.png";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected = "\n" + "Error: Cannot load file. Please check path";
+    assertEquals(expected, viewLog.toString());
+  }
+
   @Test
   public void loadImage_FileNotFoundException() {
     ((MockModel) model).setThrowFileNotFoundException(true);
@@ -172,6 +257,237 @@ public class ControllerTest {
     assertEquals(expectedViewLog, viewLog.toString());
   }
 
+  @Test
+  public void saveImage_WithOptions() {
+    String command = "save res/folderpath/file.jpg resImage quality=85 progressive=true";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected = "\n" + "resimage" + "\n" + "res/folderpath/file.jpg" + "\n"
+        + "quality=85 progressive=true compression=4 filter=adaptive binary=false";
+    assertEquals(expected, modelLog.toString());
+    assertEquals(expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void saveImage_BinaryPpm() {
+    String command = "save res/folderpath/file.ppm resImage binary=true";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected = "\n" + "resimage" + "\n" + "res/folderpath/file.ppm" + "\n"
+        + "quality=75 progressive=false compression=4 filter=adaptive binary=true";
+    assertEquals(expected, modelLog.toString());
+    assertEquals(expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void saveImage_UnknownOption() {
+    String command = "save res/folderpath/file.png resImage speed=fast";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Invalid save option: speed=fast", viewLog.toString());
+  }
+
+  @Test
+  public void saveImage_InvalidOptionValue() {
+    String command = "save res/folderpath/file.png resImage compression=12 filter=paeth";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Invalid save option: compression=12 filter=paeth",
+        viewLog.toString());
+  }
+
+  @Test
+  public void saveImage_OptionNotANumber() {
+    String command = "save res/folderpath/file.jpg resImage quality=high";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Provided input value is not a valid number",
+        viewLog.toString());
+  }
+
+  @Test
+  public void cacheBudget() {
+    String command = "cache-budget 64\ncache-budget 0";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + (64L << 20) + "\n" + "0", modelLog.toString());
+    assertEquals(expectedSuccess + expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void cacheBudget_Invalid() {
+    String command = "cache-budget -1\ncache-budget lots";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + String.format(MessageHelper.CACHE_BUDGET_EXCEPTION_MSG, "-1")
+        + "\n" + MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG, viewLog.toString());
+  }
+
+  @Test
+  public void asyncSave_On() {
+    String command = "async-save on threads=3 queue=8";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + "3" + "\n" + "8", modelLog.toString());
+    assertEquals(expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void asyncSave_Defaults() {
+    String command = "async-save on\nasync-save off";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + "2" + "\n" + "4" + "\n" + "0" + "\n" + "0", modelLog.toString());
+    assertEquals(expectedSuccess + expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void asyncSave_InvalidOption() {
+    String command = "async-save on threads=0";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Invalid async-save option: threads=0", viewLog.toString());
+  }
+
+  @Test
+  public void asyncSave_UnknownMode() {
+    String command = "async-save later";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Invalid async-save option: later", viewLog.toString());
+  }
+
+  @Test
+  public void sync_NoFailures() {
+    String command = "sync";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals(expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void sync_ReportsFailures() {
+    List<SaveFailure> failures = new ArrayList<>();
+    failures.add(new SaveFailure("res/missing/file.png", new FileNotFoundException()));
+    failures.add(new SaveFailure("res/file.jpg", new FileFormatException("")));
+    failures.add(new SaveFailure("res/file.jpg", new FileNotFoundException()));
+    ((MockModel) model).setSaveFailures(failures);
+    String command = "sync";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + String.format(MessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG,
+        "res/missing/file.png") + "\n" + String.format(
+        MessageHelper.BACKGROUND_SAVE_EXCEPTION_MSG, "res/file.jpg") + "\n" + String.format(
+        MessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG, "res/file.jpg"), viewLog.toString());
+  }
+
+  @Test
+  public void syncAtEndOfInput_ReportsFailures() {
+    List<SaveFailure> failures = new ArrayList<>();
+    failures.add(new SaveFailure("res/missing/file.png", new FileNotFoundException()));
+    ((MockModel) model).setSaveFailures(failures);
+    String command = "async-save on";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals(expectedSuccess + "\n" + String.format(
+        MessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG, "res/missing/file.png"),
+        viewLog.toString());
+  }
+
+  @Test
+  public void stream_Operations() {
+    String command = "stream res/in.png \"res/out.ppm\" blur brighten=-10 levels-adjust=10,120,240";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + "res/in.png" + "\n" + "res/out.ppm" + "\n" + "blur" + "\n"
+        + "brighten=-10" + "\n" + "levels-adjust=10,120,240", modelLog.toString());
+    assertEquals(expectedSuccess, viewLog.toString());
+  }
+
+  @Test
+  public void stream_InvalidNumArgs() {
+    String command = "stream res/in.png";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Invalid number of arguments", viewLog.toString());
+  }
+
+  @Test
+  public void stream_UnsupportedOperation() {
+    String command = "stream res/in.png res/out.png sepia vertical-flip";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + String.format(MessageHelper.STREAM_OPERATION_EXCEPTION_MSG,
+        "vertical-flip"), viewLog.toString());
+  }
+
+  @Test
+  public void stream_InvalidLevels() {
+    String command = "stream res/in.png res/out.png levels-adjust=10,5,240";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + String.format(MessageHelper.STREAM_OPERATION_EXCEPTION_MSG,
+        "levels-adjust=10,5,240"), viewLog.toString());
+  }
+
+  @Test
+  public void stream_FileNotFoundException() {
+    ((MockModel) model).setThrowFileNotFoundException(true);
+
+    String command = "stream res/in.png res/out.png sepia";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("\n" + MessageHelper.STREAM_FILE_NOT_FOUND_EXCEPTION_MSG, viewLog.toString());
+  }
+
   @Test
   public void saveImage_FileNotFoundException() {
     ((MockModel) model).setThrowFileNotFoundException(true);
@@ -942,6 +1258,91 @@ public class ControllerTest {
     assertEquals(expectedViewLog, viewLog.toString());
   }
 
+  @Test
+  public void compressToQuality() {
+    String command = "compress-to-quality psnr 30 koala koala-compressed";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected = "\n" + "koala" + "\n" + "koala-compressed" + "\n" + "PSNR" + "\n" + "30.0";
+    assertEquals(expected, modelLog.toString());
+    String expectedViewLog = "\n" + String.format(MessageHelper.COMPRESSION_RESULT_MSG, 50, 30.0,
+        100) + expectedSuccess;
+    assertEquals(expectedViewLog, viewLog.toString());
+  }
+
+  @Test
+  public void compressToQuality_TargetNotMet() {
+    ((MockModel) model).setCompressionTargetMet(false);
+    String command = "compress-to-quality psnr 1000 koala koala-compressed";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expectedViewLog = "\n" + String.format(MessageHelper.COMPRESSION_RESULT_MSG, 50, 30.0,
+        100) + "\n" + MessageHelper.COMPRESSION_TARGET_NOT_MET_MSG + expectedSuccess;
+    assertEquals(expectedViewLog, viewLog.toString());
+  }
+
+  @Test
+  public void compressToQuality_Coefficients() {
+    String command = "compress-to-quality coefficients 500 koala koala-compressed";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected =
+        "\n" + "koala" + "\n" + "koala-compressed" + "\n" + "COEFFICIENTS" + "\n" + "500.0";
+    assertEquals(expected, modelLog.toString());
+  }
+
+  @Test
+  public void compressToQuality_InvalidTarget() {
+    String command = "compress-to-quality size 30 koala koala-compressed";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Error: Provided quality target is invalid", viewLog.toString());
+  }
+
+  @Test
+  public void compressToQuality_InvalidNumber() {
+    String command = "compress-to-quality psnr high koala koala-compressed";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + MessageHelper.NUMBER_FORMAT_EXCEPTION_MSG, viewLog.toString());
+  }
+
+  @Test
+  public void compressToQuality_ImageNotFoundException() {
+    ((MockModel) model).setThrowImageNotFoundException(true);
+
+    String command = "compress-to-quality psnr 30 koala koala-compressed";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    String expected = String.format(imageNotFoundExpcetionMsg, "koala");
+    assertEquals(expected, viewLog.toString());
+  }
+
+  @Test
+  public void compressToQuality_InvalidArgs() {
+    String command = "compress-to-quality psnr 30 koala";
+    in = new ByteArrayInputStream(command.getBytes());
+    controller = new Controller(model, view, in);
+    controller.start();
+
+    assertEquals("", modelLog.toString());
+    assertEquals("\n" + "Invalid number of arguments", viewLog.toString());
+  }
+
   @Test
   public void invalidCommand() {
     String command = "doNothing dude";
@@ -981,6 +1382,63 @@ public class ControllerTest {
     assertEquals(expectedViewLog, viewLog.toString());
   }
 
+  @Test
+  public void runScript_PrefetchesLoads() {
+    in = new ByteArrayInputStream(new byte[0]);
+    controller = new Controller(model, view, in);
+    controller.runScript(new String[]{"test/unitImages/prefetchTestScript.txt"});
+
+    // The first load runs straight away, and the file saved before the fourth is not read ahead.
+    assertEquals(Arrays.asList("res/second.ppm", "res/folder path/third.png subsample=2",
+        "res/fourth.png"), ((MockModel) model).getPrefetchedImages());
+    assertEquals("\n" + " Operation successful\n" + " Operation successful\n"
+            + " Operation successful\n" + " Operation successful\n" + " Operation successful\n"
+            + " Operation successful\n" + " Operation successful",
+        viewLog.toString());
+  }
+
+  @Test
+  public void runScript_NestedRunLeavesStateToOuterScript() throws IOException {
+    // Commands are lowercased before they run, so the inner script needs a lowercase path.
+    Path inner = Files.createTempDirectory("script").resolve("inner.txt");
+    assumeTrue(inner.toString().equals(inner.toString().toLowerCase()));
+    Files.copy(Paths.get("test/unitImages/prefetchTestScript.txt"), inner);
+    Path outer = inner.resolveSibling("outer.txt");
+    Files.write(outer, Arrays.asList("load res/first.png first", "run " + inner,
+        "load res/fifth.png fifth"));
+    List<SaveFailure> failures = new ArrayList<>();
+    failures.add(new SaveFailure("res/missing/file.png", new FileNotFoundException()));
+    ((MockModel) model).setSaveFailures(failures);
+    in = new ByteArrayInputStream(new byte[0]);
+    controller = new Controller(model, view, in);
+    controller.runScript(new String[]{outer.toString()});
+    Files.delete(outer);
+    Files.delete(inner);
+    Files.delete(inner.getParent());
+
+    // The load after the inner script is not read ahead, since that script may write its file.
+    assertEquals(Arrays.asList("res/second.ppm", "res/folder path/third.png subsample=2",
+        "res/fourth.png"), ((MockModel) model).getPrefetchedImages());
+    assertEquals(1, ((MockModel) model).getPrefetchClears());
+    assertEquals("\n" + " Operation successful\n"
+            + "Cannot execute a script from inside a script\n" + " Operation successful\n"
+            + " Operation successful\n" + " Operation successful\n" + " Operation successful\n"
+            + " Operation successful\n" + " Operation successful\n" + " Operation successful\n"
+            + " Operation successful\n"
+            + String.format(MessageHelper.SAVE_FILE_NOT_FOUND_EXCEPTION_MSG, "res/missing/file.png"),
+        viewLog.toString());
+  }
+
+  @Test
+  public void runScript_MissingScript() {
+    in = new ByteArrayInputStream(new byte[0]);
+    controller = new Controller(model, view, in);
+    controller.runScript(new String[]{"test/unitImages/missingScript.txt"});
+
+    assertEquals("", modelLog.toString());
+    assertTrue(viewLog.toString().startsWith("\nError reading or executing the script: "));
+  }
+
   class MockView implements IView {
 
     private StringBuilder viewLog;
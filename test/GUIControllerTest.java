@@ -3,6 +3,7 @@ import static org.junit.Assert.assertEquals;
 import imeprogram.controller.GUIController;
 import imeprogram.controller.GUIController.GUIMessageHelper;
 import imeprogram.controller.IFeatures;
+import imeprogram.fileparser.WriteOptions;
 import imeprogram.model.IModel;
 import imeprogram.model.IReadOnlyImage;
 import imeprogram.model.Image;
@@ -194,6 +195,18 @@ public class GUIControllerTest {
     assertEquals(expectedView, viewLog.toString());
   }
 
+  @Test
+  public void saveImage_WithOptions() {
+    String filePath = "abc/dcssda/dsd.png";
+    WriteOptions options = new WriteOptions(90, false, 1, "sub");
+    String expected = getExpectedModelLog(this.imageName, filePath, options.toString());
+
+    controller = new GUIController(model, view);
+    controller.saveImage(this.imageName, filePath, options);
+    // Verify model received correct inputs.
+    assertEquals(expected, modelLog.toString());
+  }
+
   @Test
   public void redComponent() {
     String expected = getExpectedModelLog(this.imageName, this.previewImage, this.previewImage,
@@ -1,18 +1,54 @@
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import imeprogram.fileparser.IImageFileIO;
 import imeprogram.fileparser.IImageFileIOFactory;
+import imeprogram.fileparser.IImageRowReader;
+import imeprogram.fileparser.IImageRowWriter;
+import imeprogram.fileparser.ImageInfo;
 import imeprogram.fileparser.ImageFileIOFactory;
+import imeprogram.fileparser.ReadOptions;
+import imeprogram.fileparser.TiledImageReader;
+import imeprogram.fileparser.TiledImageWriter;
+import imeprogram.fileparser.WriteOptions;
+import imeprogram.model.CompressionResult;
 import imeprogram.model.IImage;
 import imeprogram.model.IImage.Filter;
 import imeprogram.model.IImage.ImageComponent;
+import imeprogram.model.IImage.QualityTarget;
 import imeprogram.model.Image;
 import imeprogram.model.LineGraph2D;
+import imeprogram.model.MappedImage;
+import imeprogram.model.SparseHaarCoefficients;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import javax.imageio.ImageIO;
 import org.junit.Test;
 
 /**
@@ -197,6 +233,376 @@ public class ImageTest {
     }
   }
 
+  /**
+   * Tests that comments are skipped anywhere between the values of a PPM Image.
+   */
+  @Test
+  public void testLoadImageFromFile_Comments_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/comments.ppm";
+    try (FileWriter writer = new FileWriter(testFilePathPPM)) {
+      writer.write("P3 # magic\n# size\n2 1\n255\n0 10 20 #first pixel\n# second\n"
+          + "30 40\t255\n");
+    }
+
+    Image testImgPPM = (Image) imageFileIOFactory.getImageParser(testFilePathPPM)
+        .loadFromFile(testFilePathPPM);
+
+    assertEquals(2, testImgPPM.getWidth());
+    assertEquals(1, testImgPPM.getHeight());
+    assertArrayEquals(new int[]{0, 10, 20}, testImgPPM.getRgbValues()[0][0]);
+    assertArrayEquals(new int[]{30, 40, 255}, testImgPPM.getRgbValues()[0][1]);
+  }
+
+  /**
+   * Tests that a PPM Image with fewer values than its dimensions is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadImageFromFile_MissingValues_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/missing.ppm";
+    try (FileWriter writer = new FileWriter(testFilePathPPM)) {
+      writer.write("P3\n2 2\n255\n0 0 0 0 0 0 0 0 0\n");
+    }
+    imageFileIOFactory.getImageParser(testFilePathPPM).loadFromFile(testFilePathPPM);
+  }
+
+  /**
+   * Tests that a PPM Image with a value out of range is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadImageFromFile_ValueOutOfRange_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/range.ppm";
+    try (FileWriter writer = new FileWriter(testFilePathPPM)) {
+      writer.write("P3\n1 1\n255\n0 256 0\n");
+    }
+    imageFileIOFactory.getImageParser(testFilePathPPM).loadFromFile(testFilePathPPM);
+  }
+
+  /**
+   * Returns an image of random pixels that is large enough to be decoded in parallel when saved as
+   * an ASCII PPM Image.
+   */
+  private Image getLargeRandomImage() {
+    int width = 1000;
+    int height = 600;
+    Random random = new Random(7);
+    int[][][] rgbValues = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        for (int c = 0; c < 3; c++) {
+          rgbValues[i][j][c] = random.nextInt(256);
+        }
+      }
+    }
+    return new Image(rgbValues, width, height);
+  }
+
+  /**
+   * Returns an image of smooth gradients, which lossy and lossless encoders compress well.
+   */
+  private Image getSmoothImage() {
+    int width = 300;
+    int height = 200;
+    int[][][] rgbValues = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        rgbValues[i][j][0] = (i * j) % 256;
+        rgbValues[i][j][1] = (i + j) % 256;
+        rgbValues[i][j][2] = (int) (128 + 100 * Math.sin(j / 7.0));
+      }
+    }
+    return new Image(rgbValues, width, height);
+  }
+
+  /**
+   * Tests that a large ASCII PPM Image, which is decoded in parallel, is loaded without loss.
+   */
+  @Test
+  public void testLoadImageFromFile_Large_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/large.ppm";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(testFilePathPPM).saveToFile(testFilePathPPM, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(testFilePathPPM)
+        .loadFromFile(testFilePathPPM);
+
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests that a large ASCII PPM Image with comments between its values is loaded without loss.
+   */
+  @Test
+  public void testLoadImageFromFile_Large_Comments_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/large_comments.ppm";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(testFilePathPPM).saveToFile(testFilePathPPM, testImg);
+    String contents = new String(Files.readAllBytes(Paths.get(testFilePathPPM)),
+        StandardCharsets.US_ASCII);
+    int middle = contents.indexOf('\n', contents.length() / 2);
+    Files.write(Paths.get(testFilePathPPM), (contents.substring(0, middle) + "\n# comment"
+        + contents.substring(middle)).getBytes(StandardCharsets.US_ASCII));
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(testFilePathPPM)
+        .loadFromFile(testFilePathPPM);
+
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests that a large ASCII PPM Image with a value out of range is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadImageFromFile_Large_ValueOutOfRange_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/large_range.ppm";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(testFilePathPPM).saveToFile(testFilePathPPM, testImg);
+    String contents = new String(Files.readAllBytes(Paths.get(testFilePathPPM)),
+        StandardCharsets.US_ASCII);
+    int middle = contents.indexOf('\n', contents.length() / 2);
+    Files.write(Paths.get(testFilePathPPM), (contents.substring(0, middle) + " 256"
+        + contents.substring(middle)).getBytes(StandardCharsets.US_ASCII));
+
+    imageFileIOFactory.getImageParser(testFilePathPPM).loadFromFile(testFilePathPPM);
+  }
+
+  /**
+   * Tests the exact contents written for an ASCII PPM Image.
+   */
+  @Test
+  public void test_saveToFile_PPM_Contents() throws IOException {
+    String outputFilename = "test/unitResults/contents.ppm";
+    int[][][] rgbValues = {{{0, 5, 10}, {100, 200, 255}}, {{9, 99, 199}, {1, 0, 42}}};
+    Image testImg = new Image(rgbValues, 2, 2);
+
+    imageFileIOFactory.getImageParser(outputFilename).saveToFile(outputFilename, testImg);
+
+    String expected = "P3\n2 2\n255\n0 5 10 100 200 255 \n9 99 199 1 0 42 \n";
+    assertEquals(expected, new String(Files.readAllBytes(Paths.get(outputFilename)),
+        StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Tests that getRowValues returns the channels of each pixel of a row together.
+   */
+  @Test
+  public void test_getRowValues() {
+    int[][][] rgbValues = {{{0, 5, 10}, {100, 200, 255}}, {{9, 99, 199}, {1, 0, 42}}};
+    Image testImg = new Image(rgbValues, 2, 2);
+    int[] rowValues = new int[6];
+
+    testImg.getRowValues(1, rowValues);
+
+    assertArrayEquals(new int[]{9, 99, 199, 1, 0, 42}, rowValues);
+  }
+
+  /**
+   * Tests that getRowValues rejects an array that is too short for a row.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_getRowValues_ShortArray() {
+    Image testImg = new Image(2, 2);
+    testImg.getRowValues(0, new int[5]);
+  }
+
+  /**
+   * Tests that an image saved as a binary PPM Image is loaded back without loss.
+   */
+  @Test
+  public void test_saveToFile_PPM_Binary() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    String outputFilename = "test/unitResults/result.pnm";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    imageFileIOFactory.getImageParser(outputFilename).saveToFile(outputFilename, testImg);
+    IImage loadedImg = imageFileIOFactory.getImageParser(outputFilename)
+        .loadFromFile(outputFilename);
+
+    int[][][] expectedValues = testImg.getRgbValues();
+    int[][][] rgbValues = loadedImg.getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+    long expectedSize = ("P6\n" + testImg.getWidth() + " " + testImg.getHeight() + "\n255\n")
+        .length() + 3L * testImg.getWidth() * testImg.getHeight();
+    assertEquals(expectedSize, new File(outputFilename).length());
+  }
+
+  /**
+   * Tests that an image saved as a PGM Image is loaded back as its luma component.
+   */
+  @Test
+  public void test_saveToFile_PGM() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    String outputFilename = "test/unitResults/result.pgm";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    imageFileIOFactory.getImageParser(outputFilename).saveToFile(outputFilename, testImg);
+    IImage loadedImg = imageFileIOFactory.getImageParser(outputFilename)
+        .loadFromFile(outputFilename);
+
+    int[][][] expectedValues = testImg.getLumaComponent().getRgbValues();
+    int[][][] rgbValues = loadedImg.getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Tests that a binary PPM Image with a comment in its header is loaded.
+   */
+  @Test
+  public void testLoadImageFromFile_Binary_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/binary.ppm";
+    try (FileOutputStream out = new FileOutputStream(testFilePathPPM)) {
+      out.write("P6\n# binary\n2 1\n255\n".getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[]{0, 10, 20, 30, 40, (byte) 255});
+    }
+
+    Image testImgPPM = (Image) imageFileIOFactory.getImageParser(testFilePathPPM)
+        .loadFromFile(testFilePathPPM);
+
+    assertArrayEquals(new int[]{0, 10, 20}, testImgPPM.getRgbValues()[0][0]);
+    assertArrayEquals(new int[]{30, 40, 255}, testImgPPM.getRgbValues()[0][1]);
+  }
+
+  /**
+   * Tests that a binary PPM Image with fewer bytes than its dimensions is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadImageFromFile_Truncated_Binary_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/truncated.ppm";
+    try (FileOutputStream out = new FileOutputStream(testFilePathPPM)) {
+      out.write("P6\n4 4\n255\n".getBytes(StandardCharsets.US_ASCII));
+      out.write(new byte[40]);
+    }
+    imageFileIOFactory.getImageParser(testFilePathPPM).loadFromFile(testFilePathPPM);
+  }
+
+  /**
+   * Writes the given image as a binary PPM and maps its pixels.
+   */
+  private MappedImage getMappedImage(IImage image, String filePath) throws IOException {
+    imageFileIOFactory.getImageParser(filePath).saveToFile(filePath, image);
+    String header = "P6\n" + image.getWidth() + " " + image.getHeight() + "\n255\n";
+    return new MappedImage(Paths.get(filePath), header.length(), image.getWidth(),
+        image.getHeight());
+  }
+
+  /**
+   * Tests that a mapped image reads the same pixels and draws the same histogram as the image it
+   * was written from.
+   */
+  @Test
+  public void test_MappedImage_ReadOnly() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    MappedImage mappedImg = getMappedImage(testImg, "test/unitResults/mapped.pnm");
+
+    assertEquals(testImg.getWidth(), mappedImg.getWidth());
+    assertEquals(testImg.getHeight(), mappedImg.getHeight());
+    assertEquals(testImg.getValueAtPixel(1, 2, 1), mappedImg.getValueAtPixel(1, 2, 1));
+    int[] expectedRow = new int[3 * testImg.getWidth()];
+    int[] mappedRow = new int[3 * testImg.getWidth()];
+    testImg.getRowValues(1, expectedRow);
+    mappedImg.getRowValues(1, mappedRow);
+    assertArrayEquals(expectedRow, mappedRow);
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), mappedImg.getRgbValues()));
+    assertTrue(Arrays.deepEquals(testImg.getHistogram(new LineGraph2D()).getRgbValues(),
+        mappedImg.getHistogram(new LineGraph2D()).getRgbValues()));
+    assertTrue(Arrays.deepEquals(testImg.convertToSepia().getRgbValues(),
+        mappedImg.convertToSepia().getRgbValues()));
+  }
+
+  /**
+   * Tests that writing to a mapped image leaves the file it was mapped from untouched.
+   */
+  @Test
+  public void test_MappedImage_CombineRGB() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    String mappedFilePath = "test/unitResults/mapped_combine.pnm";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    MappedImage mappedImg = getMappedImage(testImg, mappedFilePath);
+    IImage flippedImg = testImg.flipHorizontal();
+    IImage[] channels = flippedImg.splitRGB();
+
+    mappedImg.combineRGB(channels[0], channels[1], channels[2]);
+
+    assertTrue(Arrays.deepEquals(flippedImg.getRgbValues(), mappedImg.getRgbValues()));
+    IImage reloadedImg = imageFileIOFactory.getImageParser(mappedFilePath)
+        .loadFromFile(mappedFilePath);
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), reloadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests that a file too short to hold the pixels is not mapped.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_MappedImage_FileTooShort() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    String mappedFilePath = "test/unitResults/mapped_truncated.pnm";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    getMappedImage(testImg, mappedFilePath);
+    try (FileChannel channel = FileChannel.open(Paths.get(mappedFilePath),
+        StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+
+    String header = "P6\n" + testImg.getWidth() + " " + testImg.getHeight() + "\n255\n";
+    new MappedImage(Paths.get(mappedFilePath), header.length(), testImg.getWidth(),
+        testImg.getHeight());
+  }
+
+  /**
+   * Tests that repeated compressions of a mapped image, which share one heap copy, match those of
+   * the image it was written from, and follow the pixels once the mapped image is written to.
+   */
+  @Test
+  public void test_MappedImage_Compress() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    MappedImage mappedImg = getMappedImage(testImg, "test/unitResults/mapped_compress.pnm");
+
+    assertTrue(Arrays.deepEquals(testImg.haarCompress(60).getRgbValues(),
+        mappedImg.haarCompress(60).getRgbValues()));
+    assertTrue(Arrays.deepEquals(testImg.haarCompress(30).getRgbValues(),
+        mappedImg.haarCompress(30).getRgbValues()));
+
+    IImage flippedImg = testImg.flipHorizontal();
+    IImage[] channels = flippedImg.splitRGB();
+    mappedImg.combineRGB(channels[0], channels[1], channels[2]);
+    assertTrue(Arrays.deepEquals(flippedImg.haarCompress(60).getRgbValues(),
+        mappedImg.haarCompress(60).getRgbValues()));
+  }
+
+  /**
+   * Tests that combining into an image drops the transform cached before, so a compression made
+   * afterwards follows the new pixels.
+   */
+  @Test
+  public void test_CombineRGB_DropsCachedTransform() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    testImg.haarCompress(60);
+    IImage flippedImg = testImg.flipHorizontal();
+    IImage[] channels = flippedImg.splitRGB();
+
+    testImg.combineRGB(channels[0], channels[1], channels[2]);
+
+    assertTrue(Arrays.deepEquals(flippedImg.haarCompress(60).getRgbValues(),
+        testImg.haarCompress(60).getRgbValues()));
+  }
+
   /**
    * Tests the getRedComponent method for PPM Image.
    */
@@ -906,6 +1312,195 @@ public class ImageTest {
     }
   }
 
+  /**
+   * Returns the pixels of the given region of an image, keeping every n-th pixel along each axis.
+   */
+  private int[][][] getSubsampledRegion(int[][][] rgbValues, int subsampling, int x, int y,
+      int width, int height) {
+    int right = Math.min(rgbValues[0].length, x + width);
+    int bottom = Math.min(rgbValues.length, y + height);
+    int[][][] region = new int[(bottom - y + subsampling - 1) / subsampling]
+        [(right - x + subsampling - 1) / subsampling][];
+    for (int i = 0; i < region.length; i++) {
+      for (int j = 0; j < region[0].length; j++) {
+        region[i][j] = rgbValues[y + i * subsampling][x + j * subsampling];
+      }
+    }
+    return region;
+  }
+
+  /**
+   * Tests loading a PNG Image at a lower resolution.
+   */
+  @Test
+  public void testLoadImageFromFile_Subsampled_PNG() throws IOException {
+    String testFilePathPNG = "test/unitResults/subsampled.png";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(testFilePathPNG).saveToFile(testFilePathPNG, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(testFilePathPNG)
+        .loadFromFile(testFilePathPNG, new ReadOptions(3));
+
+    assertEquals(334, loadedImg.getWidth());
+    assertEquals(200, loadedImg.getHeight());
+    assertTrue(Arrays.deepEquals(getSubsampledRegion(testImg.getRgbValues(), 3, 0, 0, 1000, 600),
+        loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests loading a subsampled region of a PNG Image that extends past its right and bottom edges.
+   */
+  @Test
+  public void testLoadImageFromFile_Region_PNG() throws IOException {
+    String testFilePathPNG = "test/unitResults/region.png";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(testFilePathPNG).saveToFile(testFilePathPNG, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(testFilePathPNG)
+        .loadFromFile(testFilePathPNG, new ReadOptions(2, 901, 550, 500, 500));
+
+    assertEquals(50, loadedImg.getWidth());
+    assertEquals(25, loadedImg.getHeight());
+    assertTrue(Arrays.deepEquals(getSubsampledRegion(testImg.getRgbValues(), 2, 901, 550, 500,
+        500), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests loading a region of a PPM Image, which is cropped after the whole file is decoded.
+   */
+  @Test
+  public void testLoadImageFromFile_Region_PPM() throws IOException {
+    String testFilePathPPM = "test/unitImages/bro.ppm";
+    IImage testImg = imageFileIOFactory.getImageParser(testFilePathPPM)
+        .loadFromFile(testFilePathPPM);
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(testFilePathPPM)
+        .loadFromFile(testFilePathPPM, new ReadOptions(2, 1, 0, 2, 3));
+
+    assertTrue(Arrays.deepEquals(getSubsampledRegion(testImg.getRgbValues(), 2, 1, 0, 2, 3),
+        loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests loading a region that starts outside a PNG Image.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadImageFromFile_RegionOutside_PNG() throws IOException {
+    String testFilePathPNG = "test/unitImages/bro.png";
+    imageFileIOFactory.getImageParser(testFilePathPNG)
+        .loadFromFile(testFilePathPNG, new ReadOptions(1, 3, 0, 1, 1));
+  }
+
+  /**
+   * Tests that an invalid subsampling is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadOptions_InvalidSubsampling() {
+    new ReadOptions(0);
+  }
+
+  /**
+   * Tests probing the header of a PNG, JPG and PPM Image.
+   */
+  @Test
+  public void testProbe() throws IOException {
+    String[] testFilePaths = {"test/unitImages/bro.png", "test/unitImages/bro.jpg",
+        "test/unitImages/bro.ppm"};
+    String[] expectedFormats = {"png", "jpeg", "P3"};
+
+    for (int i = 0; i < testFilePaths.length; i++) {
+      ImageInfo info = imageFileIOFactory.getImageParser(testFilePaths[i])
+          .probe(testFilePaths[i]);
+      assertEquals(expectedFormats[i], info.getFormat());
+      assertEquals(3, info.getWidth());
+      assertEquals(3, info.getHeight());
+    }
+  }
+
+  /**
+   * Tests probing the header of saved binary PPM, PGM, haar and raw Images.
+   */
+  @Test
+  public void testProbe_SavedFormats() throws IOException {
+    String[] testFilePaths = {"test/unitResults/probe.pnm", "test/unitResults/probe.pgm",
+        "test/unitResults/probe.haar", "test/unitResults/probe.imeraw"};
+    String[] expectedFormats = {"P6", "P5", "haar", "imeraw"};
+    Image testImg = getLargeRandomImage();
+
+    for (int i = 0; i < testFilePaths.length; i++) {
+      IImageFileIO imageIO = imageFileIOFactory.getImageParser(testFilePaths[i]);
+      imageIO.saveToFile(testFilePaths[i], testImg);
+      ImageInfo info = imageIO.probe(testFilePaths[i]);
+      assertEquals(expectedFormats[i], info.getFormat());
+      assertEquals(1000, info.getWidth());
+      assertEquals(600, info.getHeight());
+    }
+  }
+
+  /**
+   * Tests that the factory identifies a file by its content, and shares its parsers.
+   */
+  @Test
+  public void testGetImageReader_Content() throws IOException {
+    String testFilePath = "test/unitResults/bro_ppm.png";
+    Files.copy(Paths.get("test/unitImages/bro.ppm"), Paths.get(testFilePath),
+        StandardCopyOption.REPLACE_EXISTING);
+
+    IImageFileIO imageIO = imageFileIOFactory.getImageReader(testFilePath);
+
+    assertSame(imageFileIOFactory.getImageParser("test/unitImages/bro.ppm"), imageIO);
+    assertEquals("P3", imageIO.probe(testFilePath).getFormat());
+  }
+
+  /**
+   * Tests that a registered format takes precedence over a built-in one.
+   */
+  @Test
+  public void testRegister_Precedence() {
+    IImageFileIO customImageIO = new IImageFileIO() {
+      @Override
+      public IImage loadFromFile(String filePath) {
+        return null;
+      }
+
+      @Override
+      public ImageInfo probe(String filePath) {
+        return null;
+      }
+
+      @Override
+      public void saveToFile(String filePath, IImage imageToSave) {
+      }
+    };
+    ImageFileIOFactory factory = new ImageFileIOFactory();
+    factory.register(() -> customImageIO, new byte[][]{{(byte) 0x89, 'P', 'N', 'G'}}, "png");
+
+    assertSame(customImageIO, factory.getImageReader("test/unitImages/bro.png"));
+    assertSame(customImageIO, factory.getImageParser("test/unitResults/custom.png"));
+    assertNotSame(customImageIO, factory.getImageReader("test/unitImages/bro.jpg"));
+  }
+
+  /**
+   * Tests probing a PNG Image that does not exist.
+   */
+  @Test(expected = IOException.class)
+  public void testProbe_InvalidFilePath_PNG() throws IOException {
+    String testImagePath = "res/KoalaTest/TestInvalidPath/Koala.png";
+    imageFileIOFactory.getImageParser(testImagePath).probe(testImagePath);
+  }
+
+  /**
+   * Tests probing a PPM Image with an invalid header.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testProbe_InvalidHeader_PPM() throws IOException {
+    String testFilePathPPM = "test/unitResults/invalid_header.ppm";
+    try (FileWriter writer = new FileWriter(testFilePathPPM)) {
+      writer.write("P3\n3 3\n65535\n");
+    }
+    imageFileIOFactory.getImageParser(testFilePathPPM).probe(testFilePathPPM);
+  }
+
   /**
    * Tests for Invalid Height for PNG Image.
    */
@@ -2931,6 +3526,1018 @@ public class ImageTest {
 
   }
 
+  /**
+   * Tests the haarCompress for Compress 0% on a non-square image.
+   */
+  @Test
+  public void test_Compress_0_Rectangular() {
+    int[][][] inputValues = {
+        {{255, 0, 0}, {0, 255, 0}, {0, 0, 255}, {10, 20, 30}, {200, 100, 50}},
+        {{12, 34, 56}, {78, 90, 123}, {45, 67, 89}, {255, 255, 255}, {0, 0, 0}}
+    };
+    Image testImg = new Image(inputValues, 5, 2);
+    IImage testResultImg = testImg.haarCompress(0);
+
+    assertEquals(5, testResultImg.getWidth());
+    assertEquals(2, testResultImg.getHeight());
+    int[][][] rgbValues = testResultImg.getRgbValues();
+    for (int i = 0; i < inputValues.length; i++) {
+      for (int j = 0; j < inputValues[i].length; j++) {
+        assertArrayEquals(inputValues[i][j], rgbValues[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Tests the haarCompress for Compress 100% on a non-square image.
+   */
+  @Test
+  public void test_Compress_100_Rectangular() {
+    int[][][] inputValues = new int[1][7][3];
+    for (int j = 0; j < 7; j++) {
+      inputValues[0][j] = new int[]{100, 100, 100};
+    }
+    Image testImg = new Image(inputValues, 7, 1);
+    IImage testResultImg = testImg.haarCompress(100);
+
+    assertEquals(7, testResultImg.getWidth());
+    assertEquals(1, testResultImg.getHeight());
+    for (int j = 0; j < 7; j++) {
+      for (int k = 0; k < 3; k++) {
+        int value = testResultImg.getValueAtPixel(0, j, k);
+        assertTrue(value >= 0 && value <= 255);
+      }
+    }
+  }
+
+  /**
+   * Tests that compressing the same image with different ratios gives the same result as
+   * compressing a fresh copy of the image with each ratio.
+   */
+  @Test
+  public void test_Compress_RepeatedRatios() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    for (int ratio : new int[]{90, 10, 60, 0, 100, 60}) {
+      Image freshImg = new Image(testImg.getRgbValues(), testImg.getWidth(),
+          testImg.getHeight());
+      int[][][] expectedValues = freshImg.haarCompress(ratio).getRgbValues();
+      int[][][] rgbValues = testImg.haarCompress(ratio).getRgbValues();
+      for (int i = 0; i < expectedValues.length; i++) {
+        for (int j = 0; j < expectedValues[i].length; j++) {
+          assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the parallel haar compression gives the same pixels as the sequential compression
+   * it replaced, on images with odd sides that are padded differently along each axis. The larger
+   * image is transformed in parallel blocks, and the smaller one on the calling thread.
+   */
+  @Test
+  public void test_Compress_MatchesSequential() {
+    Random random = new Random(11);
+    for (int[] size : new int[][]{{7, 5}, {301, 157}}) {
+      int width = size[0];
+      int height = size[1];
+      int[][][] inputValues = new int[height][width][3];
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          for (int k = 0; k < 3; k++) {
+            // A gradient with noise, so that the coefficients spread over many magnitudes.
+            inputValues[i][j][k] = Math.min(255, (i + j * (k + 1)) % 200 + random.nextInt(56));
+          }
+        }
+      }
+      Image testImg = new Image(inputValues, width, height);
+
+      for (int ratio : new int[]{0, 25, 50, 90, 100}) {
+        int[][][] expectedValues = sequentialHaarCompress(inputValues, width, height, ratio);
+        int[][][] rgbValues = testImg.haarCompress(ratio).getRgbValues();
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compresses the given pixels one channel, row and column at a time, with a threshold taken
+   * from the sorted distinct magnitudes of all the coefficients.
+   */
+  private static int[][][] sequentialHaarCompress(int[][][] rgbValues, int width, int height,
+      int ratio) {
+    int paddedHeight = Integer.highestOneBit(2 * height - 1);
+    int paddedWidth = Integer.highestOneBit(2 * width - 1);
+    double[][][] channels = new double[3][paddedHeight][paddedWidth];
+    for (int v = 0; v < 3; v++) {
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          channels[v][i][j] = rgbValues[i][j][v];
+        }
+      }
+      sequentialHaar(channels[v], false);
+    }
+
+    TreeSet<Double> magnitudes = new TreeSet<>();
+    for (double[][] channel : channels) {
+      for (double[] row : channel) {
+        for (double value : row) {
+          magnitudes.add(Math.abs(value));
+        }
+      }
+    }
+    List<Double> sorted = new ArrayList<>(magnitudes);
+    int thresholdIndex = Math.max(0, (int) Math.round((ratio / 100.0) * sorted.size()) - 1);
+    double threshold = sorted.get(thresholdIndex);
+
+    int[][][] result = new int[height][width][3];
+    for (int v = 0; v < 3; v++) {
+      for (double[] row : channels[v]) {
+        for (int j = 0; j < row.length; j++) {
+          if (Math.abs(row[j]) < threshold) {
+            row[j] = 0;
+          }
+        }
+      }
+      sequentialHaar(channels[v], true);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          result[i][j][v] = (int) Math.min(255, Math.max(0, Math.round(channels[v][i][j])));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Applies the haar transform, or its inverse, to a channel whose sides are powers of two. Each
+   * level halves both axes independently, until each of them is a single value. The row passes
+   * span the whole padded row at every level, as the sequential compression did.
+   */
+  private static void sequentialHaar(double[][] x, boolean inverse) {
+    int rows = x.length;
+    int cols = x[0].length;
+    List<int[]> levels = new ArrayList<>();
+    for (int r = rows, c = cols; r > 1 || c > 1; r = Math.max(1, r / 2), c = Math.max(1, c / 2)) {
+      levels.add(new int[]{r, c});
+    }
+    if (inverse) {
+      Collections.reverse(levels);
+    }
+    double[] col = new double[rows];
+    for (int[] level : levels) {
+      int r = level[0];
+      int c = level[1];
+      if (c > 1 && !inverse) {
+        for (int i = 0; i < r; i++) {
+          sequentialHaarOneDim(x[i], cols, false);
+        }
+      }
+      if (r > 1) {
+        for (int j = 0; j < c; j++) {
+          for (int i = 0; i < r; i++) {
+            col[i] = x[i][j];
+          }
+          sequentialHaarOneDim(col, r, inverse);
+          for (int i = 0; i < r; i++) {
+            x[i][j] = col[i];
+          }
+        }
+      }
+      if (c > 1 && inverse) {
+        for (int i = 0; i < r; i++) {
+          sequentialHaarOneDim(x[i], cols, true);
+        }
+      }
+    }
+  }
+
+  private static void sequentialHaarOneDim(double[] s, int n, boolean inverse) {
+    int half = n / 2;
+    double[] scratch = new double[n];
+    for (int i = 0; i < half; i++) {
+      if (inverse) {
+        scratch[2 * i] = (s[i] + s[i + half]) / Math.sqrt(2);
+        scratch[2 * i + 1] = (s[i] - s[i + half]) / Math.sqrt(2);
+      } else {
+        scratch[i] = (s[2 * i] + s[2 * i + 1]) / Math.sqrt(2);
+        scratch[i + half] = (s[2 * i] - s[2 * i + 1]) / Math.sqrt(2);
+      }
+    }
+    System.arraycopy(scratch, 0, s, 0, n);
+  }
+
+  /**
+   * Tests that compressing an image after it has been overwritten by combineRGB uses its new
+   * pixel values.
+   */
+  @Test
+  public void test_Compress_AfterCombineRGB() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    Image combinedImg = new Image(testImg.getHeight(), testImg.getWidth());
+    combinedImg.haarCompress(50);
+
+    combinedImg.combineRGB(testImg, testImg, testImg);
+    int[][][] rgbValues = combinedImg.haarCompress(0).getRgbValues();
+    int[][][] expectedValues = testImg.getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Tests that haarCompressToQuality picks the highest ratio that meets a PSNR target.
+   */
+  @Test
+  public void test_CompressToQuality_Psnr() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    CompressionResult result = testImg.haarCompressToQuality(QualityTarget.PSNR, 8);
+    assertTrue(result.getPsnr() >= 8);
+    assertTrue(result.getRatio() >= 0 && result.getRatio() <= 100);
+    if (result.getRatio() < 100) {
+      CompressionResult next = testImg.haarCompressToQuality(QualityTarget.PSNR,
+          result.getPsnr() + 0.01);
+      assertTrue(next.getRatio() <= result.getRatio());
+    }
+    int[][][] expectedValues = testImg.haarCompress(result.getRatio()).getRgbValues();
+    int[][][] rgbValues = result.getImage().getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Tests that a PSNR target only lossless compression can meet keeps every pixel unchanged.
+   */
+  @Test
+  public void test_CompressToQuality_Lossless() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    CompressionResult result = testImg.haarCompressToQuality(QualityTarget.PSNR, 1000);
+    assertEquals(Double.POSITIVE_INFINITY, result.getPsnr(), 0);
+    assertTrue(result.isTargetMet());
+    int[][][] expectedValues = testImg.getRgbValues();
+    int[][][] rgbValues = result.getImage().getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Tests that a PSNR target that not even ratio 0 meets is reported as not met. Pixel values out
+   * of range are clamped when the image is rebuilt, so no ratio reproduces them.
+   */
+  @Test
+  public void test_CompressToQuality_PsnrNotMet() {
+    int[][][] rgbValues = new int[3][5][3];
+    rgbValues[1][2] = new int[]{300, 300, 300};
+    Image testImg = new Image(rgbValues, 5, 3);
+
+    CompressionResult result = testImg.haarCompressToQuality(QualityTarget.PSNR, 1000);
+    assertEquals(0, result.getRatio());
+    assertTrue(result.getPsnr() < 1000);
+    assertFalse(result.isTargetMet());
+
+    CompressionResult met = testImg.haarCompressToQuality(QualityTarget.PSNR, 10);
+    assertTrue(met.isTargetMet());
+    assertTrue(met.getPsnr() >= 10);
+  }
+
+  /**
+   * Tests that haarCompressToQuality picks the lowest ratio within a coefficient budget.
+   */
+  @Test
+  public void test_CompressToQuality_Coefficients() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    CompressionResult all = testImg.haarCompressToQuality(QualityTarget.COEFFICIENTS, 1000);
+    assertEquals(0, all.getRatio());
+    assertTrue(all.getCoefficientCount() <= 48);
+
+    CompressionResult result = testImg.haarCompressToQuality(QualityTarget.COEFFICIENTS, 10);
+    assertTrue(result.isTargetMet());
+    assertTrue(result.getCoefficientCount() <= 10);
+    assertTrue(result.getRatio() > 0);
+  }
+
+  /**
+   * Tests haarCompressToQuality for a negative coefficient budget.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_CompressToQuality_InvalidValue() {
+    Image testImg = new Image(3, 3);
+    testImg.haarCompressToQuality(QualityTarget.COEFFICIENTS, -1);
+  }
+
+  /**
+   * Tests that a compressed image saved as a haar file is restored to the same pixels, and takes
+   * less space than the same image saved as a PPM file.
+   */
+  @Test
+  public void test_saveToFile_Haar_Compressed() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    String haarFilename = "test/unitResults/result.haar";
+    String ppmFilename = "test/unitResults/result_haar.ppm";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+    IImage compressedImg = testImg.haarCompress(90);
+
+    imageFileIOFactory.getImageParser(haarFilename).saveToFile(haarFilename, compressedImg);
+    imageFileIOFactory.getImageParser(ppmFilename).saveToFile(ppmFilename, compressedImg);
+    IImage loadedImg = imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+
+    assertEquals(compressedImg.getWidth(), loadedImg.getWidth());
+    assertEquals(compressedImg.getHeight(), loadedImg.getHeight());
+    int[][][] expectedValues = compressedImg.getRgbValues();
+    int[][][] rgbValues = loadedImg.getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+    assertTrue(new File(haarFilename).length() < new File(ppmFilename).length());
+    assertEquals(SparseHaarCoefficients.of(compressedImg).getCoefficientCount(),
+        SparseHaarCoefficients.of(loadedImg).getCoefficientCount());
+  }
+
+  /**
+   * Tests that an image that was not compressed is saved as a haar file without loss.
+   */
+  @Test
+  public void test_saveToFile_Haar_Uncompressed() throws IOException {
+    String testFilePath = "test/unitImages/bro.png";
+    String haarFilename = "test/unitResults/result_full.haar";
+    Image testImg = (Image) imageFileIOFactory.getImageParser(testFilePath)
+        .loadFromFile(testFilePath);
+
+    imageFileIOFactory.getImageParser(haarFilename).saveToFile(haarFilename, testImg);
+    IImage loadedImg = imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+
+    int[][][] expectedValues = testImg.getRgbValues();
+    int[][][] rgbValues = loadedImg.getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+  }
+
+  /**
+   * Tests that a large image of random pixels, whose coefficients need more precision than a float
+   * holds, is saved as a haar file without loss, both in its pixels and in its coefficients.
+   */
+  @Test
+  public void test_saveToFile_Haar_LargeRandom() throws IOException {
+    String haarFilename = "test/unitResults/result_random.haar";
+    Image testImg = getLargeRandomImage();
+
+    imageFileIOFactory.getImageParser(haarFilename).saveToFile(haarFilename, testImg);
+    IImage loadedImg = imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+
+    int[][][] expectedValues = testImg.getRgbValues();
+    int[][][] rgbValues = loadedImg.getRgbValues();
+    for (int i = 0; i < expectedValues.length; i++) {
+      for (int j = 0; j < expectedValues[i].length; j++) {
+        assertArrayEquals(expectedValues[i][j], rgbValues[i][j]);
+      }
+    }
+    SparseHaarCoefficients expected = SparseHaarCoefficients.of(testImg);
+    SparseHaarCoefficients loaded = SparseHaarCoefficients.of(loadedImg);
+    for (int v = 0; v < expected.getNumChannels(); v++) {
+      assertArrayEquals(expected.getPositions(v), loaded.getPositions(v));
+      assertArrayEquals(expected.getValues(v), loaded.getValues(v), 0);
+    }
+  }
+
+  /**
+   * Tests that a haar file of the first version, which holds its values as floats, still loads.
+   */
+  @Test
+  public void test_loadFromFile_Haar_FloatValues() throws IOException {
+    String haarFilename = "test/unitResults/float.haar";
+    byte[] magic = {'I', 'M', 'E', 'H', 'A', 'A', 'R', 1};
+    ByteBuffer header = ByteBuffer.allocate(magic.length + 12);
+    header.put(magic).putInt(1).putInt(1).putInt(3);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    file.write(header.array());
+    try (DeflaterOutputStream body = new DeflaterOutputStream(file)) {
+      for (float value : new float[]{10, 20, 30}) {
+        // One coefficient, at position 0.
+        body.write(1);
+        body.write(0);
+        body.write(ByteBuffer.allocate(Float.BYTES).putFloat(value).array());
+      }
+    }
+    Files.write(Paths.get(haarFilename), file.toByteArray());
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+    assertArrayEquals(new int[]{10, 20, 30}, loadedImg.getRgbValues()[0][0]);
+  }
+
+  /**
+   * Tests that loading a file that is not a haar file throws an exception.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_loadFromFile_Haar_Invalid() throws IOException {
+    String haarFilename = "test/unitResults/invalid.haar";
+    try (FileWriter writer = new FileWriter(haarFilename)) {
+      writer.write("P3\n1 1\n255\n0 0 0\n");
+    }
+    imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+  }
+
+  /**
+   * Tests that a haar file whose header asks for a huge image, or more coefficients than its
+   * padded channel holds, is rejected before the coefficients are allocated.
+   */
+  @Test
+  public void test_loadFromFile_Haar_TooLarge() throws IOException {
+    String haarFilename = "test/unitResults/large.haar";
+    byte[] magic = {'I', 'M', 'E', 'H', 'A', 'A', 'R', 1};
+    ByteBuffer header = ByteBuffer.allocate(magic.length + 12);
+    header.put(magic).putInt(1 << 15).putInt(1 << 15).putInt(3);
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    file.write(header.array());
+    try (DeflaterOutputStream body = new DeflaterOutputStream(file)) {
+      // No coefficients in any channel.
+      body.write(new byte[3]);
+    }
+    Files.write(Paths.get(haarFilename), file.toByteArray());
+    try {
+      imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+      fail("Expected the huge image to be rejected.");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    file.reset();
+    header.clear();
+    header.put(magic).putInt(3).putInt(3).putInt(3);
+    file.write(header.array());
+    try (DeflaterOutputStream body = new DeflaterOutputStream(file)) {
+      // 17 coefficients, one more than a 4 x 4 padded channel holds.
+      body.write(17);
+    }
+    Files.write(Paths.get(haarFilename), file.toByteArray());
+    try {
+      imageFileIOFactory.getImageParser(haarFilename).loadFromFile(haarFilename);
+      fail("Expected too many coefficients to be rejected.");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Tests that an image saved as a raw file is loaded without loss.
+   */
+  @Test
+  public void test_saveToFile_Raw() throws IOException {
+    String rawFilename = "test/unitResults/result.imeraw";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(rawFilename).saveToFile(rawFilename, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(rawFilename).loadFromFile(rawFilename);
+
+    assertEquals(24 + 1000 * 600 * 3, Files.size(Paths.get(rawFilename)));
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests loading a raw file with planar grayscale samples, written by another program.
+   */
+  @Test
+  public void test_loadFromFile_Raw_PlanarGrayscale() throws IOException {
+    String rawFilename = "test/unitResults/gray.imeraw";
+    byte[] samples = {0, 50, 100, (byte) 150, (byte) 200, (byte) 250};
+    CRC32 crc = new CRC32();
+    crc.update(samples);
+    ByteBuffer file = ByteBuffer.allocate(24 + samples.length);
+    file.put(new byte[]{'I', 'M', 'E', 'R', 'A', 'W', 0, 1}).putInt(3).putInt(2).put((byte) 1)
+        .put((byte) 1).putShort((short) 0).putInt((int) crc.getValue()).put(samples);
+    Files.write(Paths.get(rawFilename), file.array());
+
+    IImage loadedImg = imageFileIOFactory.getImageReader(rawFilename).loadFromFile(rawFilename);
+
+    int[][][] expectedValues = {{{0, 0, 0}, {50, 50, 50}, {100, 100, 100}},
+        {{150, 150, 150}, {200, 200, 200}, {250, 250, 250}}};
+    assertArrayEquals(expectedValues, loadedImg.getRgbValues());
+  }
+
+  /**
+   * Tests that a raw file whose samples do not match its checksum is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_loadFromFile_Raw_Corrupted() throws IOException {
+    String rawFilename = "test/unitResults/corrupted.imeraw";
+    String testFilePath = "test/unitImages/bro.png";
+    IImage testImg = imageFileIOFactory.getImageParser(testFilePath).loadFromFile(testFilePath);
+    imageFileIOFactory.getImageParser(rawFilename).saveToFile(rawFilename, testImg);
+    byte[] contents = Files.readAllBytes(Paths.get(rawFilename));
+    contents[contents.length - 1] ^= 1;
+    Files.write(Paths.get(rawFilename), contents);
+
+    imageFileIOFactory.getImageParser(rawFilename).loadFromFile(rawFilename);
+  }
+
+  /**
+   * Tests that a truncated raw file is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_loadFromFile_Raw_Truncated() throws IOException {
+    String rawFilename = "test/unitResults/truncated.imeraw";
+    String testFilePath = "test/unitImages/bro.png";
+    IImage testImg = imageFileIOFactory.getImageParser(testFilePath).loadFromFile(testFilePath);
+    imageFileIOFactory.getImageParser(rawFilename).saveToFile(rawFilename, testImg);
+    byte[] contents = Files.readAllBytes(Paths.get(rawFilename));
+    Files.write(Paths.get(rawFilename), Arrays.copyOf(contents, contents.length - 3));
+
+    imageFileIOFactory.getImageParser(rawFilename).loadFromFile(rawFilename);
+  }
+
+  /**
+   * Tests that an image saved as a tiled file is loaded without loss, including its edge tiles.
+   */
+  @Test
+  public void test_saveToFile_Tiled() throws IOException {
+    String tiledFilename = "test/unitResults/result.imetile";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(tiledFilename).saveToFile(tiledFilename, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageReader(tiledFilename)
+        .loadFromFile(tiledFilename);
+
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests loading a subsampled region of a tiled file that spans several tiles.
+   */
+  @Test
+  public void test_loadFromFile_Tiled_Region() throws IOException {
+    String tiledFilename = "test/unitResults/region.imetile";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(tiledFilename).saveToFile(tiledFilename, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageParser(tiledFilename)
+        .loadFromFile(tiledFilename, new ReadOptions(3, 200, 250, 700, 400));
+
+    assertTrue(Arrays.deepEquals(getSubsampledRegion(testImg.getRgbValues(), 3, 200, 250, 700,
+        400), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests writing the tiles of an image out of order, and reading regions of it back.
+   */
+  @Test
+  public void test_TiledImageWriter_Streaming() throws IOException {
+    String tiledFilename = "test/unitResults/streamed.imetile";
+    int[][][] rgbValues = getLargeRandomImage().getRgbValues();
+    // A flat half compresses, and a random half does not.
+    for (int i = 0; i < 300; i++) {
+      for (int j = 0; j < 1000; j++) {
+        rgbValues[i][j] = new int[]{10, 20, 30};
+      }
+    }
+    Image testImg = new Image(rgbValues, 1000, 600);
+
+    try (TiledImageWriter writer = new TiledImageWriter(tiledFilename, 1000, 600, 128, true)) {
+      for (int tileRow = writer.getTilesDown() - 1; tileRow >= 0; tileRow--) {
+        for (int tileColumn = 0; tileColumn < writer.getTilesAcross(); tileColumn++) {
+          int x = tileColumn * 128;
+          int y = tileRow * 128;
+          writer.writeTile(tileColumn, tileRow, new Image(getSubsampledRegion(rgbValues, 1, x, y,
+              128, 128), Math.min(128, 1000 - x), Math.min(128, 600 - y)));
+        }
+      }
+    }
+
+    assertTrue(Files.size(Paths.get(tiledFilename)) < 1000 * 600 * 3 * 3 / 4);
+    try (TiledImageReader reader = new TiledImageReader(tiledFilename)) {
+      assertEquals(1000, reader.getWidth());
+      assertEquals(600, reader.getHeight());
+      assertEquals(128, reader.getTileSize());
+      assertTrue(Arrays.deepEquals(getSubsampledRegion(testImg.getRgbValues(), 1, 250, 100, 500,
+          400), reader.readRegion(250, 100, 500, 400).getRgbValues()));
+      assertTrue(Arrays.deepEquals(getSubsampledRegion(testImg.getRgbValues(), 1, 999, 599, 1,
+          1), reader.readRegion(999, 599, 1, 1).getRgbValues()));
+    }
+  }
+
+  /**
+   * Tests that closing a tiled writer before every tile is written fails.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void test_TiledImageWriter_MissingTile() throws IOException {
+    String tiledFilename = "test/unitResults/missing.imetile";
+    try (TiledImageWriter writer = new TiledImageWriter(tiledFilename, 2, 2, 1, false)) {
+      writer.writeTile(0, 0, new Image(new int[][][]{{{1, 2, 3}}}, 1, 1));
+    }
+  }
+
+  /**
+   * Tests that a region outside a tiled file is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_TiledImageReader_RegionOutside() throws IOException {
+    String tiledFilename = "test/unitResults/outside.imetile";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(tiledFilename).saveToFile(tiledFilename, testImg);
+
+    try (TiledImageReader reader = new TiledImageReader(tiledFilename)) {
+      reader.readRegion(900, 0, 101, 1);
+    }
+  }
+
+  /**
+   * Tests writing an image a band of rows at a time in every lossless format, and reading it back
+   * a band of rows at a time.
+   */
+  @Test
+  public void test_RowWriter_RowReader() throws IOException {
+    Image testImg = getLargeRandomImage();
+    int[][][] rgbValues = testImg.getRgbValues();
+    for (String filename : new String[]{"test/unitResults/rows.ppm", "test/unitResults/rows.pnm",
+        "test/unitResults/rows.imeraw", "test/unitResults/rows.png", "test/unitResults/rows.qoi"}) {
+      IImageFileIO imageIO = imageFileIOFactory.getImageParser(filename);
+      int[][] band = new int[7][1000 * 3];
+      try (IImageRowWriter writer = imageIO.openRowWriter(filename, 1000, 600, null)) {
+        for (int i = 0; i < 600; i += band.length) {
+          int count = Math.min(band.length, 600 - i);
+          for (int r = 0; r < count; r++) {
+            testImg.getRowValues(i + r, band[r]);
+          }
+          writer.writeRows(band, count);
+        }
+      }
+      IImage loadedImg = imageFileIOFactory.getImageReader(filename).loadFromFile(filename);
+      assertTrue(filename, Arrays.deepEquals(rgbValues, loadedImg.getRgbValues()));
+
+      band = new int[16][1000 * 3];
+      int[] expected = new int[1000 * 3];
+      int rows = 0;
+      try (IImageRowReader reader = imageFileIOFactory.getImageReader(filename)
+          .openRowReader(filename)) {
+        assertEquals(1000, reader.getWidth());
+        assertEquals(600, reader.getHeight());
+        for (int count = reader.readRows(band); count > 0; count = reader.readRows(band)) {
+          for (int r = 0; r < count; r++) {
+            testImg.getRowValues(rows + r, expected);
+            assertArrayEquals(filename, expected, band[r]);
+          }
+          rows += count;
+        }
+      }
+      assertEquals(600, rows);
+    }
+  }
+
+  /**
+   * Tests that the rows of PNG files with alpha or a palette are read as the whole file loads.
+   */
+  @Test
+  public void test_RowReader_Png_Layouts() throws IOException {
+    Image testImg = getSmoothImage();
+    BufferedImage alpha = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+    BufferedImage indexed = new BufferedImage(300, 200, BufferedImage.TYPE_BYTE_INDEXED);
+    int[] row = new int[300 * 3];
+    for (int i = 0; i < 200; i++) {
+      testImg.getRowValues(i, row);
+      for (int j = 0; j < 300; j++) {
+        int rgb = row[3 * j] << 16 | row[3 * j + 1] << 8 | row[3 * j + 2];
+        alpha.setRGB(j, i, (j % 256) << 24 | rgb);
+        indexed.setRGB(j, i, rgb);
+      }
+    }
+    ImageIO.write(alpha, "png", new File("test/unitResults/alpha.png"));
+    ImageIO.write(indexed, "png", new File("test/unitResults/indexed.png"));
+
+    for (String filename : new String[]{"test/unitResults/alpha.png",
+        "test/unitResults/indexed.png"}) {
+      IImageFileIO imageIO = imageFileIOFactory.getImageReader(filename);
+      IImage loadedImg = imageIO.loadFromFile(filename);
+      int[][] band = new int[200][300 * 3];
+      try (IImageRowReader reader = imageIO.openRowReader(filename)) {
+        assertEquals(200, reader.readRows(band));
+        assertEquals(0, reader.readRows(band));
+      }
+      for (int i = 0; i < 200; i++) {
+        loadedImg.getRowValues(i, row);
+        assertArrayEquals(filename, row, band[i]);
+      }
+    }
+  }
+
+  /**
+   * Tests that PNG and JPEG files are saved and loaded as they were a pixel at a time, on images of
+   * odd sides whose heights fall on either side of the split of a PNG file into chunks that are
+   * encoded in parallel. At a width of 301, a chunk holds 290 rows.
+   */
+  @Test
+  public void test_BinaryImageIO_MatchesPerPixel() throws IOException {
+    Random random = new Random(5);
+    for (int height : new int[]{289, 291}) {
+      int width = 301;
+      int[][][] rgbValues = new int[height][width][3];
+      BufferedImage perPixel = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+      BufferedImage alpha = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          for (int k = 0; k < 3; k++) {
+            rgbValues[i][j][k] = random.nextInt(256);
+          }
+          int rgb = rgbValues[i][j][0] << 16 | rgbValues[i][j][1] << 8 | rgbValues[i][j][2];
+          perPixel.setRGB(j, i, rgb);
+          gray.setRGB(j, i, rgb);
+          alpha.setRGB(j, i, random.nextInt(256) << 24 | rgb);
+        }
+      }
+      Image testImg = new Image(rgbValues, width, height);
+
+      String pngFilename = "test/unitResults/bulk.png";
+      imageFileIOFactory.getImageParser(pngFilename).saveToFile(pngFilename, testImg);
+      assertTrue(Arrays.deepEquals(rgbValues, readPerPixel(pngFilename)));
+      assertTrue(Arrays.deepEquals(rgbValues,
+          imageFileIOFactory.getImageReader(pngFilename).loadFromFile(pngFilename)
+              .getRgbValues()));
+
+      // The JPEG writer is handed the same pixels as a per pixel copy, so it writes the same file.
+      String jpgFilename = "test/unitResults/bulk.jpg";
+      String perPixelFilename = "test/unitResults/perpixel.jpg";
+      imageFileIOFactory.getImageParser(jpgFilename).saveToFile(jpgFilename, testImg);
+      ImageIO.write(perPixel, "jpg", new File(perPixelFilename));
+      assertArrayEquals(Files.readAllBytes(Paths.get(perPixelFilename)),
+          Files.readAllBytes(Paths.get(jpgFilename)));
+
+      // Files whose layouts are read through the color model, and a JPEG read as BGR bytes.
+      ImageIO.write(gray, "png", new File("test/unitResults/bulk_gray.png"));
+      ImageIO.write(alpha, "png", new File("test/unitResults/bulk_alpha.png"));
+      for (String filename : new String[]{"test/unitResults/bulk_gray.png",
+          "test/unitResults/bulk_alpha.png", jpgFilename}) {
+        IImage loadedImg = imageFileIOFactory.getImageReader(filename).loadFromFile(filename);
+        assertTrue(filename, Arrays.deepEquals(readPerPixel(filename), loadedImg.getRgbValues()));
+      }
+    }
+  }
+
+  /**
+   * Reads the pixels of a PNG or JPEG file one at a time, through the color model of the image.
+   */
+  private static int[][][] readPerPixel(String filename) throws IOException {
+    BufferedImage image = ImageIO.read(new File(filename));
+    int[][][] rgbValues = new int[image.getHeight()][image.getWidth()][3];
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        int pixel = image.getRGB(j, i);
+        rgbValues[i][j] = new int[]{(pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF};
+      }
+    }
+    return rgbValues;
+  }
+
+  /**
+   * Tests that the row reader skips a chunk it does not need, however long, and fails on a file
+   * that ends inside one.
+   */
+  @Test
+  public void test_RowReader_Png_SkippedChunk() throws IOException {
+    String filename = "test/unitResults/skipped.png";
+    Image testImg = getSmoothImage();
+    imageFileIOFactory.getImageParser(filename).saveToFile(filename, testImg);
+    byte[] original = Files.readAllBytes(Paths.get(filename));
+    // A tEXt chunk after the signature and IHDR chunk, whose CRC the reader does not check.
+    ByteBuffer chunk = ByteBuffer.allocate(12 + 100000);
+    chunk.putInt(100000).putInt(0x74455874);
+    byte[] withChunk = new byte[original.length + chunk.capacity()];
+    System.arraycopy(original, 0, withChunk, 0, 33);
+    System.arraycopy(chunk.array(), 0, withChunk, 33, chunk.capacity());
+    System.arraycopy(original, 33, withChunk, 33 + chunk.capacity(), original.length - 33);
+    Files.write(Paths.get(filename), withChunk);
+
+    IImageFileIO imageIO = imageFileIOFactory.getImageReader(filename);
+    int[][] band = new int[testImg.getHeight()][testImg.getWidth() * 3];
+    try (IImageRowReader reader = imageIO.openRowReader(filename)) {
+      assertEquals(testImg.getHeight(), reader.readRows(band));
+    }
+    int[] row = new int[testImg.getWidth() * 3];
+    for (int i = 0; i < testImg.getHeight(); i++) {
+      testImg.getRowValues(i, row);
+      assertArrayEquals(row, band[i]);
+    }
+
+    Files.write(Paths.get(filename), Arrays.copyOf(withChunk, 33 + 50000));
+    try {
+      imageIO.openRowReader(filename).close();
+      fail("A file that ends inside a chunk should not open.");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Tests that closing a row writer before every row is written fails.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void test_RowWriter_MissingRow() throws IOException {
+    String pngFilename = "test/unitResults/missing.png";
+    try (IImageRowWriter writer = imageFileIOFactory.getImageParser(pngFilename)
+        .openRowWriter(pngFilename, 2, 2, null)) {
+      writer.writeRows(new int[][]{{1, 2, 3, 4, 5, 6}}, 1);
+    }
+  }
+
+  /**
+   * Tests that a row writer rejects rows past the bottom of the image.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_RowWriter_TooManyRows() throws IOException {
+    String rawFilename = "test/unitResults/extra.imeraw";
+    try (IImageRowWriter writer = imageFileIOFactory.getImageParser(rawFilename)
+        .openRowWriter(rawFilename, 1, 1, null)) {
+      writer.writeRows(new int[][]{{1, 2, 3}, {4, 5, 6}}, 2);
+    }
+  }
+
+  /**
+   * Tests that an image saved as a QOI file is loaded without loss.
+   */
+  @Test
+  public void test_saveToFile_Qoi() throws IOException {
+    String qoiFilename = "test/unitResults/result.qoi";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(qoiFilename).saveToFile(qoiFilename, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageReader(qoiFilename).loadFromFile(qoiFilename);
+
+    assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests that a QOI file is encoded as the specification describes: a run, a full pixel, a small
+   * difference, a reference to a recent pixel, and a larger difference of the green channel.
+   */
+  @Test
+  public void test_saveToFile_Qoi_Encoding() throws IOException {
+    String qoiFilename = "test/unitResults/encoding.qoi";
+    int[][][] rgbValues = {{{0, 0, 0}, {0, 0, 0}, {10, 20, 30}},
+        {{11, 21, 31}, {10, 20, 30}, {27, 40, 42}}};
+    Image testImg = new Image(rgbValues, 3, 2);
+    imageFileIOFactory.getImageParser(qoiFilename).saveToFile(qoiFilename, testImg);
+
+    byte[] expected = {'q', 'o', 'i', 'f', 0, 0, 0, 3, 0, 0, 0, 2, 3, 0,
+        (byte) 0xC1, (byte) 0xFE, 10, 20, 30, 0x7F, 0x09, (byte) 0xB4, 0x50,
+        0, 0, 0, 0, 0, 0, 0, 1};
+    assertArrayEquals(expected, Files.readAllBytes(Paths.get(qoiFilename)));
+    assertArrayEquals(rgbValues, imageFileIOFactory.getImageParser(qoiFilename)
+        .loadFromFile(qoiFilename).getRgbValues());
+  }
+
+  /**
+   * Tests that a QOI file that ends before its pixels do is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_loadFromFile_Qoi_Truncated() throws IOException {
+    String qoiFilename = "test/unitResults/truncated.qoi";
+    Image testImg = getLargeRandomImage();
+    imageFileIOFactory.getImageParser(qoiFilename).saveToFile(qoiFilename, testImg);
+    byte[] contents = Files.readAllBytes(Paths.get(qoiFilename));
+    Files.write(Paths.get(qoiFilename), Arrays.copyOf(contents, contents.length / 2));
+
+    imageFileIOFactory.getImageParser(qoiFilename).loadFromFile(qoiFilename);
+  }
+
+  /**
+   * Tests that a PNG file large enough to be deflated in several chunks is saved losslessly, for
+   * both smooth and noisy rows.
+   */
+  @Test
+  public void test_saveToFile_Png_Chunks() throws IOException {
+    String pngFilename = "test/unitResults/chunks.png";
+    int[][][] rgbValues = getLargeRandomImage().getRgbValues();
+    for (int i = 0; i < rgbValues.length; i += 2) {
+      for (int j = 0; j < rgbValues[i].length; j++) {
+        rgbValues[i][j] = new int[]{(i + j) % 256, i % 256, (i * j) % 256};
+      }
+    }
+    Image testImg = new Image(rgbValues, rgbValues[0].length, rgbValues.length);
+    imageFileIOFactory.getImageParser(pngFilename).saveToFile(pngFilename, testImg);
+
+    IImage loadedImg = imageFileIOFactory.getImageReader(pngFilename).loadFromFile(pngFilename);
+
+    assertTrue(Arrays.deepEquals(rgbValues, loadedImg.getRgbValues()));
+  }
+
+  /**
+   * Tests that the PNG compression level and filter trade size for speed without losing pixels.
+   */
+  @Test
+  public void test_saveToFile_Png_Options() throws IOException {
+    String storedFilename = "test/unitResults/stored.png";
+    String smallestFilename = "test/unitResults/smallest.png";
+    Image testImg = getSmoothImage();
+    imageFileIOFactory.getImageParser(storedFilename).saveToFile(storedFilename, testImg,
+        new WriteOptions(WriteOptions.DEFAULT_QUALITY, false, 0, "none"));
+    imageFileIOFactory.getImageParser(smallestFilename).saveToFile(smallestFilename, testImg,
+        new WriteOptions(WriteOptions.DEFAULT_QUALITY, false, 9, "paeth"));
+
+    assertTrue(Files.size(Paths.get(storedFilename)) > Files.size(Paths.get(smallestFilename)));
+    for (String filename : new String[]{storedFilename, smallestFilename}) {
+      IImage loadedImg = imageFileIOFactory.getImageReader(filename).loadFromFile(filename);
+      assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+    }
+  }
+
+  /**
+   * Tests that a PPM file is ASCII unless the options ask for a binary one, and that both load back
+   * without loss.
+   */
+  @Test
+  public void test_saveToFile_Ppm_Binary() throws IOException {
+    String asciiFilename = "test/unitResults/ascii.ppm";
+    String binaryFilename = "test/unitResults/binary.ppm";
+    Image testImg = getSmoothImage();
+    imageFileIOFactory.getImageParser(asciiFilename).saveToFile(asciiFilename, testImg,
+        new WriteOptions());
+    imageFileIOFactory.getImageParser(binaryFilename).saveToFile(binaryFilename, testImg,
+        new WriteOptions(WriteOptions.DEFAULT_QUALITY, false, WriteOptions.DEFAULT_COMPRESSION,
+            WriteOptions.DEFAULT_FILTER, true));
+
+    assertEquals("P3", imageFileIOFactory.getImageReader(asciiFilename).probe(asciiFilename)
+        .getFormat());
+    assertEquals("P6", imageFileIOFactory.getImageReader(binaryFilename).probe(binaryFilename)
+        .getFormat());
+    assertTrue(Files.size(Paths.get(binaryFilename)) < Files.size(Paths.get(asciiFilename)));
+    for (String filename : new String[]{asciiFilename, binaryFilename}) {
+      IImage loadedImg = imageFileIOFactory.getImageReader(filename).loadFromFile(filename);
+      assertTrue(Arrays.deepEquals(testImg.getRgbValues(), loadedImg.getRgbValues()));
+    }
+  }
+
+  /**
+   * Tests that the JPEG quality sets the size of the file, and that a progressive JPEG file is
+   * written as one.
+   */
+  @Test
+  public void test_saveToFile_Jpeg_Options() throws IOException {
+    String lowFilename = "test/unitResults/low.jpg";
+    String highFilename = "test/unitResults/high.jpg";
+    Image testImg = getSmoothImage();
+    imageFileIOFactory.getImageParser(lowFilename).saveToFile(lowFilename, testImg,
+        new WriteOptions(20, false, WriteOptions.DEFAULT_COMPRESSION, "adaptive"));
+    imageFileIOFactory.getImageParser(highFilename).saveToFile(highFilename, testImg,
+        new WriteOptions(95, true, WriteOptions.DEFAULT_COMPRESSION, "adaptive"));
+
+    assertTrue(Files.size(Paths.get(highFilename)) > Files.size(Paths.get(lowFilename)));
+    // A progressive frame starts with the SOF2 marker, and a baseline frame with SOF0.
+    String high = new String(Files.readAllBytes(Paths.get(highFilename)),
+        StandardCharsets.ISO_8859_1);
+    String low = new String(Files.readAllBytes(Paths.get(lowFilename)),
+        StandardCharsets.ISO_8859_1);
+    assertTrue(high.contains("\u00FF\u00C2") && !high.contains("\u00FF\u00C0"));
+    assertTrue(low.contains("\u00FF\u00C0") && !low.contains("\u00FF\u00C2"));
+    assertEquals(testImg.getWidth(), imageFileIOFactory.getImageReader(highFilename)
+        .loadFromFile(highFilename).getWidth());
+  }
+
+  /**
+   * Tests that out of range save options are rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_WriteOptions_InvalidQuality() {
+    new WriteOptions(0, false, WriteOptions.DEFAULT_COMPRESSION, WriteOptions.DEFAULT_FILTER);
+  }
+
+  /**
+   * Tests that an unknown PNG filter is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void test_WriteOptions_UnknownFilter() {
+    new WriteOptions(WriteOptions.DEFAULT_QUALITY, false, WriteOptions.DEFAULT_COMPRESSION,
+        "median");
+  }
+
   /**
    * Tests the getHistogram method for Dimension validity.
    */
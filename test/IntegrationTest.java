@@ -1,4 +1,6 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import imeprogram.controller.Controller;
@@ -12,9 +14,15 @@ import imeprogram.view.IView;
 import imeprogram.view.View;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -402,6 +410,40 @@ public class IntegrationTest {
   }
 
 
+  /**
+   * Tests that a script of PPM files runs in a JVM of its own without loading the graphics
+   * classes, which would slow the start of the program.
+   */
+  @Test
+  public void scriptMode_LoadsNoGraphicsClasses() throws IOException, InterruptedException {
+    // Script commands are lowercased, so the files are named relative to a folder of their own.
+    Path dir = Files.createTempDirectory("script");
+    Files.copy(Paths.get("test/unitImages/bro.ppm"), dir.resolve("in.ppm"));
+    Files.write(dir.resolve("script.txt"),
+        Arrays.asList("load in.ppm image", "brighten 10 image image", "save out.ppm image"));
+    StringBuilder classPath = new StringBuilder();
+    for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      classPath.append(File.pathSeparator).append(Paths.get(entry).toAbsolutePath());
+    }
+    Process process = new ProcessBuilder(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-verbose:class",
+        "-cp", classPath.substring(1), "imeprogram.Main", "-file", "script.txt")
+        .directory(dir.toFile()).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+    try {
+      assertEquals(0, process.waitFor());
+      assertTrue(output, output.contains("Operation successful"));
+      assertTrue(Files.exists(dir.resolve("out.ppm")));
+      assertFalse(output.contains("java.desktop"));
+    } finally {
+      for (String name : new String[]{"in.ppm", "out.ppm", "script.txt"}) {
+        Files.deleteIfExists(dir.resolve(name));
+      }
+      Files.delete(dir);
+    }
+  }
+
   private void saveImage(String inputFilePath, String imagename, IController controller) {
     String command = String.format("save %s %s", inputFilePath, imagename);
 
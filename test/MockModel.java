@@ -1,11 +1,20 @@
 import imeprogram.exceptions.FileFormatException;
 import imeprogram.exceptions.ImageNotFoundException;
 import imeprogram.exceptions.InvalidImageNameException;
+import imeprogram.fileparser.ImageInfo;
+import imeprogram.fileparser.ReadOptions;
+import imeprogram.fileparser.WriteOptions;
+import imeprogram.model.CompressionResult;
 import imeprogram.model.IImage;
+import imeprogram.model.IImage.QualityTarget;
 import imeprogram.model.ILineGraph;
 import imeprogram.model.IModel;
 import imeprogram.model.IReadOnlyImage;
+import imeprogram.model.RowOperation;
+import imeprogram.model.SaveFailure;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
 
 class MockModel implements IModel {
 
@@ -16,6 +25,10 @@ class MockModel implements IModel {
   private boolean throwImageNotFoundException = false;
   private boolean throwIllegalArgumentException = false;
   private IReadOnlyImage outputImage;
+  private List<SaveFailure> saveFailures = new ArrayList<>();
+  private List<String> prefetchedImages = new ArrayList<>();
+  private int prefetchClears = 0;
+  private boolean compressionTargetMet = true;
 
   public MockModel(StringBuilder modelLog) {
     this.modelLog = modelLog;
@@ -41,6 +54,22 @@ class MockModel implements IModel {
     this.throwIllegalArgumentException = throwIllegalArgumentException;
   }
 
+  public void setCompressionTargetMet(boolean compressionTargetMet) {
+    this.compressionTargetMet = compressionTargetMet;
+  }
+
+  public void setSaveFailures(List<SaveFailure> saveFailures) {
+    this.saveFailures = saveFailures;
+  }
+
+  public List<String> getPrefetchedImages() {
+    return prefetchedImages;
+  }
+
+  public int getPrefetchClears() {
+    return prefetchClears;
+  }
+
   public void setOutputImage(IReadOnlyImage outputImage) {
     this.outputImage = outputImage;
   }
@@ -85,6 +114,36 @@ class MockModel implements IModel {
     checkFileNotFoundException();
   }
 
+  @Override
+  public void loadImageFromFile(String filePath, String imageName, ReadOptions options)
+      throws FileNotFoundException, FileFormatException, InvalidImageNameException {
+    logInputs(new String[]{filePath, imageName, options.toString()});
+    checkExceptions();
+    checkFileNotFoundException();
+  }
+
+  @Override
+  public void prefetchImage(String filePath, ReadOptions options) {
+    // Prefetches are kept apart from the log, since whether one happens depends on the script.
+    prefetchedImages.add(options == null ? filePath : filePath + " " + options);
+  }
+
+  @Override
+  public void clearPrefetchedImages() {
+    // The prefetched images are kept, so tests can check them after the script ends.
+    prefetchClears++;
+  }
+
+  @Override
+  public ImageInfo getImageInfo(String filePath)
+      throws FileNotFoundException, FileFormatException {
+    logInputs(new String[]{filePath});
+    checkExceptions();
+    checkFileNotFoundException();
+    // Return dummy values. Since our only goal here is to log inputs received.
+    return new ImageInfo("png", 640, 480);
+  }
+
   @Override
   public void saveImageToFile(String imageName, String filePath)
       throws ImageNotFoundException, FileNotFoundException, FileFormatException {
@@ -93,6 +152,47 @@ class MockModel implements IModel {
     checkFileNotFoundException();
   }
 
+  @Override
+  public void saveImageToFile(String imageName, String filePath, WriteOptions options)
+      throws ImageNotFoundException, FileNotFoundException, FileFormatException {
+    logInputs(new String[]{imageName, filePath, options.toString()});
+    checkExceptions();
+    checkFileNotFoundException();
+  }
+
+  @Override
+  public void streamImage(String sourcePath, String destPath, List<RowOperation> operations)
+      throws FileNotFoundException, FileFormatException {
+    List<String> inputs = new ArrayList<>(List.of(sourcePath, destPath));
+    for (RowOperation operation : operations) {
+      inputs.add(operation.toString());
+    }
+    logInputs(inputs.toArray(new String[0]));
+    checkExceptions();
+    checkFileNotFoundException();
+  }
+
+  @Override
+  public void setBackgroundSaves(int threads, int queueSize) throws IllegalArgumentException {
+    logInputs(new String[]{String.valueOf(threads), String.valueOf(queueSize)});
+    checkExceptions();
+  }
+
+  @Override
+  public void setCacheBudget(long bytes) throws IllegalArgumentException {
+    logInputs(new String[]{String.valueOf(bytes)});
+    checkExceptions();
+  }
+
+  @Override
+  public List<SaveFailure> syncSaves() {
+    // Only the failures that were set are returned, and nothing is logged, since every script
+    // ends with a sync.
+    List<SaveFailure> failures = saveFailures;
+    saveFailures = new ArrayList<>();
+    return failures;
+  }
+
   @Override
   public IReadOnlyImage getImageData(String sourceImageName) throws ImageNotFoundException {
     logInputs(new String[]{sourceImageName});
@@ -252,4 +352,15 @@ class MockModel implements IModel {
     logInputs(new String[]{sourceImageName, destImageName, String.valueOf(compressRatio)});
     checkExceptions();
   }
+
+  @Override
+  public CompressionResult compressToQuality(String sourceImageName, String destImageName,
+      QualityTarget target, double value)
+      throws ImageNotFoundException, InvalidImageNameException, IllegalArgumentException {
+    logInputs(new String[]{sourceImageName, destImageName, String.valueOf(target),
+        String.valueOf(value)});
+    checkExceptions();
+    // Return dummy values. Since our only goal here is to log inputs received.
+    return new CompressionResult(null, 50, 30, 100, compressionTargetMet);
+  }
 }
@@ -1,7 +1,37 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
+import imeprogram.exceptions.FileFormatException;
+import imeprogram.fileparser.IImageFileIO;
+import imeprogram.fileparser.IImageFileIOFactory;
 import imeprogram.fileparser.ImageFileIOFactory;
+import imeprogram.fileparser.ReadOptions;
+import imeprogram.fileparser.WriteOptions;
+import imeprogram.model.DecodedImageCache;
+import imeprogram.model.Image;
 import imeprogram.model.Model;
+import imeprogram.model.RowOperation;
+import imeprogram.model.SaveFailure;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 import org.junit.Test;
 
 /**
@@ -102,6 +132,22 @@ public class ModelTest {
 
   }
 
+  /**
+   * Tests that a file is loaded by its content when its extension names another format.
+   */
+  @Test
+  public void testLoadImageFromFile_MislabeledFile() throws Exception {
+    Files.copy(Paths.get("test/unitImages/bro.png"), Paths.get("test/unitResults/bro_png.ppm"),
+        StandardCopyOption.REPLACE_EXISTING);
+    Model model = new Model(new ImageFileIOFactory());
+
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.loadImageFromFile("test/unitResults/bro_png.ppm", "MislabeledImage");
+
+    assertArrayEquals(model.getImageData("SampleImage").getRgbValues(),
+        model.getImageData("MislabeledImage").getRgbValues());
+  }
+
   /**
    * Tests the working of the SaveImageToFile method.
    */
@@ -119,6 +165,539 @@ public class ModelTest {
 
   }
 
+  /**
+   * Tests that a prefetched image is taken by the load of the same file, and that a file changed
+   * after it was prefetched is read again.
+   */
+  @Test
+  public void testLoadImageFromFile_Prefetched() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    int[][][] original = model.getImageData("SampleImage").getRgbValues();
+
+    model.prefetchImage("test/unitImages/bro.png", null);
+    model.loadImageFromFile("test/unitImages/bro.png", "PrefetchedImage");
+    assertArrayEquals(original, model.getImageData("PrefetchedImage").getRgbValues());
+
+    Files.copy(Paths.get("test/unitImages/bro.png"), Paths.get("test/unitResults/prefetch.png"),
+        StandardCopyOption.REPLACE_EXISTING);
+    model.prefetchImage("test/unitResults/prefetch.png", null);
+    model.brighten("SampleImage", "BrightImage", 50);
+    model.saveImageToFile("BrightImage", "test/unitResults/prefetch.png");
+    model.loadImageFromFile("test/unitResults/prefetch.png", "ChangedImage");
+    assertArrayEquals(model.getImageData("BrightImage").getRgbValues(),
+        model.getImageData("ChangedImage").getRgbValues());
+    model.clearPrefetchedImages();
+  }
+
+  /**
+   * Tests that a save throws away the prefetched image of its file, even when the new file cannot
+   * be told apart from the old one by its size and modification time.
+   */
+  @Test
+  public void testLoadImageFromFile_PrefetchedThenSaved() throws Exception {
+    Path file = Paths.get("test/unitResults/prefetchSaved.imeraw");
+    Model writer = new Model(new ImageFileIOFactory());
+    writer.loadImageFromFile("test/unitImages/bro.ppm", "SampleImage");
+    writer.saveImageToFile("SampleImage", file.toString());
+    FileTime lastModified = Files.getLastModifiedTime(file);
+    for (boolean background : new boolean[]{false, true}) {
+      Model model = new Model(new ImageFileIOFactory());
+      model.setBackgroundSaves(background ? 1 : 0, 1);
+      model.loadImageFromFile(file.toString(), "SampleImage");
+      model.brighten("SampleImage", "BrightImage", background ? -30 : 30);
+
+      model.prefetchImage(file.toString(), null);
+      model.saveImageToFile("BrightImage", file.toString());
+      model.syncSaves();
+      Files.setLastModifiedTime(file, lastModified);
+      model.loadImageFromFile(file.toString(), "SavedImage");
+      assertArrayEquals(model.getImageData("BrightImage").getRgbValues(),
+          model.getImageData("SavedImage").getRgbValues());
+      model.clearPrefetchedImages();
+    }
+  }
+
+  /**
+   * Tests that a prefetched file that cannot be read fails its load, not the prefetch.
+   */
+  @Test(expected = FileNotFoundException.class)
+  public void testLoadImageFromFile_PrefetchedInvalidFilePath() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    model.prefetchImage("test/InvalidFilePath/bro.png", null);
+    model.loadImageFromFile("test/InvalidFilePath/bro.png", "SampleImage");
+  }
+
+  /**
+   * Tests that loading an unchanged file again takes the cached image, and that a cache shared by
+   * two models serves both of them.
+   */
+  @Test
+  public void testLoadImageFromFile_Cached() throws Exception {
+    DecodedImageCache cache = new DecodedImageCache(1 << 20);
+    Model model = new Model(new ImageFileIOFactory(), cache);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.loadImageFromFile("test/unitImages/../unitImages/bro.png", "CachedImage");
+    new Model(new ImageFileIOFactory(), cache).loadImageFromFile("test/unitImages/bro.png",
+        "OtherImage");
+
+    assertArrayEquals(model.getImageData("SampleImage").getRgbValues(),
+        model.getImageData("CachedImage").getRgbValues());
+    assertEquals(1, cache.getMisses());
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getImageCount());
+
+    model.loadImageFromFile("test/unitImages/bro.png", "RegionImage",
+        new ReadOptions(1, 0, 0, 2, 2));
+    assertEquals(2, cache.getMisses());
+    assertEquals(2, model.getImageData("RegionImage").getWidth());
+  }
+
+  /**
+   * Tests that a file saved over after it was cached is decoded again.
+   */
+  @Test
+  public void testLoadImageFromFile_CachedFileChanged() throws Exception {
+    DecodedImageCache cache = new DecodedImageCache(1 << 20);
+    Model model = new Model(new ImageFileIOFactory(), cache);
+    Files.copy(Paths.get("test/unitImages/bro.png"), Paths.get("test/unitResults/cached.png"),
+        StandardCopyOption.REPLACE_EXISTING);
+    model.loadImageFromFile("test/unitResults/cached.png", "SampleImage");
+    model.brighten("SampleImage", "BrightImage", 50);
+    model.saveImageToFile("BrightImage", "test/unitResults/cached.png");
+
+    model.loadImageFromFile("test/unitResults/cached.png", "ChangedImage");
+    assertArrayEquals(model.getImageData("BrightImage").getRgbValues(),
+        model.getImageData("ChangedImage").getRgbValues());
+    assertEquals(0, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  /**
+   * Tests that the cache budget set through the model applies to its cache.
+   */
+  @Test
+  public void testSetCacheBudget() throws Exception {
+    DecodedImageCache cache = new DecodedImageCache(1 << 20);
+    Model model = new Model(new ImageFileIOFactory(), cache);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    assertEquals(1, cache.getImageCount());
+    model.setCacheBudget(0);
+    assertEquals(0, cache.getBudget());
+    assertEquals(0, cache.getImageCount());
+    model.setCacheBudget(1 << 20);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.loadImageFromFile("test/unitImages/bro.png", "CachedImage");
+    assertEquals(1, cache.getHits());
+  }
+
+  /**
+   * Tests that combining the channels of images shared with the cache leaves them unchanged.
+   */
+  @Test
+  public void testRgbCombine_CachedImages() throws Exception {
+    DecodedImageCache cache = new DecodedImageCache(1 << 20);
+    Model model = new Model(new ImageFileIOFactory(), cache);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.brighten("SampleImage", "BrightImage", 50);
+    int[][][] expectedValues = model.getImageData("SampleImage").getRgbValues();
+
+    model.rgbCombine("CombinedImage", "BrightImage", "SampleImage", "SampleImage");
+    model.loadImageFromFile("test/unitImages/bro.png", "CachedImage");
+    assertEquals(1, cache.getHits());
+    assertArrayEquals(expectedValues, model.getImageData("SampleImage").getRgbValues());
+    assertArrayEquals(expectedValues, model.getImageData("CachedImage").getRgbValues());
+  }
+
+  /**
+   * Tests that the least recently loaded images are dropped to stay within the budget.
+   */
+  @Test
+  public void testLoadImageFromFile_CacheBudget() throws Exception {
+    DecodedImageCache cache = new DecodedImageCache(1 << 20);
+    Model model = new Model(new ImageFileIOFactory(), cache);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.loadImageFromFile("test/unitImages/bro.jpg", "JpegImage");
+    long used = cache.getUsedBytes();
+    assertEquals(2, cache.getImageCount());
+
+    // Room for one of the two images only, so the png loaded first is dropped.
+    cache.setBudget(used - 1);
+    assertEquals(1, cache.getImageCount());
+    assertTrue(cache.getUsedBytes() <= used - 1);
+    model.loadImageFromFile("test/unitImages/bro.jpg", "JpegImage");
+    assertEquals(1, cache.getHits());
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getImageCount());
+  }
+
+  /**
+   * Writes a binary PPM large enough to be mapped when loaded, with a pattern of pixel values.
+   */
+  private static void writeLargeP6(String filePath, int width, int height) throws Exception {
+    String header = "P6\n" + width + " " + height + "\n255\n";
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath), 1 << 20)) {
+      out.write(header.getBytes(StandardCharsets.US_ASCII));
+      byte[] row = new byte[width * 3];
+      for (int i = 0; i < height; i++) {
+        for (int k = 0; k < row.length; k++) {
+          row[k] = (byte) (i * 7 + k);
+        }
+        out.write(row);
+      }
+    }
+  }
+
+  /**
+   * Tests that an image mapped from its file can be saved back to the same path, which replaces
+   * the file only once the new one is fully written.
+   */
+  @Test
+  public void testSaveImageToFile_MappedOntoItself() throws Exception {
+    String filePath = "test/unitResults/mapped_roundtrip.pnm";
+    int width = 4096;
+    int height = 5462;
+    writeLargeP6(filePath, width, height);
+    long size = Files.size(Paths.get(filePath));
+    Model model = new Model(new ImageFileIOFactory());
+    model.loadImageFromFile(filePath, "Mapped");
+
+    model.saveImageToFile("Mapped", filePath);
+
+    assertEquals(size, Files.size(Paths.get(filePath)));
+    int[] row = new int[width * 3];
+    model.getImageData("Mapped").getRowValues(height - 1, row);
+    model.loadImageFromFile(filePath, "Reloaded");
+    int[] reloadedRow = new int[width * 3];
+    model.getImageData("Reloaded").getRowValues(height - 1, reloadedRow);
+    assertArrayEquals(row, reloadedRow);
+    assertEquals(((height - 1) * 7 + 5) & 0xFF, reloadedRow[5]);
+    Files.delete(Paths.get(filePath));
+  }
+
+  /**
+   * Tests that a file no image is mapped from is saved in place, so that a link to it sees the new
+   * image, while a mapped file saved over through a link is replaced and the link kept.
+   */
+  @Test
+  public void testSaveImageToFile_InPlaceUnlessMapped() throws Exception {
+    Path file = Paths.get("test/unitResults/linked.ppm");
+    Path hardLink = Paths.get("test/unitResults/linked_hard.ppm");
+    Path symbolicLink = Paths.get("test/unitResults/linked_symbolic.pnm");
+    Files.deleteIfExists(hardLink);
+    Files.deleteIfExists(symbolicLink);
+    Model model = new Model(new ImageFileIOFactory());
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.brighten("SampleImage", "BrightImage", 50);
+    model.saveImageToFile("SampleImage", file.toString());
+    try {
+      Files.createLink(hardLink, file);
+      Files.createSymbolicLink(symbolicLink, Paths.get("mapped_target.pnm"));
+    } catch (UnsupportedOperationException | IOException e) {
+      assumeTrue(false);
+    }
+
+    model.saveImageToFile("BrightImage", file.toString());
+    model.loadImageFromFile(hardLink.toString(), "LinkedImage");
+    assertArrayEquals(model.getImageData("BrightImage").getRgbValues(),
+        model.getImageData("LinkedImage").getRgbValues());
+
+    int width = 4096;
+    int height = 5462;
+    writeLargeP6("test/unitResults/mapped_target.pnm", width, height);
+    model.loadImageFromFile(symbolicLink.toString(), "Mapped");
+    model.saveImageToFile("Mapped", symbolicLink.toString());
+    assertTrue(Files.isSymbolicLink(symbolicLink));
+    int[] row = new int[width * 3];
+    model.getImageData("Mapped").getRowValues(height - 1, row);
+    assertEquals(((height - 1) * 7 + 5) & 0xFF, row[5]);
+    try (Stream<Path> files = Files.list(file.getParent())) {
+      assertTrue(files.noneMatch(
+          path -> path.getFileName().toString().startsWith(".mapped_target.pnm.")));
+    }
+    Files.delete(hardLink);
+    Files.delete(symbolicLink);
+    Files.delete(Paths.get("test/unitResults/mapped_target.pnm"));
+  }
+
+  /**
+   * Tests that a large raw file opens without its checksum being checked, and that streaming it,
+   * which reads every sample, rejects a file whose samples do not match the checksum.
+   */
+  @Test
+  public void testLoadImageFromFile_MappedRawChecksum() throws Exception {
+    String ppmPath = "test/unitResults/mapped_raw_source.pnm";
+    String rawPath = "test/unitResults/mapped_corrupted.imeraw";
+    writeLargeP6(ppmPath, 4096, 5462);
+    Model model = new Model(new ImageFileIOFactory());
+    model.loadImageFromFile(ppmPath, "Source");
+    model.saveImageToFile("Source", rawPath);
+    try (FileChannel channel = FileChannel.open(Paths.get(rawPath), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{1}), channel.size() - 1);
+    }
+
+    model.loadImageFromFile(rawPath, "Mapped");
+    try {
+      model.streamImage(rawPath, "test/unitResults/mapped_corrupted.ppm", new ArrayList<>());
+      fail("Expected the checksum to reject the file.");
+    } catch (FileFormatException e) {
+      // Expected
+    }
+    Files.delete(Paths.get(ppmPath));
+    Files.delete(Paths.get(rawPath));
+  }
+
+  /**
+   * Tests that a raw image mapped from its file can be saved back to the same path.
+   */
+  @Test
+  public void testSaveImageToFile_MappedRawOntoItself() throws Exception {
+    String ppmPath = "test/unitResults/mapped_raw_source.pnm";
+    String rawPath = "test/unitResults/mapped_roundtrip.imeraw";
+    int width = 4096;
+    int height = 5462;
+    writeLargeP6(ppmPath, width, height);
+    Model model = new Model(new ImageFileIOFactory());
+    model.loadImageFromFile(ppmPath, "Source");
+    model.saveImageToFile("Source", rawPath);
+    model.loadImageFromFile(rawPath, "Mapped");
+
+    model.saveImageToFile("Mapped", rawPath);
+
+    model.loadImageFromFile(rawPath, "Reloaded");
+    int[] row = new int[width * 3];
+    int[] reloadedRow = new int[width * 3];
+    model.getImageData("Source").getRowValues(height - 1, row);
+    model.getImageData("Reloaded").getRowValues(height - 1, reloadedRow);
+    assertArrayEquals(row, reloadedRow);
+    Files.delete(Paths.get(ppmPath));
+    Files.delete(Paths.get(rawPath));
+  }
+
+  /**
+   * Tests that streaming an image taller than a band through a filter and a point operation gives
+   * the same image as loading it whole and applying the same operations. Each row writer is
+   * used, along with a format that is saved whole.
+   */
+  @Test
+  public void testStreamImage() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    int width = 23;
+    int height = 57;
+    int[][][] rgbValues = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        rgbValues[i][j] = new int[]{(i * 37 + j * 11) % 256, (i * j) % 256, (i + 5 * j) % 256};
+      }
+    }
+    model.saveImageDataToMemory(new Image(rgbValues, width, height), "SampleImage");
+    model.saveImageToFile("SampleImage", "test/unitResults/streamsource.png");
+    model.blur("SampleImage", "Expected");
+    model.sharpen("Expected", "Expected");
+    model.brighten("Expected", "Expected", 20);
+    int[][][] expected = model.getImageData("Expected").getRgbValues();
+
+    List<RowOperation> operations =
+        List.of(RowOperation.blur(), RowOperation.sharpen(), RowOperation.brighten(20));
+    for (String extension : new String[]{"png", "ppm", "imeraw", "qoi"}) {
+      String destPath = "test/unitResults/streamresult." + extension;
+      model.streamImage("test/unitResults/streamsource.png", destPath, operations);
+      model.loadImageFromFile(destPath, "Streamed");
+      assertArrayEquals(expected, model.getImageData("Streamed").getRgbValues());
+    }
+  }
+
+  /**
+   * Tests that an image cannot be streamed onto its own file, or from a missing file.
+   */
+  @Test
+  public void testStreamImage_InvalidPaths() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    try {
+      model.streamImage("test/unitImages/bro.png", "test/unitImages/bro.png",
+          List.of(RowOperation.sepia()));
+      fail("Expected streaming onto the source file to fail.");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      model.streamImage("test/InvalidFilePath/bro.png", "test/unitResults/streamresult.png",
+          List.of(RowOperation.sepia()));
+      fail("Expected a missing source file to fail.");
+    } catch (FileNotFoundException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Tests that a stream that fails partway, because its source file is cut short, leaves the
+   * destination file as it was.
+   */
+  @Test
+  public void testStreamImage_FailsPartway() throws Exception {
+    String sourcePath = "test/unitResults/stream_short.png";
+    String destPath = "test/unitResults/stream_kept.ppm";
+    writeLargeP6("test/unitResults/stream_short.pnm", 300, 200);
+    Model sourceModel = new Model(new ImageFileIOFactory());
+    sourceModel.loadImageFromFile("test/unitResults/stream_short.pnm", "Source");
+    sourceModel.saveImageToFile("Source", sourcePath,
+        new WriteOptions(WriteOptions.DEFAULT_QUALITY, false, 0, "none"));
+    try (FileChannel channel = FileChannel.open(Paths.get(sourcePath),
+        StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() / 2);
+    }
+    Model model = new Model(new ImageFileIOFactory());
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    model.saveImageToFile("SampleImage", destPath);
+    byte[] contents = Files.readAllBytes(Paths.get(destPath));
+
+    try {
+      model.streamImage(sourcePath, destPath, List.of(RowOperation.sepia()));
+      fail("Expected the cut-short source file to fail the stream.");
+    } catch (FileNotFoundException | FileFormatException e) {
+      // Expected
+    }
+    assertArrayEquals(contents, Files.readAllBytes(Paths.get(destPath)));
+    try (Stream<Path> files = Files.list(Paths.get("test/unitResults"))) {
+      assertTrue(files.noneMatch(
+          path -> path.getFileName().toString().startsWith(".stream_kept.ppm.")));
+    }
+  }
+
+  /**
+   * Tests that a background save writes the image the alias named when it was saved, even after
+   * the alias is given to another image.
+   */
+  @Test
+  public void testSaveImageToFile_Background() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    model.setBackgroundSaves(2, 1);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+    int[][][] original = model.getImageData("SampleImage").getRgbValues();
+
+    for (int i = 0; i < 4; i++) {
+      model.saveImageToFile("SampleImage", "test/unitResults/background" + i + ".png");
+    }
+    model.brighten("SampleImage", "SampleImage", 50);
+    assertTrue(model.syncSaves().isEmpty());
+    model.setBackgroundSaves(0, 0);
+
+    for (int i = 0; i < 4; i++) {
+      model.loadImageFromFile("test/unitResults/background" + i + ".png", "SavedImage");
+      assertArrayEquals(original, model.getImageData("SavedImage").getRgbValues());
+    }
+  }
+
+  /**
+   * Tests that a background save that cannot write its file is reported by the next sync only,
+   * while an unsupported extension fails the save itself.
+   */
+  @Test
+  public void testSaveImageToFile_BackgroundFailure() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    model.setBackgroundSaves(1, 0);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+
+    model.saveImageToFile("SampleImage", "test/InvalidFilePath/bro.png");
+    model.saveImageToFile("SampleImage", "test/unitResults/broresult.png");
+    try {
+      model.saveImageToFile("SampleImage", "test/unitResults/bro.txt");
+      fail("Expected an unsupported file extension to fail the save.");
+    } catch (FileFormatException e) {
+      // Expected
+    }
+
+    List<SaveFailure> failures = model.syncSaves();
+    assertEquals(1, failures.size());
+    assertEquals("test/InvalidFilePath/bro.png", failures.get(0).getFilePath());
+    assertTrue(failures.get(0).getFailure() instanceof FileNotFoundException);
+    assertTrue(model.syncSaves().isEmpty());
+  }
+
+  /**
+   * Tests that a background save whose encoder throws a FileFormatException, or any other
+   * unchecked exception, is reported as a failed save rather than thrown by the sync.
+   */
+  @Test
+  public void testSaveImageToFile_BackgroundFormatFailure() throws Exception {
+    ImageFileIOFactory formats = new ImageFileIOFactory();
+    // Hands the raw format to every path, which rejects any extension but its own when saving.
+    Model model = new Model(new IImageFileIOFactory() {
+      @Override
+      public IImageFileIO getImageParser(String filePath) {
+        return formats.getImageParser("raw.imeraw");
+      }
+
+      @Override
+      public IImageFileIO getImageReader(String filePath) {
+        return formats.getImageReader(filePath);
+      }
+    });
+    model.setBackgroundSaves(1, 1);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+
+    model.saveImageToFile("SampleImage", "test/unitResults/format.png");
+
+    List<SaveFailure> failures = model.syncSaves();
+    assertEquals(1, failures.size());
+    assertTrue(failures.get(0).getFailure() instanceof FileFormatException);
+    model.setBackgroundSaves(0, 0);
+  }
+
+  /**
+   * Tests that every failed background save of a path is reported, not only the last one.
+   */
+  @Test
+  public void testSaveImageToFile_BackgroundFailuresOfOnePath() throws Exception {
+    Model model = new Model(new ImageFileIOFactory());
+    model.setBackgroundSaves(2, 2);
+    model.loadImageFromFile("test/unitImages/bro.png", "SampleImage");
+
+    model.saveImageToFile("SampleImage", "test/InvalidFilePath/bro.png");
+    model.saveImageToFile("SampleImage", "test/InvalidFilePath/bro.png");
+
+    List<SaveFailure> failures = model.syncSaves();
+    assertEquals(2, failures.size());
+    for (SaveFailure failure : failures) {
+      assertEquals("test/InvalidFilePath/bro.png", failure.getFilePath());
+      assertTrue(failure.getFailure() instanceof FileNotFoundException);
+    }
+    model.setBackgroundSaves(0, 0);
+  }
+
+  /**
+   * Tests that background saves of different images to one path are written in the order they
+   * were made, and that loading the path waits for them and does not take a cached image.
+   */
+  @Test
+  public void testSaveImageToFile_BackgroundSamePath() throws Exception {
+    String filePath = "test/unitResults/background_same.ppm";
+    DecodedImageCache cache = new DecodedImageCache(1 << 20);
+    Model model = new Model(new ImageFileIOFactory(), cache);
+    model.setBackgroundSaves(4, 4);
+    model.loadImageFromFile("test/unitImages/bro.png", "Image0");
+    for (int i = 1; i < 4; i++) {
+      model.brighten("Image" + (i - 1), "Image" + i, 40);
+    }
+
+    for (int run = 0; run < 10; run++) {
+      for (int i = 0; i < 4; i++) {
+        model.saveImageToFile("Image" + i, filePath);
+      }
+      model.loadImageFromFile(filePath, "Loaded");
+      assertArrayEquals(model.getImageData("Image3").getRgbValues(),
+          model.getImageData("Loaded").getRgbValues());
+
+      model.saveImageToFile("Image" + (run % 3), filePath);
+      model.loadImageFromFile(filePath, "Loaded");
+      assertArrayEquals(model.getImageData("Image" + (run % 3)).getRgbValues(),
+          model.getImageData("Loaded").getRgbValues());
+    }
+    assertTrue(model.syncSaves().isEmpty());
+    model.setBackgroundSaves(0, 0);
+  }
+
   /**
    * Tests the SaveImageToFile method for Invalid Name.
    */